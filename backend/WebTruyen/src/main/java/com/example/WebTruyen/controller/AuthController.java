@@ -11,11 +11,16 @@ import com.example.WebTruyen.repository.UserRepository;
 import com.example.WebTruyen.security.JwtTokenProvider;
 import com.example.WebTruyen.service.AuthService;
 import com.example.WebTruyen.service.AccountLockedException;
+import com.example.WebTruyen.service.OtpLimitExceededException;
+import com.example.WebTruyen.service.PasswordHashingBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -41,7 +46,10 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Please verify your email before logging in.");
             }
             
-            String token = tokenProvider.generateToken(user.getId(), user.getUsername());
+            List<String> roles = user.getUserRoles().stream()
+                    .map(userRole -> userRole.getRole().getCode())
+                    .toList();
+            String token = tokenProvider.generateToken(user.getId(), user.getUsername(), roles, user.isVerified());
             
             LoginResponse response = new LoginResponse(
                 token,
@@ -56,6 +64,8 @@ public class AuthController {
             body.put("message", e.getMessage());
             body.put("secondsRemaining", e.getSecondsRemaining());
             return ResponseEntity.status(423).body(body);
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -75,6 +85,8 @@ public class AuthController {
             authService.sendOtp(request.getEmail());
             
             return ResponseEntity.ok("Registration successful! Please check your email for OTP verification.");
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -85,6 +97,8 @@ public class AuthController {
         try {
             authService.sendOtp(request.getEmail());
             return ResponseEntity.ok("OTP sent to your email!");
+        } catch (OtpLimitExceededException e) {
+            return ResponseEntity.status(429).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -119,8 +133,16 @@ public class AuthController {
         try {
             authService.resetPassword(request.getToken(), request.getNewPassword());
             return ResponseEntity.ok("Password reset successfully! Please login with your new password.");
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    private ResponseEntity<?> busy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
 }
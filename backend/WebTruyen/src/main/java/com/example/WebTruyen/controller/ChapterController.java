@@ -0,0 +1,220 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.dto.request.CreateCommentRequest;
+import com.example.WebTruyen.dto.request.UnlockChapterRequest;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.ChapterContentService;
+import com.example.WebTruyen.service.ChapterLockedException;
+import com.example.WebTruyen.service.ChapterNotFoundException;
+import com.example.WebTruyen.service.ChapterPayloadCache;
+import com.example.WebTruyen.service.ChapterPurchaseService;
+import com.example.WebTruyen.service.CommentIngestionBusyException;
+import com.example.WebTruyen.service.CommentIngestionService;
+import com.example.WebTruyen.service.CommentNotFoundException;
+import com.example.WebTruyen.service.CommentRateLimitedException;
+import com.example.WebTruyen.service.CommentThreadService;
+import com.example.WebTruyen.service.InsufficientBalanceException;
+import com.example.WebTruyen.service.StoryNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/chapters")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class ChapterController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private ChapterContentService chapterContentService;
+
+    @Autowired
+    private ChapterPurchaseService chapterPurchaseService;
+
+    @Autowired
+    private CommentThreadService commentThreadService;
+
+    @Autowired
+    private CommentIngestionService commentIngestionService;
+
+    @GetMapping("/{chapterId}/content")
+    public ResponseEntity<?> content(@PathVariable Long chapterId,
+                                     @RequestParam(defaultValue = "1") int fromSeq,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                     @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            ChapterAccessInfo chapter = chapterContentService.checkReadable(chapterId, userId(userPrincipal));
+
+            // Resumed reads (fromSeq > 1) are rare and partial, they go straight to the stream
+            if (fromSeq > 1) {
+                StreamingResponseBody body = out -> chapterContentService.writeContent(chapterId, fromSeq, out);
+                return ResponseEntity.ok()
+                        .contentType(NDJSON)
+                        .body(body);
+            }
+
+            CacheControl cacheControl = chapter.isFree() ? CacheControl.noCache() : CacheControl.noCache().cachePrivate();
+            ChapterPayloadCache.CachedChapter payload = chapterContentService.getCompressed(chapter);
+            if (payload == null) {
+                // Too large to render in memory, so there is no payload to derive an ETag from
+                StreamingResponseBody body = out -> chapterContentService.writeContent(chapterId, 1, out);
+                return ResponseEntity.ok()
+                        .cacheControl(cacheControl)
+                        .contentType(NDJSON)
+                        .body(body);
+            }
+
+            String etag = payload.etag();
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(cacheControl)
+                        .build();
+            }
+
+            byte[] gzipBody = payload.gzipBody();
+
+            if (acceptsGzip(acceptEncoding)) {
+                return ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(cacheControl)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .contentType(NDJSON)
+                        .body(gzipBody);
+            }
+
+            StreamingResponseBody body = out -> {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipBody))) {
+                    in.transferTo(out);
+                }
+            };
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .contentType(NDJSON)
+                    .body(body);
+        } catch (ChapterNotFoundException | StoryNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (ChapterLockedException e) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("message", e.getMessage());
+            body.put("priceCoin", e.getPriceCoin());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(body);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not load chapter");
+        }
+    }
+
+    @PostMapping("/{chapterId}/unlock")
+    public ResponseEntity<?> unlock(@PathVariable Long chapterId,
+                                    @RequestBody(required = false) UnlockChapterRequest request,
+                                    @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            UnlockChapterRequest body = request != null ? request : new UnlockChapterRequest();
+            return ResponseEntity.ok(chapterPurchaseService.unlock(
+                    userPrincipal.getId(), chapterId, body.getCoin(), body.getIdempotencyKey()));
+        } catch (ChapterNotFoundException | StoryNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (InsufficientBalanceException e) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("message", e.getMessage());
+            body.put("required", e.getRequired());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{chapterId}/comments")
+    public ResponseEntity<?> comments(@PathVariable Long chapterId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "" + CommentThreadService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(commentThreadService.getThreads(chapterId, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{chapterId}/comments/{commentId}/replies")
+    public ResponseEntity<?> replies(@PathVariable Long chapterId,
+                                     @PathVariable Long commentId,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(defaultValue = "" + CommentThreadService.DEFAULT_REPLY_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(commentThreadService.getReplies(chapterId, commentId, cursor, limit));
+        } catch (CommentNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{chapterId}/comments")
+    public CompletableFuture<ResponseEntity<?>> postComment(@PathVariable Long chapterId,
+                                                            @RequestBody CreateCommentRequest request,
+                                                            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return commentIngestionService.submit(userPrincipal.getId(), chapterId, request.getParentCommentId(),
+                            request.getContent())
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Could not save comment"));
+        } catch (CommentRateLimitedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage()));
+        } catch (CommentIngestionBusyException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage()));
+        } catch (ChapterNotFoundException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage()));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+    }
+
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private Long userId(UserPrincipal userPrincipal) {
+        return userPrincipal != null ? userPrincipal.getId() : null;
+    }
+}
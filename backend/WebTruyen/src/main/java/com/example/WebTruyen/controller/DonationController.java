@@ -0,0 +1,45 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.request.DonationRequest;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.DonationBusyException;
+import com.example.WebTruyen.service.DonationService;
+import com.example.WebTruyen.service.InsufficientBalanceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/donations")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class DonationController {
+
+    @Autowired
+    private DonationService donationService;
+
+    @PostMapping
+    public ResponseEntity<?> donate(@RequestBody DonationRequest request,
+                                    @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return ResponseEntity.ok(donationService.donate(userPrincipal.getId(), request.getToUserId(),
+                    request.getCoin(), request.getAmount(), request.getIdempotencyKey()));
+        } catch (InsufficientBalanceException e) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("message", e.getMessage());
+            body.put("required", e.getRequired());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(body);
+        } catch (DonationBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import com.example.WebTruyen.service.PaymentService;
+import com.example.WebTruyen.service.PaymentSignatureVerifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Local stand-in for the payment gateway (dev profile only): replays a shuffled burst of
+ * duplicate and contradicting signed callbacks for one order, the way a real gateway may
+ * redeliver them. Whatever the order, the order must end PAID with exactly one TOPUP entry.
+ */
+@Profile("dev")
+@RestController
+@RequestMapping("/api/dev/payments")
+public class FakePaymentGatewayController {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentSignatureVerifier signatureVerifier;
+
+    @PostMapping("/{orderCode}/replay")
+    public ResponseEntity<?> replay(@PathVariable String orderCode,
+                                    @RequestParam long amountVnd,
+                                    @RequestParam(defaultValue = "3") int duplicates) {
+        List<PaymentOrderStatus> burst = new ArrayList<>();
+        for (int i = 0; i < duplicates; i++) {
+            burst.add(PaymentOrderStatus.PAID);
+            burst.add(PaymentOrderStatus.FAILED);
+        }
+        Collections.shuffle(burst);
+
+        List<String> sent = new ArrayList<>(burst.size());
+        for (PaymentOrderStatus status : burst) {
+            paymentService.submitCallback(orderCode, status, amountVnd,
+                    signatureVerifier.sign(orderCode, status, amountVnd));
+            sent.add(status.name());
+        }
+        return ResponseEntity.ok(sent);
+    }
+}
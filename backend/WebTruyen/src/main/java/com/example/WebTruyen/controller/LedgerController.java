@@ -0,0 +1,56 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.LedgerHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/ledger")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class LedgerController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    @Autowired
+    private LedgerHistoryService ledgerHistoryService;
+
+    @GetMapping
+    public ResponseEntity<?> getHistory(@RequestParam(required = false) CoinType coin,
+                                        @RequestParam(required = false) LedgerReason reason,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int limit,
+                                        @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return ResponseEntity.ok(ledgerHistoryService.getPage(userPrincipal.getId(), coin, reason, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) CoinType coin,
+                                                        @RequestParam(required = false) LedgerReason reason,
+                                                        @RequestParam(defaultValue = "CSV") LedgerHistoryService.ExportFormat format,
+                                                        @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        Long userId = userPrincipal.getId();
+        boolean csv = format == LedgerHistoryService.ExportFormat.CSV;
+        StreamingResponseBody body = out -> ledgerHistoryService.export(userId, coin, reason, format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "ledger.csv" : "ledger.ndjson")
+                        .build()
+                        .toString())
+                .contentType(csv ? CSV : NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.request.ReadingProgressRequest;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.ContinueReadingService;
+import com.example.WebTruyen.service.ReadingProgressService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/library")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class LibraryController {
+
+    @Autowired
+    private ReadingProgressService readingProgressService;
+
+    @Autowired
+    private ContinueReadingService continueReadingService;
+
+    @GetMapping("/continue-reading")
+    public ResponseEntity<?> continueReading(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return ResponseEntity.ok(continueReadingService.getShelf(userPrincipal.getId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/progress")
+    public ResponseEntity<?> reportProgress(@RequestBody ReadingProgressRequest request,
+                                            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            readingProgressService.report(userPrincipal.getId(), request.getChapterId(), request.getSegmentSeq(),
+                    request.getPositionPercent());
+            return ResponseEntity.accepted().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.request.CommentVisibilityRequest;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.CommentModerationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/moderation")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class ModerationController {
+
+    @Autowired
+    private CommentModerationService commentModerationService;
+
+    @PatchMapping("/comments/{commentId}/hidden")
+    public ResponseEntity<?> setCommentHidden(@PathVariable Long commentId,
+                                              @RequestBody CommentVisibilityRequest request,
+                                              @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            commentModerationService.setHidden(userPrincipal.getId(), commentId, request.isHidden(), request.getReason());
+            return ResponseEntity.ok(request.isHidden() ? "Comment hidden" : "Comment restored");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
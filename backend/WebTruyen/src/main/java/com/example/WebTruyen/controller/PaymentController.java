@@ -0,0 +1,49 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.request.CreatePaymentOrderRequest;
+import com.example.WebTruyen.dto.request.PaymentCallbackRequest;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.PaymentCallbackRejectedException;
+import com.example.WebTruyen.service.PaymentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/payments")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class PaymentController {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @PostMapping("/orders")
+    public ResponseEntity<?> createOrder(@RequestBody CreatePaymentOrderRequest request,
+                                         @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return ResponseEntity.ok(paymentService.createOrder(userPrincipal.getId(), request.getAmountVnd()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Called by the payment gateway; authenticated by the request signature, not a JWT
+    @PostMapping("/callback")
+    public ResponseEntity<?> callback(@RequestBody PaymentCallbackRequest request) {
+        try {
+            paymentService.submitCallback(request.getOrderCode(), request.getStatus(),
+                    request.getAmountVnd(), request.getSignature());
+            return ResponseEntity.accepted().build();
+        } catch (PaymentCallbackRejectedException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            // Not stored, so the gateway must not consider it delivered
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Busy, please retry");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.request.UnlockRangeRequest;
+import com.example.WebTruyen.dto.response.StoryTocResponse;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.ChapterEntitlementIndex;
+import com.example.WebTruyen.service.ChapterPurchaseService;
+import com.example.WebTruyen.service.CommentCounterService;
+import com.example.WebTruyen.service.InsufficientBalanceException;
+import com.example.WebTruyen.service.StoryNotFoundException;
+import com.example.WebTruyen.service.StoryTocService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stories")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class StoryController {
+
+    @Autowired
+    private StoryTocService storyTocService;
+
+    @Autowired
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Autowired
+    private ChapterPurchaseService chapterPurchaseService;
+
+    @Autowired
+    private CommentCounterService commentCounterService;
+
+    @GetMapping("/{storyId}/toc")
+    public ResponseEntity<?> toc(@PathVariable Long storyId,
+                                 @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        StoryTocResponse toc;
+        try {
+            toc = storyTocService.getToc(storyId);
+        } catch (StoryNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        if (userPrincipal == null) {
+            return ResponseEntity.ok(toc);
+        }
+
+        // The cached TOC is shared; the reader's unlocks go on a per-request copy
+        return ResponseEntity.ok(new StoryTocResponse(toc.getStoryId(), toc.getVolumes(),
+                chapterEntitlementIndex.unlockedChapterIds(userPrincipal.getId(), storyId)));
+    }
+
+    @GetMapping("/{storyId}/comment-counts")
+    public ResponseEntity<?> commentCounts(@PathVariable Long storyId) {
+        try {
+            return ResponseEntity.ok(commentCounterService.getChapterCounts(storyTocService.getStoryToc(storyId).chapterIds()));
+        } catch (StoryNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{storyId}/unlock-range")
+    public ResponseEntity<?> unlockRange(@PathVariable Long storyId,
+                                         @RequestBody UnlockRangeRequest request,
+                                         @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            return ResponseEntity.ok(chapterPurchaseService.unlockRange(userPrincipal.getId(), storyId,
+                    request.getVolumeId(), request.getFromChapterId(), request.getToChapterId(),
+                    request.getCoin(), request.getIdempotencyKey()));
+        } catch (InsufficientBalanceException e) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("message", e.getMessage());
+            body.put("required", e.getRequired());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(body);
+        } catch (StoryNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
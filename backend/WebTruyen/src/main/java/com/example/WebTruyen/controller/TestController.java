@@ -19,6 +19,6 @@ public class TestController {
 
     @GetMapping("/protected")
     public String protectedEndpoint(@AuthenticationPrincipal UserPrincipal userPrincipal) {
-        return "Hello " + userPrincipal.getUser().getUsername() + "! This is a protected endpoint.";
+        return "Hello " + userPrincipal.getUsername() + "! This is a protected endpoint.";
     }
 }
@@ -0,0 +1,23 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.response.WalletResponse;
+import com.example.WebTruyen.security.UserPrincipal;
+import com.example.WebTruyen.service.WalletBalanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/wallet")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class WalletController {
+
+    @Autowired
+    private WalletBalanceService walletBalanceService;
+
+    @GetMapping
+    public ResponseEntity<WalletResponse> getWallet(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.ok(walletBalanceService.getBalances(userPrincipal.getId()));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.WebTruyen.dto.projection;
+
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Just the columns needed to decide whether a chapter may be read, no LOBs
+@Getter
+@AllArgsConstructor
+public class ChapterAccessInfo {
+    private Long chapterId;
+    private Long storyId;
+    private ChapterStatus status;
+    private boolean free;
+    private Long priceCoin;
+    private LocalDateTime lastUpdateAt;
+    private StoryStatus storyStatus;
+    private StoryVisibility storyVisibility;
+
+    /**
+     * A chapter is readable when it is published and belongs to a published story that is not
+     * private. Unlisted stories stay readable by direct link, as on the TOC.
+     */
+    public boolean isReadable() {
+        return status == ChapterStatus.published
+                && storyStatus == StoryStatus.published
+                && storyVisibility != StoryVisibility.private_;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.WebTruyen.dto.projection;
+
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// One volume/chapter pair of a story TOC; chapter fields are null for an empty volume
+@Getter
+@AllArgsConstructor
+public class TocRow {
+    private Long volumeId;
+    private String volumeTitle;
+    private Integer volumeSequenceIndex;
+    private Long chapterId;
+    private String chapterTitle;
+    private Integer chapterSequenceIndex;
+    private Boolean free;
+    private Long priceCoin;
+    private ChapterStatus status;
+}
@@ -0,0 +1,12 @@
+package com.example.WebTruyen.dto.request;
+
+public class CommentVisibilityRequest {
+    private boolean hidden;
+    private String reason;
+
+    // Getter Setter
+    public boolean isHidden() { return hidden; }
+    public void setHidden(boolean hidden) { this.hidden = hidden; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
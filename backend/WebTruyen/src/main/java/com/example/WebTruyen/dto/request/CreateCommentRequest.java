@@ -0,0 +1,12 @@
+package com.example.WebTruyen.dto.request;
+
+public class CreateCommentRequest {
+    private String content;
+    private Long parentCommentId;
+
+    // Getter Setter
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public Long getParentCommentId() { return parentCommentId; }
+    public void setParentCommentId(Long parentCommentId) { this.parentCommentId = parentCommentId; }
+}
@@ -0,0 +1,9 @@
+package com.example.WebTruyen.dto.request;
+
+public class CreatePaymentOrderRequest {
+    private Long amountVnd;
+
+    // Getter Setter
+    public Long getAmountVnd() { return amountVnd; }
+    public void setAmountVnd(Long amountVnd) { this.amountVnd = amountVnd; }
+}
@@ -0,0 +1,20 @@
+package com.example.WebTruyen.dto.request;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+
+public class DonationRequest {
+    private Long toUserId;
+    private CoinType coin;
+    private Long amount;
+    private String idempotencyKey;
+
+    // Getter Setter
+    public Long getToUserId() { return toUserId; }
+    public void setToUserId(Long toUserId) { this.toUserId = toUserId; }
+    public CoinType getCoin() { return coin; }
+    public void setCoin(CoinType coin) { this.coin = coin; }
+    public Long getAmount() { return amount; }
+    public void setAmount(Long amount) { this.amount = amount; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
@@ -0,0 +1,21 @@
+package com.example.WebTruyen.dto.request;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+
+public class PaymentCallbackRequest {
+    private String orderCode;
+    private PaymentOrderStatus status;
+    private Long amountVnd;
+    // hex HMAC-SHA256 of "orderCode|status|amountVnd" with the gateway secret
+    private String signature;
+
+    // Getter Setter
+    public String getOrderCode() { return orderCode; }
+    public void setOrderCode(String orderCode) { this.orderCode = orderCode; }
+    public PaymentOrderStatus getStatus() { return status; }
+    public void setStatus(PaymentOrderStatus status) { this.status = status; }
+    public Long getAmountVnd() { return amountVnd; }
+    public void setAmountVnd(Long amountVnd) { this.amountVnd = amountVnd; }
+    public String getSignature() { return signature; }
+    public void setSignature(String signature) { this.signature = signature; }
+}
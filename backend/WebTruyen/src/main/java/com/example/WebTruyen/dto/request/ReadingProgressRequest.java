@@ -0,0 +1,17 @@
+package com.example.WebTruyen.dto.request;
+
+import java.math.BigDecimal;
+
+public class ReadingProgressRequest {
+    private Long chapterId;
+    private Integer segmentSeq;
+    private BigDecimal positionPercent;
+
+    // Getter Setter
+    public Long getChapterId() { return chapterId; }
+    public void setChapterId(Long chapterId) { this.chapterId = chapterId; }
+    public Integer getSegmentSeq() { return segmentSeq; }
+    public void setSegmentSeq(Integer segmentSeq) { this.segmentSeq = segmentSeq; }
+    public BigDecimal getPositionPercent() { return positionPercent; }
+    public void setPositionPercent(BigDecimal positionPercent) { this.positionPercent = positionPercent; }
+}
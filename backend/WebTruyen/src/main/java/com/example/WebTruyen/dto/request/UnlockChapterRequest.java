@@ -0,0 +1,14 @@
+package com.example.WebTruyen.dto.request;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+
+public class UnlockChapterRequest {
+    private CoinType coin;
+    private String idempotencyKey;
+
+    // Getter Setter
+    public CoinType getCoin() { return coin; }
+    public void setCoin(CoinType coin) { this.coin = coin; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
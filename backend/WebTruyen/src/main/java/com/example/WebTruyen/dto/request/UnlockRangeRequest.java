@@ -0,0 +1,24 @@
+package com.example.WebTruyen.dto.request;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+
+public class UnlockRangeRequest {
+    // Either a whole volume, or an inclusive range of chapters in reading order
+    private Long volumeId;
+    private Long fromChapterId;
+    private Long toChapterId;
+    private CoinType coin;
+    private String idempotencyKey;
+
+    // Getter Setter
+    public Long getVolumeId() { return volumeId; }
+    public void setVolumeId(Long volumeId) { this.volumeId = volumeId; }
+    public Long getFromChapterId() { return fromChapterId; }
+    public void setFromChapterId(Long fromChapterId) { this.fromChapterId = fromChapterId; }
+    public Long getToChapterId() { return toChapterId; }
+    public void setToChapterId(Long toChapterId) { this.toChapterId = toChapterId; }
+    public CoinType getCoin() { return coin; }
+    public void setCoin(CoinType coin) { this.coin = coin; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
@@ -0,0 +1,16 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ChapterTocResponse {
+    private Long id;
+    private String title;
+    private Integer sequenceIndex;
+    private boolean free;
+    private Long priceCoin;
+    private ChapterStatus status;
+}
@@ -0,0 +1,17 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class CommentCreatedResponse {
+    private Long id;
+    private Long chapterId;
+    private Long parentCommentId;
+    private Long rootCommentId;
+    private int depth;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,16 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CommentPageResponse {
+    // root comments, newest first, each with its first replies; or, for a replies page, the
+    // replies oldest first, nested under a parent on the same page
+    private List<CommentResponse> items;
+    // null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,27 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentResponse {
+    private Long id;
+    private Long parentId;
+    private Long userId;
+    private String username;
+    private String displayName;
+    private String avatarUrl;
+    private String content;
+    private int depth;
+    private LocalDateTime createdAt;
+    private List<CommentResponse> replies = new ArrayList<>();
+    // set on a root whose thread has more replies than were included; pass it to the replies endpoint
+    private String moreRepliesCursor;
+}
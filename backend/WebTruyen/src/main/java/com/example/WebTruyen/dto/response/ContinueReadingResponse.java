@@ -0,0 +1,28 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One story of the reader's library with where they stopped; the chapter fields are null for
+ * stories not started yet, in which case the next chapter is the story's first one.
+ */
+@Data
+@AllArgsConstructor
+public class ContinueReadingResponse {
+    private Long storyId;
+    private String storyTitle;
+    private String coverUrl;
+    private boolean favorite;
+    private LocalDateTime addedAt;
+    private Long chapterId;
+    private String chapterTitle;
+    private Integer segmentSeq;
+    private BigDecimal positionPercent;
+    private LocalDateTime lastReadAt;
+    private Long nextChapterId;
+    private String nextChapterTitle;
+}
@@ -0,0 +1,16 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DonationResponse {
+    private Long donationId;
+    private Long toUserId;
+    private CoinType coin;
+    private long amount;
+    // donor's balance after the donation
+    private long balanceAfter;
+}
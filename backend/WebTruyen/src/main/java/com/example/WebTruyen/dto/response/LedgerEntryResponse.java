@@ -0,0 +1,21 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class LedgerEntryResponse {
+    private Long id;
+    private CoinType coin;
+    private long delta;
+    private Long balanceAfter;
+    private LedgerReason reason;
+    private String refType;
+    private Long refId;
+    private LocalDateTime createdAt;
+}
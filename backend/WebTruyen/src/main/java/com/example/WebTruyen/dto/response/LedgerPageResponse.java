@@ -0,0 +1,14 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LedgerPageResponse {
+    private List<LedgerEntryResponse> items;
+    // null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,14 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PaymentOrderResponse {
+    private String orderCode;
+    private Long amountVnd;
+    private Long coinBAmount;
+    private PaymentOrderStatus status;
+}
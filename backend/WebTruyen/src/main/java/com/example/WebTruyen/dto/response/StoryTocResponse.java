@@ -0,0 +1,15 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class StoryTocResponse {
+    private Long storyId;
+    private List<VolumeTocResponse> volumes;
+    // Paid chapters the current reader owns; null for anonymous requests
+    private List<Long> unlockedChapterIds;
+}
@@ -0,0 +1,16 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UnlockChapterResponse {
+    private Long chapterId;
+    // true when the chapter was owned before this request (including idempotent retries)
+    private boolean alreadyOwned;
+    private CoinType coin;
+    private long coinCost;
+    private Long balanceAfter;
+}
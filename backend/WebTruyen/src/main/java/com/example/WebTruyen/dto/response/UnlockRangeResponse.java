@@ -0,0 +1,19 @@
+package com.example.WebTruyen.dto.response;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UnlockRangeResponse {
+    private Long storyId;
+    private List<Long> unlockedChapterIds;
+    // Chapters in the range that were free or already owned
+    private int skipped;
+    private CoinType coin;
+    private long coinCost;
+    private Long balanceAfter;
+}
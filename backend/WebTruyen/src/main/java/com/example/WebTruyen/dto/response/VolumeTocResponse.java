@@ -0,0 +1,15 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class VolumeTocResponse {
+    private Long id;
+    private String title;
+    private Integer sequenceIndex;
+    private List<ChapterTocResponse> chapters;
+}
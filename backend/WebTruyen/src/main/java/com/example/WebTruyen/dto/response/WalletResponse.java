@@ -0,0 +1,12 @@
+package com.example.WebTruyen.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class WalletResponse {
+    private long balanceCoinA;
+    private long balanceCoinB;
+    private long reservedCoinB;
+}
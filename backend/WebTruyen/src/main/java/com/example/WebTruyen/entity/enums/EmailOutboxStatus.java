@@ -0,0 +1,3 @@
+package com.example.WebTruyen.entity.enums;
+
+public enum EmailOutboxStatus {PENDING, SENDING, SENT, FAILED}
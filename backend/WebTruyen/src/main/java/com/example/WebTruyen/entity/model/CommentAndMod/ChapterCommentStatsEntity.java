@@ -0,0 +1,28 @@
+package com.example.WebTruyen.entity.model.CommentAndMod;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of visible comments per chapter, maintained in batches by CommentCounterService
+ * instead of counting comments on every listing.
+ */
+@Entity
+@Table(name = "chapter_comment_stats")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class ChapterCommentStatsEntity {
+
+    @Id
+    @Column(name = "chapter_id")
+    private Long chapterId;
+
+    @Column(name = "visible_count", nullable = false)
+    private Long visibleCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -10,7 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments",
+        indexes = {
+                @Index(name = "ix_comments_chapter_time", columnList = "chapter_id,created_at,id"),
+                @Index(name = "ix_comments_root", columnList = "root_comment_id,created_at,id")
+        }
+)
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
@@ -53,6 +58,11 @@ public class CommentEntity {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // visible replies in the thread, kept only on root comments
+    @Column(name = "reply_count", nullable = false)
+    @Builder.Default
+    private Integer replyCount = 0;
+
     // 1-N self: children (không bắt buộc, nhưng tiện dùng)
     @OneToMany(mappedBy = "parentComment", fetch = FetchType.LAZY)
     @Builder.Default
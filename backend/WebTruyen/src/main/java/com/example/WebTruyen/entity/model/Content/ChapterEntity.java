@@ -1,6 +1,8 @@
 package com.example.WebTruyen.entity.model.Content;
 
 import com.example.WebTruyen.entity.enums.*;
+import com.example.WebTruyen.service.ChapterCacheInvalidationListener;
+import com.example.WebTruyen.service.TocCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -10,11 +12,13 @@ import java.util.*;
 @Table(name = "chapters",
         indexes = {
                 @Index(name = "ix_chapters_volume", columnList = "volume_id"),
+                @Index(name = "ix_chapters_volume_seq", columnList = "volume_id,sequence_index"),
         }
 )
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@EntityListeners({ChapterCacheInvalidationListener.class, TocCacheInvalidationListener.class})
 public class ChapterEntity {
 
     @Id
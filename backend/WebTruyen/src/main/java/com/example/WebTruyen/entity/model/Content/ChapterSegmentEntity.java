@@ -1,6 +1,7 @@
 package com.example.WebTruyen.entity.model.Content;
 
 
+import com.example.WebTruyen.service.ChapterCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -17,6 +18,7 @@ import java.time.LocalDateTime;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@EntityListeners(ChapterCacheInvalidationListener.class)
 public class ChapterSegmentEntity {
 
     @Id
@@ -4,6 +4,7 @@ package com.example.WebTruyen.entity.model.Content;
 import com.example.WebTruyen.entity.enums.StoryStatus;
 import com.example.WebTruyen.entity.enums.StoryVisibility;
 import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.service.TocCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -18,6 +19,7 @@ import java.util.*;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@EntityListeners(TocCacheInvalidationListener.class)
 public class StoryEntity {
 
     @Id
@@ -1,6 +1,7 @@
 package com.example.WebTruyen.entity.model.Content;
 
 
+import com.example.WebTruyen.service.TocCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -9,12 +10,14 @@ import java.util.*;
 @Entity
 @Table(name = "volumes",
         indexes = {
-                @Index(name = "ix_volumes_story", columnList = "story_id")
+                @Index(name = "ix_volumes_story", columnList = "story_id"),
+                @Index(name = "ix_volumes_story_seq", columnList = "story_id,sequence_index")
         }
 )
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@EntityListeners(TocCacheInvalidationListener.class)
 public class VolumeEntity {
 
     @Id
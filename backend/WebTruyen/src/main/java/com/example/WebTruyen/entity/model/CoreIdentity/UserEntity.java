@@ -3,6 +3,7 @@ package com.example.WebTruyen.entity.model.CoreIdentity;
 import com.example.WebTruyen.entity.model.Content.StoryEntity;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -17,6 +18,7 @@ import java.util.*;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@DynamicUpdate
 public class UserEntity {
 
     @Id
@@ -0,0 +1,54 @@
+package com.example.WebTruyen.entity.model.Notification;
+
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox",
+        indexes = {
+                @Index(name = "ix_email_outbox_status_next", columnList = "status,next_attempt_at")
+        }
+)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class EmailOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "to_email", nullable = false, length = 320)
+    private String toEmail;
+
+    @Column(name = "from_address", length = 320)
+    private String fromAddress;
+
+    @Column(nullable = false, length = 500)
+    private String subject;
+
+    @Lob
+    @Column(nullable = false)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailOutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 @Table(name = "donations",
         indexes = {
                 @Index(name = "ix_donations_from_user", columnList = "from_user_id"),
-                @Index(name = "ix_donations_to_user", columnList = "to_user_id")
+                @Index(name = "ix_donations_to_user", columnList = "to_user_id"),
+                @Index(name = "ix_donations_credited", columnList = "credited_at,id")
         }
 )
 @Getter @Setter
@@ -44,4 +45,8 @@ public class DonationEntity {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    // set once the amount reached the recipient's wallet through a DONATION_BATCH ledger entry
+    @Column(name = "credited_at")
+    private LocalDateTime creditedAt;
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.WebTruyen.entity.model.Payment;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Balance of one coin right after ledger entry {@code ledgerEntryId}. Entries up to that id
+ * may have been moved to ledger_entries_archive.
+ */
+@Entity
+@Table(name = "ledger_checkpoints",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uq_ledger_checkpoint_user_coin", columnNames = {"user_id","coin"})
+        }
+)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class LedgerCheckpointEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_ledger_checkpoint_user"))
+    private UserEntity user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CoinType coin;
+
+    @Column(name = "ledger_entry_id", nullable = false)
+    private Long ledgerEntryId;
+
+    @Column(nullable = false)
+    private Long balance;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
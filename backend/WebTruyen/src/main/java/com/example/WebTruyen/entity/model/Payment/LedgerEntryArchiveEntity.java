@@ -0,0 +1,59 @@
+package com.example.WebTruyen.entity.model.Payment;
+
+
+import com.example.WebTruyen.entity.enums.*;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entries moved out of ledger_entries by compaction. Rows keep their original id and
+ * the live table's unique keys, which new ledger entries are checked against.
+ */
+@Entity
+@Table(name = "ledger_entries_archive",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uq_ledger_archive_ref_reason", columnNames = {"ref_type","ref_id","reason"}),
+                @UniqueConstraint(name = "uq_ledger_archive_idempotency", columnNames = {"idempotency_key"})
+        },
+        indexes = {
+                @Index(name = "ix_ledger_archive_user_time", columnList = "user_id,created_at")
+        }
+)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class LedgerEntryArchiveEntity {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CoinType coin;
+
+    @Column(nullable = false)
+    private Long delta;
+
+    @Column(name = "balance_after")
+    private Long balanceAfter;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LedgerReason reason;
+
+    @Column(name = "ref_type", nullable = false, length = 30)
+    private String refType;
+
+    @Column(name = "ref_id", nullable = false)
+    private Long refId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,48 @@
+package com.example.WebTruyen.entity.model.Payment;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Inbox of verified gateway callbacks. A row is written before the gateway gets its 2xx and
+ * stays unprocessed until the order it names has been settled, so a restart loses nothing.
+ */
+@Entity
+@Table(name = "payment_callbacks",
+        indexes = {
+                @Index(name = "ix_payment_callbacks_pending", columnList = "processed_at,id")
+        }
+)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class PaymentCallbackEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_code", nullable = false, length = 60)
+    private String orderCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentOrderStatus status;
+
+    @Column(name = "amount_vnd", nullable = false)
+    private Long amountVnd;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
         uniqueConstraints = {
                 @UniqueConstraint(name = "uq_payment_orders_order_code", columnNames = "order_code")
         },
-        indexes = { @Index(name = "ix_payment_orders_user", columnList = "user_id") }
+        indexes = {
+                @Index(name = "ix_payment_orders_user", columnList = "user_id"),
+                @Index(name = "ix_payment_orders_status_created", columnList = "status,created_at")
+        }
 )
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
@@ -3,6 +3,7 @@ package com.example.WebTruyen.entity.model.SocialLibrary;
 
 import com.example.WebTruyen.entity.model.Content.StoryEntity;
 import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.service.ShelfCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -16,6 +17,7 @@ import java.time.LocalDateTime;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
+@EntityListeners(ShelfCacheInvalidationListener.class)
 public class LibraryEntryEntity {
 
     @Id
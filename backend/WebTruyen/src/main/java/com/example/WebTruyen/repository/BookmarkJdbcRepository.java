@@ -0,0 +1,79 @@
+package com.example.WebTruyen.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class BookmarkJdbcRepository {
+
+    public record Progress(long userId, long chapterId, int segmentSeq, BigDecimal positionPercent,
+                           LocalDateTime readAt) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Writes reading positions as three JDBC batches. The upsert resolves the segment from its
+     * seq and lands on uq_bookmarks_user_chapter_segment; is_favorite is only set for new rows
+     * and created_at is moved to the read time, so it doubles as "last read at". A favorite the
+     * reader saved on that segment is left exactly as it was; the reader's progress row in the
+     * chapter takes the new percent and read time instead, keeping its own segment since the
+     * unique key leaves no room for a second row on the favorite's. The delete then drops the
+     * reader's older non-favorite position rows in the same chapter, but only once a progress
+     * row sits on the reported segment, leaving one progress row per chapter. A seq that does
+     * not exist writes nothing.
+     */
+    public void batchUpsertProgress(List<Progress> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> upserts = new ArrayList<>(positions.size());
+        List<Object[]> onFavorites = new ArrayList<>(positions.size());
+        List<Object[]> deletes = new ArrayList<>(positions.size());
+        for (Progress progress : positions) {
+            upserts.add(new Object[]{
+                    progress.userId(), progress.chapterId(), progress.positionPercent(),
+                    Timestamp.valueOf(progress.readAt()), progress.chapterId(), progress.segmentSeq()
+            });
+            onFavorites.add(new Object[]{
+                    progress.chapterId(), progress.segmentSeq(), progress.positionPercent(),
+                    Timestamp.valueOf(progress.readAt()), progress.userId(), progress.chapterId()
+            });
+            deletes.add(new Object[]{
+                    progress.chapterId(), progress.segmentSeq(), progress.userId(), progress.chapterId()
+            });
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO bookmarks (user_id, chapter_id, segment_id, position_percent, created_at, is_favorite) " +
+                        "SELECT ?, ?, s.id, ?, ?, FALSE FROM chapter_segments s WHERE s.chapter_id = ? AND s.seq = ? " +
+                        "ON DUPLICATE KEY UPDATE " +
+                        "position_percent = IF(is_favorite, position_percent, VALUES(position_percent)), " +
+                        "created_at = IF(is_favorite, created_at, VALUES(created_at))",
+                upserts);
+        jdbcTemplate.batchUpdate(
+                "UPDATE bookmarks b " +
+                        "JOIN chapter_segments s ON s.chapter_id = ? AND s.seq = ? " +
+                        "JOIN bookmarks f ON f.user_id = b.user_id AND f.chapter_id = b.chapter_id " +
+                        "AND f.segment_id = s.id AND f.is_favorite = TRUE " +
+                        "SET b.position_percent = ?, b.created_at = ? " +
+                        "WHERE b.user_id = ? AND b.chapter_id = ? AND b.is_favorite = FALSE",
+                onFavorites);
+        jdbcTemplate.batchUpdate(
+                "DELETE b FROM bookmarks b " +
+                        "JOIN chapter_segments s ON s.chapter_id = ? AND s.seq = ? " +
+                        "JOIN bookmarks p ON p.user_id = b.user_id AND p.chapter_id = b.chapter_id " +
+                        "AND p.segment_id = s.id AND p.is_favorite = FALSE " +
+                        "WHERE b.user_id = ? AND b.chapter_id = ? AND b.is_favorite = FALSE AND b.segment_id <> s.id",
+                deletes);
+    }
+}
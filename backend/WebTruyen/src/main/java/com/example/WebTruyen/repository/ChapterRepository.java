@@ -0,0 +1,17 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.entity.model.Content.ChapterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ChapterRepository extends JpaRepository<ChapterEntity, Long> {
+
+    @Query("select new com.example.WebTruyen.dto.projection.ChapterAccessInfo(" +
+            "c.id, s.id, c.status, c.free, c.priceCoin, c.lastUpdateAt, s.status, s.visibility) " +
+            "from ChapterEntity c join c.volume v join v.story s where c.id = :chapterId")
+    Optional<ChapterAccessInfo> findAccessInfo(@Param("chapterId") Long chapterId);
+}
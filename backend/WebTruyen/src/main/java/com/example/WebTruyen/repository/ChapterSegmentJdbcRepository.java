@@ -0,0 +1,49 @@
+package com.example.WebTruyen.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@Repository
+public class ChapterSegmentJdbcRepository {
+
+    // MySQL Connector/J only streams rows one by one with this fetch size on a forward-only cursor
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @FunctionalInterface
+    public interface SegmentHandler {
+        void onSegment(int seq, Reader text) throws IOException;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Walks the segments of a chapter in seq order straight off the cursor
+     * (ix_chapter_segments_chapter_seq), handing each text to the handler as a Reader.
+     */
+    public void streamSegments(Long chapterId, int fromSeq, SegmentHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT seq, segment_text FROM chapter_segments WHERE chapter_id = ? AND seq >= ? ORDER BY seq",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+            ps.setLong(1, chapterId);
+            ps.setInt(2, fromSeq);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            try (Reader text = rs.getCharacterStream("segment_text")) {
+                handler.onSegment(rs.getInt("seq"), text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class ChapterUnlockJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO chapter_unlocks (user_id, chapter_id, paid_coin, coin_cost, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the unlock and returns its id; fails with a DuplicateKeyException on
+     * uq_chapter_unlock_user_chapter when the reader already owns the chapter.
+     */
+    public long insert(Long userId, Long chapterId, CoinType coin, long coinCost, LocalDateTime now) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, userId);
+            ps.setLong(2, chapterId);
+            ps.setString(3, coin.name());
+            ps.setLong(4, coinCost);
+            ps.setTimestamp(5, Timestamp.valueOf(now));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    public void batchInsert(Long userId, Map<Long, Long> costByChapter, CoinType coin, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(costByChapter.size());
+        costByChapter.forEach((chapterId, cost) -> args.add(new Object[]{userId, chapterId, coin.name(), cost, createdAt}));
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    /**
+     * Unlock ids of the given chapters for the user, keyed by chapter id.
+     */
+    public Map<Long, Long> findIdsByChapter(Long userId, Collection<Long> chapterIds) {
+        Map<Long, Long> ids = new HashMap<>();
+        if (chapterIds.isEmpty()) {
+            return ids;
+        }
+        String placeholders = String.join(",", Collections.nCopies(chapterIds.size(), "?"));
+        List<Object> args = new ArrayList<>(chapterIds.size() + 1);
+        args.add(userId);
+        args.addAll(chapterIds);
+        jdbcTemplate.query(
+                "SELECT id, chapter_id FROM chapter_unlocks WHERE user_id = ? AND chapter_id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> ids.put(rs.getLong("chapter_id"), rs.getLong("id")),
+                args.toArray());
+        return ids;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.model.Payment.ChapterUnlockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ChapterUnlockRepository extends JpaRepository<ChapterUnlockEntity, Long> {
+    boolean existsByUser_IdAndChapter_Id(Long userId, Long chapterId);
+
+    @Query("select cu.chapter.id from ChapterUnlockEntity cu " +
+            "join cu.chapter c join c.volume v " +
+            "where cu.user.id = :userId and v.story.id = :storyId")
+    List<Long> findUnlockedChapterIds(@Param("userId") Long userId, @Param("storyId") Long storyId);
+}
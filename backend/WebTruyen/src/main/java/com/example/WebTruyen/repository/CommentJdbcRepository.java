@@ -0,0 +1,194 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.dto.response.CommentResponse;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class CommentJdbcRepository {
+
+    /**
+     * Where a comment sits in its thread; {@code rootCommentId} is null for root comments.
+     */
+    public record ThreadRef(long id, long chapterId, Long rootCommentId, int depth, boolean hidden) {
+    }
+
+    /**
+     * A reply together with the root of its thread.
+     */
+    public record ThreadReply(long rootCommentId, CommentResponse comment) {
+    }
+
+    public record ThreadNode(long id, Long parentCommentId, boolean hidden) {
+    }
+
+    public record NewComment(long userId, long chapterId, Long parentCommentId, Long rootCommentId,
+                             String content, int depth, LocalDateTime createdAt) {
+    }
+
+    private static final String COMMENT_SELECT =
+            "SELECT c.id, c.parent_comment_id, c.user_id, u.username, u.display_name, u.avatar_url, " +
+                    "c.content, c.depth, c.created_at " +
+                    "FROM comments c JOIN users u ON u.id = c.user_id ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Visible root comments of a chapter, newest first, seeking past the cursor on
+     * ix_comments_chapter_time.
+     */
+    public List<CommentResponse> findRootPage(Long chapterId, KeysetCursor after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COMMENT_SELECT)
+                .append("WHERE c.chapter_id = ? AND c.parent_comment_id IS NULL AND c.is_hidden = FALSE");
+        args.add(chapterId);
+        if (after != null) {
+            sql.append(" AND (c.created_at < ? OR (c.created_at = ? AND c.id < ?))");
+            Timestamp createdAt = Timestamp.valueOf(after.createdAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapComment(rs), args.toArray());
+    }
+
+    /**
+     * The first {@code perRoot} visible replies of each given root, oldest first. Each root
+     * reads at most {@code perRoot} entries off ix_comments_root through a LATERAL LIMIT, so
+     * one thread with thousands of replies costs no more than a page of it.
+     */
+    public List<ThreadReply> findFirstReplies(Collection<Long> rootIds, int perRoot) {
+        if (rootIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(rootIds.size() + 1);
+        args.add(perRoot);
+        args.addAll(rootIds);
+        return jdbcTemplate.query(
+                "SELECT c.id, c.root_comment_id, c.parent_comment_id, c.user_id, u.username, u.display_name, " +
+                        "u.avatar_url, c.content, c.depth, c.created_at " +
+                        "FROM comments r JOIN LATERAL (" +
+                        "SELECT id, root_comment_id, parent_comment_id, user_id, content, depth, created_at " +
+                        "FROM comments WHERE root_comment_id = r.id AND is_hidden = FALSE " +
+                        "ORDER BY created_at, id LIMIT ?) c ON TRUE " +
+                        "JOIN users u ON u.id = c.user_id " +
+                        "WHERE r.id IN (" + String.join(",", Collections.nCopies(rootIds.size(), "?")) + ") " +
+                        "ORDER BY c.created_at, c.id",
+                (rs, rowNum) -> new ThreadReply(rs.getLong("root_comment_id"), mapComment(rs)),
+                args.toArray());
+    }
+
+    /**
+     * Visible replies of one thread, oldest first, seeking past the cursor on ix_comments_root.
+     */
+    public List<CommentResponse> findReplyPage(Long rootCommentId, KeysetCursor after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COMMENT_SELECT)
+                .append("WHERE c.root_comment_id = ? AND c.is_hidden = FALSE");
+        args.add(rootCommentId);
+        if (after != null) {
+            sql.append(" AND (c.created_at > ? OR (c.created_at = ? AND c.id > ?))");
+            Timestamp createdAt = Timestamp.valueOf(after.createdAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY c.created_at, c.id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapComment(rs), args.toArray());
+    }
+
+    public List<ThreadNode> findThreadNodes(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT id, parent_comment_id, is_hidden FROM comments WHERE id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                (rs, rowNum) -> new ThreadNode(rs.getLong("id"), rs.getObject("parent_comment_id", Long.class),
+                        rs.getBoolean("is_hidden")),
+                ids.toArray());
+    }
+
+    /**
+     * Inserts the comments as one JDBC batch (a single multi-row statement with
+     * rewriteBatchedStatements) and returns their generated ids in input order.
+     */
+    public long[] batchInsert(List<NewComment> comments) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO comments (user_id, chapter_id, parent_comment_id, root_comment_id, content, depth, " +
+                            "is_hidden, reply_count, created_at) VALUES (?, ?, ?, ?, ?, ?, FALSE, 0, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (NewComment comment : comments) {
+                    ps.setLong(1, comment.userId());
+                    ps.setLong(2, comment.chapterId());
+                    ps.setObject(3, comment.parentCommentId());
+                    ps.setObject(4, comment.rootCommentId());
+                    ps.setString(5, comment.content());
+                    ps.setInt(6, comment.depth());
+                    ps.setTimestamp(7, Timestamp.valueOf(comment.createdAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                long[] ids = new long[comments.size()];
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length && keys.next(); i++) {
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    public Optional<ThreadRef> findThreadRef(Long commentId) {
+        List<ThreadRef> rows = jdbcTemplate.query(
+                "SELECT id, chapter_id, root_comment_id, depth, is_hidden FROM comments WHERE id = ?",
+                (rs, rowNum) -> new ThreadRef(rs.getLong("id"), rs.getLong("chapter_id"),
+                        rs.getObject("root_comment_id", Long.class), rs.getInt("depth"), rs.getBoolean("is_hidden")),
+                commentId);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Flips is_hidden only if it currently has the opposite value; returns whether it changed.
+     */
+    public boolean setHidden(Long commentId, boolean hidden) {
+        return jdbcTemplate.update("UPDATE comments SET is_hidden = ? WHERE id = ? AND is_hidden = ?",
+                hidden, commentId, !hidden) == 1;
+    }
+
+    private CommentResponse mapComment(ResultSet rs) throws SQLException {
+        CommentResponse comment = new CommentResponse();
+        comment.setId(rs.getLong("id"));
+        comment.setParentId(rs.getObject("parent_comment_id", Long.class));
+        comment.setUserId(rs.getLong("user_id"));
+        comment.setUsername(rs.getString("username"));
+        comment.setDisplayName(rs.getString("display_name"));
+        comment.setAvatarUrl(rs.getString("avatar_url"));
+        comment.setContent(rs.getString("content"));
+        comment.setDepth(rs.getInt("depth"));
+        comment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return comment;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.WebTruyen.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class CommentStatsJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void addChapterDeltas(Map<Long, Long> deltas, LocalDateTime now) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((chapterId, delta) -> args.add(new Object[]{chapterId, delta, updatedAt}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO chapter_comment_stats (chapter_id, visible_count, updated_at) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE visible_count = visible_count + VALUES(visible_count), " +
+                        "updated_at = VALUES(updated_at)",
+                args);
+    }
+
+    public void addReplyDeltas(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((rootId, delta) -> args.add(new Object[]{delta, rootId}));
+        jdbcTemplate.batchUpdate("UPDATE comments SET reply_count = reply_count + ? WHERE id = ?", args);
+    }
+
+    public Map<Long, Long> findChapterCounts(Collection<Long> chapterIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (chapterIds.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query(
+                "SELECT chapter_id, visible_count FROM chapter_comment_stats WHERE chapter_id IN (" +
+                        placeholders(chapterIds.size()) + ")",
+                (RowCallbackHandler) rs -> counts.put(rs.getLong("chapter_id"), rs.getLong("visible_count")),
+                chapterIds.toArray());
+        return counts;
+    }
+
+    public long maxCommentedChapterId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(chapter_id) FROM comments", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Recounts the visible comments of chapters in [fromId, toId] and overwrites the stored
+     * counts that differ, creating missing stats rows, in statements that each recount and
+     * write together. Chapters in {@code skip} are left alone. Returns the number of repaired
+     * chapters.
+     */
+    public int repairChapterCounts(long fromId, long toId, Collection<Long> skip, LocalDateTime now) {
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        List<Object> updateArgs = new ArrayList<>(List.of(fromId, toId, updatedAt, fromId, toId));
+        updateArgs.addAll(skip);
+        int updated = jdbcTemplate.update(
+                "UPDATE chapter_comment_stats s LEFT JOIN (" +
+                        "SELECT chapter_id, COUNT(*) AS actual FROM comments " +
+                        "WHERE chapter_id BETWEEN ? AND ? AND is_hidden = FALSE GROUP BY chapter_id) a " +
+                        "ON a.chapter_id = s.chapter_id " +
+                        "SET s.visible_count = COALESCE(a.actual, 0), s.updated_at = ? " +
+                        "WHERE s.chapter_id BETWEEN ? AND ? AND s.visible_count <> COALESCE(a.actual, 0)" +
+                        notIn("s.chapter_id", skip),
+                updateArgs.toArray());
+
+        List<Object> insertArgs = new ArrayList<>(List.of(updatedAt, fromId, toId));
+        insertArgs.addAll(skip);
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO chapter_comment_stats (chapter_id, visible_count, updated_at) " +
+                        "SELECT c.chapter_id, COUNT(*), ? FROM comments c " +
+                        "WHERE c.chapter_id BETWEEN ? AND ? AND c.is_hidden = FALSE" + notIn("c.chapter_id", skip) +
+                        " AND NOT EXISTS (SELECT 1 FROM chapter_comment_stats s WHERE s.chapter_id = c.chapter_id) " +
+                        "GROUP BY c.chapter_id",
+                insertArgs.toArray());
+        return updated + inserted;
+    }
+
+    /**
+     * Recounts the visible replies of root comments in chapters [fromId, toId] and overwrites
+     * the reply counts that differ, in one statement. Chapters in {@code skip} are left alone.
+     * Returns the number of repaired root comments.
+     */
+    public int repairReplyCounts(long fromId, long toId, Collection<Long> skip) {
+        List<Object> args = new ArrayList<>(List.of(fromId, toId, fromId, toId));
+        args.addAll(skip);
+        // The grouped derived table is materialized first, so comments may be both read and updated
+        return jdbcTemplate.update(
+                "UPDATE comments r LEFT JOIN (" +
+                        "SELECT root_comment_id, COUNT(*) AS actual FROM comments " +
+                        "WHERE chapter_id BETWEEN ? AND ? AND root_comment_id IS NOT NULL AND is_hidden = FALSE " +
+                        "GROUP BY root_comment_id) a ON a.root_comment_id = r.id " +
+                        "SET r.reply_count = COALESCE(a.actual, 0) " +
+                        "WHERE r.chapter_id BETWEEN ? AND ? AND r.parent_comment_id IS NULL " +
+                        "AND r.reply_count <> COALESCE(a.actual, 0)" + notIn("r.chapter_id", skip),
+                args.toArray());
+    }
+
+    private String notIn(String column, Collection<Long> ids) {
+        return ids.isEmpty() ? "" : " AND " + column + " NOT IN (" + placeholders(ids.size()) + ")";
+    }
+
+    private String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
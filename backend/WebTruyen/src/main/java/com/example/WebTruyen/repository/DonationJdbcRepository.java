@@ -0,0 +1,125 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class DonationJdbcRepository {
+
+    public record PendingDonation(long id, long toUserId, CoinType coin, long amount) {
+    }
+
+    public record NewDonation(long fromUserId, long toUserId, CoinType coin, long amount, LocalDateTime createdAt) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the donations as one JDBC batch and returns their ids in the same order.
+     */
+    public long[] batchInsert(List<NewDonation> donations) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO donations (from_user_id, to_user_id, paid_coin, amount_coin, created_at) VALUES (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (NewDonation donation : donations) {
+                    ps.setLong(1, donation.fromUserId());
+                    ps.setLong(2, donation.toUserId());
+                    ps.setString(3, donation.coin().name());
+                    ps.setLong(4, donation.amount());
+                    ps.setTimestamp(5, Timestamp.valueOf(donation.createdAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                long[] ids = new long[donations.size()];
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length && keys.next(); i++) {
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    /**
+     * Donations whose amount has not reached the recipient yet, read through ix_donations_credited.
+     * Only donations debited through a DONATE ledger entry, live or archived, count: rows from
+     * before credited_at existed have a null credited_at too, but were never part of this pipeline.
+     */
+    public List<PendingDonation> findUncredited() {
+        return jdbcTemplate.query(
+                "SELECT d.id, d.to_user_id, d.paid_coin, d.amount_coin FROM donations d " +
+                        "WHERE d.credited_at IS NULL AND (EXISTS (" +
+                        "SELECT 1 FROM ledger_entries l WHERE l.ref_type = 'DONATION' AND l.ref_id = d.id " +
+                        "AND l.reason = 'DONATE') OR EXISTS (" +
+                        "SELECT 1 FROM ledger_entries_archive a WHERE a.ref_type = 'DONATION' AND a.ref_id = d.id " +
+                        "AND a.reason = 'DONATE')) ORDER BY d.id",
+                (rs, rowNum) -> mapPending(rs));
+    }
+
+    public List<PendingDonation> findUncreditedAmong(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT id, to_user_id, paid_coin, amount_coin FROM donations WHERE credited_at IS NULL AND id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id",
+                (rs, rowNum) -> mapPending(rs),
+                ids.toArray());
+    }
+
+    /**
+     * Like {@link #findUncreditedAmong}, but locks the rows until the transaction ends, so a
+     * concurrent flush of the same donations waits and then no longer sees them.
+     */
+    public List<PendingDonation> lockUncreditedAmong(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT id, to_user_id, paid_coin, amount_coin FROM donations WHERE credited_at IS NULL AND id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> mapPending(rs),
+                ids.toArray());
+    }
+
+    /**
+     * Marks the donations credited, skipping any already marked; returns how many were marked.
+     */
+    public int markCredited(List<Long> ids, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(Timestamp.valueOf(now));
+        args.addAll(ids);
+        return jdbcTemplate.update(
+                "UPDATE donations SET credited_at = ? WHERE credited_at IS NULL AND id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                args.toArray());
+    }
+
+    private static PendingDonation mapPending(ResultSet rs) throws SQLException {
+        return new PendingDonation(
+                rs.getLong("id"),
+                rs.getLong("to_user_id"),
+                CoinType.valueOf(rs.getString("paid_coin")),
+                rs.getLong("amount_coin"));
+    }
+}
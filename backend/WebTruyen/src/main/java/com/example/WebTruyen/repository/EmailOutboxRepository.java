@@ -0,0 +1,35 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import com.example.WebTruyen.entity.model.Notification.EmailOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxEntity, Long> {
+
+    /**
+     * Locks up to {@code limit} due mails, oldest first. A SENDING row is due again once its
+     * lease has run out, which recovers mails held by a worker that died mid-send. Rows locked
+     * by another worker are skipped. Must run inside a transaction.
+     */
+    @Query(value = "SELECT id FROM email_outbox WHERE status IN ('PENDING', 'SENDING') " +
+            "AND next_attempt_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Leases the mails to the caller and counts the attempt up front, so a mail whose sender
+     * keeps dying mid-send still runs out of attempts.
+     */
+    @Modifying
+    @Query("update EmailOutboxEntity m set m.status = com.example.WebTruyen.entity.enums.EmailOutboxStatus.SENDING, " +
+            "m.nextAttemptAt = :leaseUntil, m.attempts = m.attempts + 1 where m.id in :ids")
+    int markSending(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    long countByStatus(EmailOutboxStatus status);
+}
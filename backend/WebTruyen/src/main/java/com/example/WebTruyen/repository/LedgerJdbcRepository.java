@@ -0,0 +1,277 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.dto.response.LedgerEntryResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Repository
+public class LedgerJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ledger_entries (user_id, coin, delta, balance_after, reason, ref_type, ref_id, idempotency_key, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public record Entry(Long userId, CoinType coin, long delta, Long balanceAfter, LedgerReason reason,
+                        String refType, Long refId, String idempotencyKey, LocalDateTime createdAt) {
+    }
+
+    private static final String HISTORY_COLUMNS =
+            "SELECT id, coin, delta, balance_after, reason, ref_type, ref_id, created_at FROM ";
+    private static final String LIVE_TABLE = "ledger_entries";
+    private static final String ARCHIVE_TABLE = "ledger_entries_archive";
+
+    public record CompactionRow(long id, long userId, CoinType coin, Long balanceAfter, LocalDateTime createdAt) {
+    }
+
+    public record Checkpoint(long userId, CoinType coin, long ledgerEntryId, long balance) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Appends the entry. Fails with a DuplicateKeyException when its idempotency key or its
+     * (ref_type, ref_id, reason) was used before, whether that entry is live or archived.
+     * Must run inside a transaction.
+     */
+    public void insert(Entry entry) {
+        checkArchivedKeys(List.of(entry));
+        jdbcTemplate.update(INSERT_SQL, args(entry));
+    }
+
+    /**
+     * The ref_id of the entry written under this idempotency key, if any, live or archived.
+     */
+    public Optional<Long> findRefIdByIdempotencyKey(String idempotencyKey) {
+        return jdbcTemplate.queryForList(
+                "SELECT ref_id FROM ledger_entries WHERE idempotency_key = ? " +
+                        "UNION ALL SELECT ref_id FROM ledger_entries_archive WHERE idempotency_key = ?",
+                Long.class, idempotencyKey, idempotencyKey).stream().findFirst();
+    }
+
+    /**
+     * Appends the entries in one batch, see {@link #insert}.
+     */
+    public void batchInsert(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        checkArchivedKeys(entries);
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries.stream().map(this::args).toList());
+    }
+
+    /**
+     * The live table's unique keys only see live rows, so keys that compaction moved away are
+     * checked here. The reads take share locks on the archive's unique indexes: compaction
+     * cannot archive a matching live row until this transaction ends, and while that row is
+     * still live its own unique key refuses the insert.
+     */
+    private void checkArchivedKeys(List<Entry> entries) {
+        String keyPlaceholders = String.join(",", Collections.nCopies(entries.size(), "?"));
+        Integer archivedKeys = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ledger_entries_archive WHERE idempotency_key IN (" + keyPlaceholders + ") " +
+                        "FOR SHARE",
+                Integer.class, entries.stream().map(Entry::idempotencyKey).toArray());
+
+        String refPlaceholders = String.join(",", Collections.nCopies(entries.size(), "(?, ?, ?)"));
+        List<Object> refArgs = new ArrayList<>(entries.size() * 3);
+        for (Entry entry : entries) {
+            refArgs.add(entry.refType());
+            refArgs.add(entry.refId());
+            refArgs.add(entry.reason().name());
+        }
+        Integer archivedRefs = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ledger_entries_archive WHERE (ref_type, ref_id, reason) IN (" +
+                        refPlaceholders + ") FOR SHARE",
+                Integer.class, refArgs.toArray());
+
+        if ((archivedKeys != null && archivedKeys > 0) || (archivedRefs != null && archivedRefs > 0)) {
+            throw new DuplicateKeyException("Ledger entry key was already used by an archived entry");
+        }
+    }
+
+    /**
+     * Latest balance_after per coin, read newest-first along ix_ledger_user_time. Coins whose
+     * history was compacted away fall back to their checkpoint; coins with neither are absent.
+     */
+    public Map<CoinType, Long> latestBalances(Long userId) {
+        Map<CoinType, Long> balances = new EnumMap<>(CoinType.class);
+        for (CoinType coin : CoinType.values()) {
+            List<Long> latest = jdbcTemplate.queryForList(
+                    "SELECT balance_after FROM ledger_entries " +
+                            "WHERE user_id = ? AND coin = ? AND balance_after IS NOT NULL " +
+                            "ORDER BY created_at DESC, id DESC LIMIT 1",
+                    Long.class, userId, coin.name());
+            if (latest.isEmpty()) {
+                latest = jdbcTemplate.queryForList(
+                        "SELECT balance FROM ledger_checkpoints WHERE user_id = ? AND coin = ?",
+                        Long.class, userId, coin.name());
+            }
+            if (!latest.isEmpty()) {
+                balances.put(coin, latest.get(0));
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * One page of a user's history, live and archived, newest first. Each table seeks past the
+     * cursor on its (user_id, created_at) index (InnoDB appends the id to it) and contributes at
+     * most one page, so deep pages cost the same as the first.
+     */
+    public List<LedgerEntryResponse> findPage(Long userId, CoinType coin, LedgerReason reason,
+                                              KeysetCursor after, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = "(" + pageBranch(LIVE_TABLE, userId, coin, reason, after, limit, args) + ") UNION ALL (" +
+                pageBranch(ARCHIVE_TABLE, userId, coin, reason, after, limit, args) + ") " +
+                "ORDER BY created_at DESC, id DESC LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> mapHistoryRow(rs), args.toArray());
+    }
+
+    private String pageBranch(String table, Long userId, CoinType coin, LedgerReason reason,
+                              KeysetCursor after, int limit, List<Object> args) {
+        StringBuilder sql = new StringBuilder(HISTORY_COLUMNS).append(table)
+                .append(historyFilter(userId, coin, reason, args));
+        if (after != null) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            Timestamp createdAt = Timestamp.valueOf(after.createdAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return sql.toString();
+    }
+
+    /**
+     * Walks a user's whole history, live and archived, newest first straight off a forward-only
+     * streaming cursor, one row at a time. The server merges the two tables for one user; the
+     * application never holds more than the current row.
+     */
+    public void streamHistory(Long userId, CoinType coin, LedgerReason reason, Consumer<LedgerEntryResponse> handler) {
+        List<Object> args = new ArrayList<>();
+        String sql = HISTORY_COLUMNS + LIVE_TABLE + historyFilter(userId, coin, reason, args) +
+                " UNION ALL " +
+                HISTORY_COLUMNS + ARCHIVE_TABLE + historyFilter(userId, coin, reason, args) +
+                " ORDER BY created_at DESC, id DESC";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(ChapterSegmentJdbcRepository.STREAMING_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(mapHistoryRow(rs)));
+    }
+
+    private String historyFilter(Long userId, CoinType coin, LedgerReason reason, List<Object> args) {
+        StringBuilder where = new StringBuilder(" WHERE user_id = ?");
+        args.add(userId);
+        if (coin != null) {
+            where.append(" AND coin = ?");
+            args.add(coin.name());
+        }
+        if (reason != null) {
+            where.append(" AND reason = ?");
+            args.add(reason.name());
+        }
+        return where.toString();
+    }
+
+    private LedgerEntryResponse mapHistoryRow(ResultSet rs) throws SQLException {
+        return new LedgerEntryResponse(
+                rs.getLong("id"),
+                CoinType.valueOf(rs.getString("coin")),
+                rs.getLong("delta"),
+                rs.getObject("balance_after", Long.class),
+                LedgerReason.valueOf(rs.getString("reason")),
+                rs.getString("ref_type"),
+                rs.getLong("ref_id"),
+                rs.getTimestamp("created_at").toLocalDateTime());
+    }
+
+    /**
+     * Next slice of the ledger in id order, for compaction. Walks the primary key only.
+     */
+    public List<CompactionRow> findCompactionBatch(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, user_id, coin, balance_after, created_at FROM ledger_entries " +
+                        "WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new CompactionRow(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        CoinType.valueOf(rs.getString("coin")),
+                        rs.getObject("balance_after", Long.class),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                afterId, limit);
+    }
+
+    /**
+     * Moves a checkpoint forward; an older checkpoint never replaces a newer one, so a
+     * repeated compaction run is harmless.
+     */
+    public void upsertCheckpoints(List<Checkpoint> checkpoints, LocalDateTime now) {
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(now);
+        // balance is assigned before ledger_entry_id: MySQL evaluates the assignments left to right
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO ledger_checkpoints (user_id, coin, ledger_entry_id, balance, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                        "balance = IF(VALUES(ledger_entry_id) > ledger_entry_id, VALUES(balance), balance), " +
+                        "created_at = IF(VALUES(ledger_entry_id) > ledger_entry_id, VALUES(created_at), created_at), " +
+                        "ledger_entry_id = GREATEST(ledger_entry_id, VALUES(ledger_entry_id))",
+                checkpoints.stream().map(checkpoint -> new Object[]{
+                        checkpoint.userId(), checkpoint.coin().name(), checkpoint.ledgerEntryId(),
+                        checkpoint.balance(), createdAt
+                }).toList());
+    }
+
+    /**
+     * Copies the entries to ledger_entries_archive and deletes them from the live table.
+     * Must run inside a transaction.
+     */
+    public int archive(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update(
+                "INSERT INTO ledger_entries_archive " +
+                        "(id, user_id, coin, delta, balance_after, reason, ref_type, ref_id, idempotency_key, created_at) " +
+                        "SELECT id, user_id, coin, delta, balance_after, reason, ref_type, ref_id, idempotency_key, created_at " +
+                        "FROM ledger_entries WHERE id IN (" + placeholders + ")",
+                args);
+        return jdbcTemplate.update("DELETE FROM ledger_entries WHERE id IN (" + placeholders + ")", args);
+    }
+
+    private Object[] args(Entry entry) {
+        return new Object[]{
+                entry.userId(), entry.coin().name(), entry.delta(), entry.balanceAfter(), entry.reason().name(),
+                entry.refType(), entry.refId(), entry.idempotencyKey(), Timestamp.valueOf(entry.createdAt())
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.dto.response.ContinueReadingResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class LibraryJdbcRepository {
+
+    // lib: the user's library on uq_library_entries_user_story.
+    // latest: the user's most recent bookmark per story (ix_bookmarks_user), with its place in the TOC.
+    // nx: one LIMIT 1 probe per story along ix_volumes_story_seq and ix_chapters_volume_seq for the
+    // published chapter after that place, or the first one when the story was never opened, so the
+    // cost does not grow with the length of the stories.
+    private static final String CONTINUE_READING_SQL =
+            "WITH lib AS (" +
+                    " SELECT le.story_id, le.added_at, le.is_favorite FROM library_entries le WHERE le.user_id = ?" +
+                    "), latest AS (" +
+                    " SELECT v.story_id, b.chapter_id, c.title AS chapter_title, s.seq AS segment_seq," +
+                    " b.position_percent, b.created_at AS read_at," +
+                    " v.sequence_index AS volume_seq, c.sequence_index AS chapter_seq," +
+                    " ROW_NUMBER() OVER (PARTITION BY v.story_id ORDER BY b.created_at DESC, b.id DESC) AS rn" +
+                    " FROM bookmarks b" +
+                    " JOIN chapters c ON c.id = b.chapter_id" +
+                    " JOIN volumes v ON v.id = c.volume_id" +
+                    " JOIN chapter_segments s ON s.id = b.segment_id" +
+                    " WHERE b.user_id = ? AND v.story_id IN (SELECT story_id FROM lib)" +
+                    ") " +
+                    "SELECT lib.story_id, st.title AS story_title, st.cover_url, lib.is_favorite, lib.added_at," +
+                    " l.chapter_id, l.chapter_title, l.segment_seq, l.position_percent, l.read_at," +
+                    " nx.id AS next_chapter_id, nx.title AS next_chapter_title " +
+                    "FROM lib" +
+                    " JOIN stories st ON st.id = lib.story_id" +
+                    " LEFT JOIN latest l ON l.story_id = lib.story_id AND l.rn = 1" +
+                    " LEFT JOIN LATERAL (" +
+                    " SELECT c.id, c.title FROM volumes v JOIN chapters c ON c.volume_id = v.id" +
+                    " WHERE v.story_id = lib.story_id AND c.status = 'published'" +
+                    " AND (l.chapter_id IS NULL" +
+                    " OR v.sequence_index > l.volume_seq" +
+                    " OR (v.sequence_index = l.volume_seq AND (c.sequence_index > l.chapter_seq" +
+                    " OR (c.sequence_index = l.chapter_seq AND c.id > l.chapter_id))))" +
+                    " ORDER BY v.sequence_index, c.sequence_index, c.id LIMIT 1" +
+                    " ) nx ON TRUE " +
+                    "ORDER BY COALESCE(l.read_at, lib.added_at) DESC, lib.story_id DESC";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The whole continue-reading shelf of a user in one statement, most recently read first;
+     * stories never opened sort by when they were added.
+     */
+    public List<ContinueReadingResponse> findContinueReading(Long userId) {
+        return jdbcTemplate.query(CONTINUE_READING_SQL, (rs, rowNum) -> new ContinueReadingResponse(
+                rs.getLong("story_id"),
+                rs.getString("story_title"),
+                rs.getString("cover_url"),
+                rs.getBoolean("is_favorite"),
+                toLocalDateTime(rs, "added_at"),
+                rs.getObject("chapter_id", Long.class),
+                rs.getString("chapter_title"),
+                rs.getObject("segment_seq", Integer.class),
+                rs.getBigDecimal("position_percent"),
+                toLocalDateTime(rs, "read_at"),
+                rs.getObject("next_chapter_id", Long.class),
+                rs.getString("next_chapter_title")), userId, userId);
+    }
+
+    private static LocalDateTime toLocalDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
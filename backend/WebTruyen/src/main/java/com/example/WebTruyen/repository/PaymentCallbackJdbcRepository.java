@@ -0,0 +1,87 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The payment_callbacks inbox: callbacks are inserted on receipt and claimed one at a time
+ * for settlement.
+ */
+@Repository
+public class PaymentCallbackJdbcRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    public record InboxCallback(long id, String orderCode, PaymentOrderStatus status, long amountVnd) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insert(String orderCode, PaymentOrderStatus status, long amountVnd, LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO payment_callbacks (order_code, status, amount_vnd, attempts, received_at) " +
+                        "VALUES (?, ?, ?, 0, ?)",
+                orderCode, status.name(), amountVnd, Timestamp.valueOf(now));
+    }
+
+    /**
+     * Ids of unprocessed callbacks that have not used up their attempts, oldest first, along
+     * ix_payment_callbacks_pending.
+     */
+    public List<Long> findDue(int maxAttempts, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM payment_callbacks WHERE processed_at IS NULL AND attempts < ? ORDER BY id LIMIT ?",
+                Long.class, maxAttempts, limit);
+    }
+
+    /**
+     * Locks the callback if it is still unprocessed and no other node holds it. Must run
+     * inside the transaction that settles it.
+     */
+    public Optional<InboxCallback> claim(long id) {
+        List<InboxCallback> rows = jdbcTemplate.query(
+                "SELECT id, order_code, status, amount_vnd FROM payment_callbacks " +
+                        "WHERE id = ? AND processed_at IS NULL FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new InboxCallback(rs.getLong("id"), rs.getString("order_code"),
+                        PaymentOrderStatus.valueOf(rs.getString("status")), rs.getLong("amount_vnd")),
+                id);
+        return rows.stream().findFirst();
+    }
+
+    public void markProcessed(long id, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE payment_callbacks SET processed_at = ? WHERE id = ?", Timestamp.valueOf(now), id);
+    }
+
+    /**
+     * Leaves the callback unprocessed but out of {@link #findDue} for good, with the reason in
+     * last_error, so it waits for someone to look at it.
+     */
+    public void holdForReview(long id, int maxAttempts, String reason) {
+        String message = reason.substring(0, Math.min(reason.length(), MAX_ERROR_LENGTH));
+        jdbcTemplate.update(
+                "UPDATE payment_callbacks SET attempts = GREATEST(attempts, ?), last_error = ? " +
+                        "WHERE id = ? AND processed_at IS NULL",
+                maxAttempts, message, id);
+    }
+
+    /**
+     * Counts a failed settlement attempt and returns the attempts used so far.
+     */
+    public int recordFailure(long id, String error) {
+        String message = error == null ? null : error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH));
+        jdbcTemplate.update(
+                "UPDATE payment_callbacks SET attempts = attempts + 1, last_error = ? WHERE id = ? AND processed_at IS NULL",
+                message, id);
+        Integer attempts = jdbcTemplate.queryForObject("SELECT attempts FROM payment_callbacks WHERE id = ?",
+                Integer.class, id);
+        return attempts != null ? attempts : 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.WebTruyen.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Status transitions of payment orders as compare-and-set updates on uq_payment_orders_order_code:
+ * each returns whether this caller performed the transition, so replays are no-ops.
+ */
+@Repository
+public class PaymentOrderJdbcRepository {
+
+    public record Settlement(long orderId, long userId, long coinBAmount) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * A payment confirmation wins over any earlier outcome except PAID itself: money was
+     * received even if a late FAILED or the expiry sweep got there first.
+     */
+    public boolean markPaid(String orderCode, long amountVnd, LocalDateTime now) {
+        return jdbcTemplate.update(
+                "UPDATE payment_orders SET status = 'PAID', paid_at = ? " +
+                        "WHERE order_code = ? AND amount_vnd = ? AND status <> 'PAID'",
+                Timestamp.valueOf(now), orderCode, amountVnd) == 1;
+    }
+
+    public boolean markFailed(String orderCode) {
+        return jdbcTemplate.update(
+                "UPDATE payment_orders SET status = 'FAILED' WHERE order_code = ? AND status = 'PENDING'",
+                orderCode) == 1;
+    }
+
+    public Optional<Long> findAmountVnd(String orderCode) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT amount_vnd FROM payment_orders WHERE order_code = ?", Long.class, orderCode);
+        return rows.stream().findFirst();
+    }
+
+    public Optional<Settlement> findSettlement(String orderCode) {
+        List<Settlement> rows = jdbcTemplate.query(
+                "SELECT id, user_id, coin_b_amount FROM payment_orders WHERE order_code = ?",
+                (rs, rowNum) -> new Settlement(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("coin_b_amount")),
+                orderCode);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Locks up to {@code limit} PENDING orders created before the cutoff, oldest first, along
+     * ix_payment_orders_status_created. Rows locked by another sweeper or by a settling
+     * callback are skipped, so several nodes can sweep at once. Must run inside a transaction.
+     */
+    public List<Long> claimExpired(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM payment_orders WHERE status = 'PENDING' AND created_at < ? " +
+                        "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED",
+                Long.class, Timestamp.valueOf(cutoff), limit);
+    }
+
+    public int cancel(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+                "UPDATE payment_orders SET status = 'CANCELLED' WHERE status = 'PENDING' AND id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                ids.toArray());
+    }
+
+    public long countExpired(LocalDateTime cutoff) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payment_orders WHERE status = 'PENDING' AND created_at < ?",
+                Long.class, Timestamp.valueOf(cutoff));
+        return count != null ? count : 0L;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.entity.model.Content.StoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StoryRepository extends JpaRepository<StoryEntity, Long> {
+    boolean existsByIdAndStatusAndVisibilityNot(Long id, StoryStatus status, StoryVisibility visibility);
+}
@@ -0,0 +1,38 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.service.LoginAttemptState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class UserJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Writes only the login bookkeeping columns, one JDBC batch for all users.
+     */
+    public void batchUpdateLoginState(Map<Long, LoginAttemptState> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(states.size());
+        states.forEach((userId, state) -> args.add(new Object[]{
+                state.failedAttempts(),
+                state.lockUntil() != null ? Timestamp.valueOf(state.lockUntil()) : null,
+                userId
+        }));
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE users SET failed_login_attempts = ?, lock_until = ? WHERE id = ?",
+                args);
+    }
+}
@@ -1,12 +1,41 @@
 package com.example.WebTruyen.repository;
 
 import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByUsername(String username);
+
+    // Used by the JWT filter outside any transaction, so the role codes are fetched up front
+    @EntityGraph(attributePaths = {"userRoles", "userRoles.role"})
+    @Query("select u from UserEntity u where u.username = :username")
+    Optional<UserEntity> findWithRolesByUsername(@Param("username") String username);
     Optional<UserEntity> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
+
+    // Largest N among usernames base + N, as decimal digits without leading zeros, see
+    // AuthService#resolveUniqueUsername. Compared by length, then by digits, so suffixes of any
+    // length count. The bounds keep the uq_users_username range scan to names where a digit
+    // follows the base.
+    @Query(value = "SELECT TRIM(LEADING '0' FROM SUBSTRING(username, :suffixStart)) AS suffix FROM users " +
+            "WHERE username >= :low AND username < :high AND SUBSTRING(username, :suffixStart) REGEXP '^[0-9]+$' " +
+            "ORDER BY CHAR_LENGTH(suffix) DESC, suffix DESC LIMIT 1",
+            nativeQuery = true)
+    String findMaxUsernameSuffix(@Param("low") String low, @Param("high") String high,
+                                 @Param("suffixStart") int suffixStart);
+
+    // Compare-and-set: a password changed since expectedHash was read is left alone
+    @Modifying
+    @Transactional
+    @Query("update UserEntity u set u.passwordHash = :passwordHash where u.id = :id and u.passwordHash = :expectedHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("expectedHash") String expectedHash,
+                           @Param("passwordHash") String passwordHash);
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.dto.projection.TocRow;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.model.Content.VolumeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface VolumeRepository extends JpaRepository<VolumeEntity, Long> {
+
+    @Query("select new com.example.WebTruyen.dto.projection.TocRow(" +
+            "v.id, v.title, v.sequenceIndex, c.id, c.title, c.sequenceIndex, c.free, c.priceCoin, c.status) " +
+            "from VolumeEntity v left join v.chapters c on c.status = :status " +
+            "where v.story.id = :storyId " +
+            "order by v.sequenceIndex, c.sequenceIndex")
+    List<TocRow> findTocRows(@Param("storyId") Long storyId, @Param("status") ChapterStatus status);
+}
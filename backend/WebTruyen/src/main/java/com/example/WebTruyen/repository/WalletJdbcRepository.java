@@ -0,0 +1,79 @@
+package com.example.WebTruyen.repository;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+@Repository
+public class WalletJdbcRepository {
+
+    public record Balances(long coinA, long coinB, long reservedCoinB) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Optional<Balances> find(Long userId) {
+        return findBalances("SELECT balance_coin_a, balance_coin_b, reserved_coin_b FROM wallets WHERE user_id = ?",
+                userId);
+    }
+
+    /**
+     * Like {@link #find}, but locks the row until the current transaction ends.
+     */
+    public Optional<Balances> findForUpdate(Long userId) {
+        return findBalances("SELECT balance_coin_a, balance_coin_b, reserved_coin_b FROM wallets " +
+                "WHERE user_id = ? FOR UPDATE", userId);
+    }
+
+    /**
+     * Adds {@code delta} to one coin balance inside the current transaction. Credits create the
+     * wallet row if needed; debits only apply when the balance covers them. Either way the row
+     * stays locked until the transaction ends, which orders one user's changes on every node.
+     *
+     * @return the balance after the change, or empty when a debit is not covered
+     */
+    public OptionalLong applyDelta(Long userId, CoinType coin, long delta, LocalDateTime now) {
+        String column = column(coin);
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        if (delta >= 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO wallets (user_id, balance_coin_a, balance_coin_b, reserved_coin_b, updated_at) " +
+                            "VALUES (?, ?, ?, 0, ?) " +
+                            "ON DUPLICATE KEY UPDATE " + column + " = " + column + " + VALUES(" + column + "), " +
+                            "updated_at = VALUES(updated_at)",
+                    userId, coin == CoinType.A ? delta : 0L, coin == CoinType.B ? delta : 0L, updatedAt);
+        } else {
+            int updated = jdbcTemplate.update(
+                    "UPDATE wallets SET " + column + " = " + column + " - ?, updated_at = ? " +
+                            "WHERE user_id = ? AND " + column + " >= ?",
+                    -delta, updatedAt, userId, -delta);
+            if (updated == 0) {
+                return OptionalLong.empty();
+            }
+        }
+
+        // Reads our own uncommitted write; the row lock keeps anyone else from changing it
+        Long balance = jdbcTemplate.queryForObject(
+                "SELECT " + column + " FROM wallets WHERE user_id = ?", Long.class, userId);
+        return OptionalLong.of(balance);
+    }
+
+    private Optional<Balances> findBalances(String sql, Long userId) {
+        List<Balances> rows = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new Balances(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                userId);
+        return rows.stream().findFirst();
+    }
+
+    private static String column(CoinType coin) {
+        return coin == CoinType.A ? "balance_coin_a" : "balance_coin_b";
+    }
+}
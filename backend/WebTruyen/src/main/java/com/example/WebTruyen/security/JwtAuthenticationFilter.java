@@ -7,6 +7,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,7 +18,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -28,23 +28,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    // When enabled, tokens carrying roles/verified are trusted as-is and the user row is only read on demand
+    @Value("${jwt.principal.stateless:false}")
+    private boolean statelessPrincipal;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
+            UserPrincipal userPrincipal = null;
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            if (StringUtils.hasText(jwt)) {
+                userPrincipal = tokenCache.get(jwt);
+                if (userPrincipal == null) {
+                    JwtClaims claims = tokenProvider.parseAndValidate(jwt)
+                            .filter(c -> c.type() == null)
+                            .orElse(null);
 
-                UserEntity user = userRepository.findByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("User not found"));
-
-                UserPrincipal userPrincipal = new UserPrincipal(user);
+                    if (claims != null) {
+                        userPrincipal = buildPrincipal(claims);
+                        tokenCache.put(jwt, userPrincipal.getId(), claims.expiration(), userPrincipal);
+                    }
+                }
+            }
 
+            if (userPrincipal != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userPrincipal, null, new ArrayList<>());
+                        userPrincipal, null, userPrincipal.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -56,6 +70,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserPrincipal buildPrincipal(JwtClaims claims) {
+        if (statelessPrincipal && claims.hasEmbeddedProfile()) {
+            Long userId = claims.userId();
+            return new UserPrincipal(userId, claims.username(), claims.roles(), claims.verified(),
+                    () -> userRepository.findById(userId)
+                            .orElseThrow(() -> new RuntimeException("User not found")));
+        }
+
+        UserEntity user = userRepository.findWithRolesByUsername(claims.username())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return new UserPrincipal(user);
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
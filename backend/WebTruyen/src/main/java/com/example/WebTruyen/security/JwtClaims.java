@@ -0,0 +1,21 @@
+package com.example.WebTruyen.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Claims of a token that already passed signature and expiry checks.
+ * Built once per parse so callers never need to re-read the token.
+ * {@code roles} and {@code verified} are only present on tokens issued with them embedded.
+ */
+public record JwtClaims(Long userId, String username, String type, Date expiration,
+                        List<String> roles, Boolean verified) {
+
+    public boolean isPasswordResetToken() {
+        return JwtTokenProvider.PASSWORD_RESET_TYPE.equals(type);
+    }
+
+    public boolean hasEmbeddedProfile() {
+        return roles != null && verified != null;
+    }
+}
@@ -2,23 +2,36 @@ package com.example.WebTruyen.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
 
+    static final String PASSWORD_RESET_TYPE = "PASSWORD_RESET";
+
     @Value("${jwt.secret:mySecretKey123456789012345678901234567890}")
     private String jwtSecret;
 
     @Value("${jwt.expiration:86400000}")
     private long jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // Key and parser are immutable and thread-safe, so they are built once instead of per call.
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     public String generateToken(Long userId, String username) {
@@ -30,40 +43,63 @@ public class JwtTokenProvider {
                 .claim("username", username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Issues a token that also carries the user's roles and verified flag, so the
+     * authentication filter can build the principal without reading the users table.
+     */
+    public String generateToken(Long userId, String username, List<String> roles, boolean verified) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
-        return Long.parseLong(claims.getSubject());
+        return Jwts.builder()
+                .subject(userId.toString())
+                .claim("username", username)
+                .claim("roles", roles)
+                .claim("verified", verified)
+                .issuedAt(now)
+                .expiration(expiryDate)
+                .signWith(signingKey)
+                .compact();
+    }
+
+    /**
+     * Verifies the token once and returns all claims the application uses,
+     * or empty when the signature, format or expiry is invalid.
+     */
+    public Optional<JwtClaims> parseAndValidate(String token) {
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            return Optional.of(new JwtClaims(
+                    Long.parseLong(claims.getSubject()),
+                    claims.get("username", String.class),
+                    claims.get("type", String.class),
+                    claims.getExpiration(),
+                    readRoles(claims),
+                    claims.get("verified", Boolean.class)
+            ));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Long getUserIdFromToken(String token) {
+        return parseClaims(token).userId();
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parseClaims(token).username();
+    }
 
-        return claims.get("username", String.class);
+    public Date getExpirationFromToken(String token) {
+        return parseClaims(token).expiration();
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return parseAndValidate(token).isPresent();
     }
 
     public String generatePasswordResetToken(Long userId) {
@@ -72,25 +108,29 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .subject(userId.toString())
-                .claim("type", "PASSWORD_RESET")
+                .claim("type", PASSWORD_RESET_TYPE)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public boolean validatePasswordResetToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-            String tokenType = claims.get("type", String.class);
-            return "PASSWORD_RESET".equals(tokenType);
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+        return parseAndValidate(token)
+                .map(JwtClaims::isPasswordResetToken)
+                .orElse(false);
+    }
+
+    private List<String> readRoles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof List<?> list)) {
+            return null;
         }
+        return list.stream().map(String::valueOf).toList();
+    }
+
+    private JwtClaims parseClaims(String token) {
+        return parseAndValidate(token)
+                .orElseThrow(() -> new JwtException("Invalid JWT token"));
     }
 }
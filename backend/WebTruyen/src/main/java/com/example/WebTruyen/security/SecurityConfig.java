@@ -1,8 +1,10 @@
 package com.example.WebTruyen.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer; // Cần import cái này
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -27,9 +29,13 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    // Raising the cost factor upgrades existing hashes on the next successful login
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -49,6 +55,11 @@ public class SecurityConfig {
                         // 2. SỬA ĐƯỜNG DẪN: Thêm /api vào trước để khớp với frontend
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/test/public").permitAll()
+                        // Free content is readable anonymously; paid chapters check the principal themselves
+                        .requestMatchers(HttpMethod.GET, "/api/chapters/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/stories/**").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/payments/callback").permitAll()
+                        .requestMatchers("/api/moderation/**").hasRole("MOD")
                         .requestMatchers("/error").permitAll()
                         .anyRequest().authenticated()
                 )
@@ -64,7 +75,7 @@ public class SecurityConfig {
         // Cho phép Frontend chạy ở cổng 5173 và 5174 truy cập
         configuration.setAllowedOrigins(List.of("http://localhost:5173", "http://localhost:5174"));
         // Cho phép các method
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         // Cho phép mọi header
         configuration.setAllowedHeaders(List.of("*"));
         configuration.setAllowCredentials(true);
@@ -8,31 +8,79 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class UserPrincipal implements UserDetails {
-    private UserEntity user;
+    private final Long id;
+    private final String username;
+    private final List<String> roles;
+    private final boolean verified;
+
+    // Loaded on first getUser() call when the principal was built from token claims only
+    private volatile UserEntity user;
+    private final Supplier<UserEntity> userLoader;
 
     public UserPrincipal(UserEntity user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        // Expects userRoles to be loaded, see UserRepository#findWithRolesByUsername
+        this.roles = user.getUserRoles().stream()
+                .map(userRole -> userRole.getRole().getCode())
+                .toList();
+        this.verified = user.isVerified();
         this.user = user;
+        this.userLoader = null;
+    }
+
+    public UserPrincipal(Long id, String username, List<String> roles, boolean verified, Supplier<UserEntity> userLoader) {
+        this.id = id;
+        this.username = username;
+        this.roles = roles == null ? Collections.emptyList() : List.copyOf(roles);
+        this.verified = verified;
+        this.userLoader = userLoader;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public boolean isVerified() {
+        return verified;
     }
 
     public UserEntity getUser() {
-        return user;
+        UserEntity loaded = user;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = user;
+                if (loaded == null) {
+                    loaded = userLoader.get();
+                    user = loaded;
+                }
+            }
+        }
+        return loaded;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.emptyList();
+        return roles.stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
     }
 
     @Override
     public String getPassword() {
-        return user.getPasswordHash();
+        return getUser().getPasswordHash();
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
     @Override
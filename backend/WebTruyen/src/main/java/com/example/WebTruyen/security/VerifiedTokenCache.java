@@ -0,0 +1,97 @@
+package com.example.WebTruyen.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers tokens that already passed signature verification, so the filter can
+ * rebuild the security context without re-parsing the JWT or reading the users table.
+ * Entries are keyed by a SHA-256 digest of the token and never outlive the token's exp.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Value("${jwt.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${jwt.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final ConcurrentHashMap<String, CachedToken> cache = new ConcurrentHashMap<>();
+
+    private static class CachedToken {
+        private final UserPrincipal principal;
+        private final Long userId;
+        private final long expiresAt;
+
+        public CachedToken(UserPrincipal principal, Long userId, long expiresAt) {
+            this.principal = principal;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isExpired(long now) { return now >= expiresAt; }
+    }
+
+    public UserPrincipal get(String token) {
+        String key = digest(token);
+        CachedToken cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            cache.remove(key, cached);
+            return null;
+        }
+        return cached.principal;
+    }
+
+    public void put(String token, Long userId, Date tokenExpiration, UserPrincipal principal) {
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(now + ttlMs, tokenExpiration.getTime());
+        if (expiresAt <= now) {
+            return;
+        }
+
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(cached -> cached.isExpired(now));
+            if (cache.size() >= maxSize) {
+                // Still full of live entries: skip caching rather than grow past the bound.
+                return;
+            }
+        }
+        cache.put(digest(token), new CachedToken(principal, userId, expiresAt));
+    }
+
+    /**
+     * Drops every cached token of the user, e.g. after a password reset or a lock change,
+     * so the next request is verified against fresh state.
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.values().removeIf(cached -> userId.equals(cached.userId));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -4,25 +4,34 @@ import com.example.WebTruyen.dto.request.ForgotPasswordRequest;
 import com.example.WebTruyen.dto.request.ResetPasswordRequest;
 import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
 import com.example.WebTruyen.repository.UserRepository;
+import com.example.WebTruyen.security.JwtClaims;
 import com.example.WebTruyen.security.JwtTokenProvider;
+import com.example.WebTruyen.security.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class AuthService {
 
     private static final int MAX_FAILED_LOGIN_ATTEMPTS = 5;
     private static final int LOCK_MINUTES = 1;
+    private static final int MAX_REGISTER_ATTEMPTS = 5;
+    // Two clashes in a row mean the computed name keeps losing; stop computing it
+    private static final int RANDOM_SUFFIX_FROM_ATTEMPT = 2;
+    // users.username column length
+    private static final int MAX_USERNAME_LENGTH = 100;
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private OtpService otpService;
@@ -36,53 +45,59 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private LoginAttemptStore loginAttemptStore;
+
     public UserEntity authenticate(String username, String password) {
         UserEntity user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Invalid email or password"));
 
         LocalDateTime now = LocalDateTime.now();
-        if (user.getLockUntil() != null) {
-            if (user.getLockUntil().isAfter(now)) {
-                long secondsRemaining = Duration.between(now, user.getLockUntil()).getSeconds();
-                if (secondsRemaining < 1) {
-                    secondsRemaining = 1;
-                }
-                throw new AccountLockedException("Account is temporarily locked. Please try again later.", secondsRemaining);
-            } else {
-                user.setLockUntil(null);
-                user.setFailedLoginAttempts(0);
-                userRepository.save(user);
-            }
+        LoginAttemptState persisted = LoginAttemptState.of(user);
+        LoginAttemptState state = loginAttemptStore.get(user.getId(), persisted);
+        if (state.isLocked(now)) {
+            throw new AccountLockedException("Account is temporarily locked. Please try again later.",
+                    secondsRemaining(now, state.lockUntil()));
         }
 
-        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
-            int attempts = user.getFailedLoginAttempts() + 1;
+        if (!passwordHashingService.matches(password, user.getPasswordHash())) {
+            LoginAttemptState updated = loginAttemptStore.recordFailure(user.getId(), persisted,
+                    MAX_FAILED_LOGIN_ATTEMPTS, Duration.ofMinutes(LOCK_MINUTES), now);
 
-            if (attempts >= MAX_FAILED_LOGIN_ATTEMPTS) {
-                user.setFailedLoginAttempts(0);
-                user.setLockUntil(now.plusMinutes(LOCK_MINUTES));
-                userRepository.save(user);
-                long secondsRemaining = Duration.between(now, user.getLockUntil()).getSeconds();
-                if (secondsRemaining < 1) {
-                    secondsRemaining = LOCK_MINUTES * 60L;
-                }
-                throw new AccountLockedException("Account is temporarily locked. Please try again later.", secondsRemaining);
+            if (updated.isLocked(now)) {
+                tokenCache.evictUser(user.getId());
+                throw new AccountLockedException("Account is temporarily locked. Please try again later.",
+                        secondsRemaining(now, updated.lockUntil()));
             }
-
-            user.setFailedLoginAttempts(attempts);
-            userRepository.save(user);
             throw new RuntimeException("Invalid email or password");
         }
 
-        if (user.getFailedLoginAttempts() != 0 || user.getLockUntil() != null) {
-            user.setFailedLoginAttempts(0);
-            user.setLockUntil(null);
-            userRepository.save(user);
+        if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+            Long userId = user.getId();
+            String oldHash = user.getPasswordHash();
+            // A reset that lands while the rehash runs must win over the old password
+            passwordHashingService.rehashAsync(password,
+                    hash -> userRepository.updatePasswordHash(userId, oldHash, hash));
+        }
+
+        if (!state.isClear()) {
+            loginAttemptStore.reset(user.getId());
+            if (state.lockUntil() != null) {
+                tokenCache.evictUser(user.getId());
+            }
         }
 
         return user;
     }
 
+    private long secondsRemaining(LocalDateTime now, LocalDateTime lockUntil) {
+        long secondsRemaining = Duration.between(now, lockUntil).getSeconds();
+        return Math.max(secondsRemaining, 1);
+    }
+
     public UserEntity registerUser(String username, String email, String password) {
         return registerUser(username, email, password, null, null);
     }
@@ -95,26 +110,36 @@ public class AuthService {
             throw new RuntimeException("Password is required");
         }
 
-        if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email already in use!");
+        String baseUsername = normalizeUsername(username, email);
+        String passwordHash = passwordHashingService.encode(password);
+
+        // Insert first and let uq_users_email / uq_users_username decide, instead of check-then-act.
+        for (int attempt = 0; attempt < MAX_REGISTER_ATTEMPTS; attempt++) {
+            UserEntity newUser = UserEntity.builder()
+                    .username(resolveUniqueUsername(baseUsername, attempt))
+                    .email(email)
+                    .passwordHash(passwordHash)
+                    .displayName(displayName)
+                    .verified(false)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+
+            // upgradeToAuthor is accepted from client (UC01) but role assignment is not implemented here
+            // because the project currently has no Role/UserRole repositories wired.
+
+            try {
+                return userRepository.save(newUser);
+            } catch (DataIntegrityViolationException e) {
+                if (isViolationOf(e, "uq_users_email")) {
+                    throw new RuntimeException("Email already in use!");
+                }
+                if (!isViolationOf(e, "uq_users_username")) {
+                    throw e;
+                }
+                // Someone took the same username concurrently: resolve again.
+            }
         }
-
-        String finalUsername = normalizeUsername(username, email);
-        finalUsername = ensureUniqueUsername(finalUsername);
-
-        UserEntity newUser = UserEntity.builder()
-                .username(finalUsername)
-                .email(email)
-                .passwordHash(passwordEncoder.encode(password))
-                .displayName(displayName)
-                .verified(false)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        // upgradeToAuthor is accepted from client (UC01) but role assignment is not implemented here
-        // because the project currently has no Role/UserRole repositories wired.
-
-        return userRepository.save(newUser);
+        throw new RuntimeException("Could not allocate a username, please try again");
     }
 
     private String normalizeUsername(String username, String email) {
@@ -133,14 +158,39 @@ public class AuthService {
         return candidate;
     }
 
-    private String ensureUniqueUsername(String baseUsername) {
-        String candidate = baseUsername;
-        int suffix = 1;
-        while (userRepository.existsByUsername(candidate)) {
-            candidate = baseUsername + suffix;
-            suffix++;
+    /**
+     * Returns the base itself when it is free, otherwise base followed by one more than the
+     * largest numeric suffix in use. Two indexed lookups, however many names share the base.
+     * A random suffix is used instead when that name would not fit the column, or once the
+     * computed name has already clashed.
+     */
+    private String resolveUniqueUsername(String baseUsername, int attempt) {
+        if (attempt >= RANDOM_SUFFIX_FROM_ATTEMPT) {
+            return withRandomSuffix(baseUsername);
         }
-        return candidate;
+        if (!userRepository.existsByUsername(baseUsername)) {
+            return baseUsername;
+        }
+        // Allowed username characters sort as punctuation < digits < letters under the column's
+        // collation, so [base0, basea) holds exactly the names with a digit after the base.
+        String maxSuffix = userRepository.findMaxUsernameSuffix(baseUsername + "0", baseUsername + "a",
+                baseUsername.length() + 1);
+        BigInteger next = maxSuffix == null || maxSuffix.isEmpty()
+                ? BigInteger.ONE
+                : new BigInteger(maxSuffix).add(BigInteger.ONE);
+        String candidate = baseUsername + next;
+        return candidate.length() <= MAX_USERNAME_LENGTH ? candidate : withRandomSuffix(baseUsername);
+    }
+
+    private String withRandomSuffix(String baseUsername) {
+        String suffix = Integer.toString(ThreadLocalRandom.current().nextInt(100_000_000, 1_000_000_000));
+        int keep = Math.min(baseUsername.length(), MAX_USERNAME_LENGTH - suffix.length());
+        return baseUsername.substring(0, keep) + suffix;
+    }
+
+    private boolean isViolationOf(DataIntegrityViolationException e, String constraintName) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(constraintName);
     }
 
     public void sendOtp(String email) {
@@ -157,6 +207,7 @@ public class AuthService {
                     .orElseThrow(() -> new RuntimeException("User not found"));
             user.setVerified(true);
             userRepository.save(user);
+            tokenCache.evictUser(user.getId());
         }
         return isValid;
     }
@@ -170,18 +221,18 @@ public class AuthService {
     }
 
     public void resetPassword(String token, String newPassword) {
-        if (!tokenProvider.validatePasswordResetToken(token)) {
-            throw new RuntimeException("Invalid or expired reset token");
-        }
+        JwtClaims claims = tokenProvider.parseAndValidate(token)
+                .filter(JwtClaims::isPasswordResetToken)
+                .orElseThrow(() -> new RuntimeException("Invalid or expired reset token"));
 
-        Long userId = tokenProvider.getUserIdFromToken(token);
-        UserEntity user = userRepository.findById(userId)
+        UserEntity user = userRepository.findById(claims.userId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         validatePasswordPolicy(newPassword, user.getPasswordHash());
 
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.setPasswordHash(passwordHashingService.encode(newPassword));
         userRepository.save(user);
+        tokenCache.evictUser(user.getId());
     }
 
     private void validatePasswordPolicy(String newPassword, String currentPasswordHash) {
@@ -189,7 +240,7 @@ public class AuthService {
             throw new RuntimeException("Password must be at least 8 characters long");
         }
 
-        if (passwordEncoder.matches(newPassword, currentPasswordHash)) {
+        if (passwordHashingService.matches(newPassword, currentPasswordHash)) {
             throw new RuntimeException("New password cannot be the same as the current password");
         }
     }
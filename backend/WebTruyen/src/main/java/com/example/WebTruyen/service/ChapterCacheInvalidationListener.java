@@ -0,0 +1,46 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.Content.ChapterEntity;
+import com.example.WebTruyen.entity.model.Content.ChapterSegmentEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on chapters and segments: any write (status changes such as publishing,
+ * edits, added or removed segments) drops the rendered payload of the chapter. The entry is
+ * dropped again after commit, since a reader may have re-rendered the old rows in between.
+ */
+@Component
+public class ChapterCacheInvalidationListener {
+
+    @Autowired
+    private ChapterPayloadCache chapterPayloadCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof ChapterEntity chapter) {
+            invalidate(chapter.getId());
+        } else if (entity instanceof ChapterSegmentEntity segment && segment.getChapter() != null) {
+            invalidate(segment.getChapter().getId());
+        }
+    }
+
+    private void invalidate(Long chapterId) {
+        chapterPayloadCache.invalidate(chapterId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    chapterPayloadCache.invalidate(chapterId);
+                }
+            });
+        }
+    }
+}
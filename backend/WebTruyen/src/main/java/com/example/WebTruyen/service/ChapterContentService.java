@@ -0,0 +1,162 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.ChapterSegmentJdbcRepository;
+import com.example.WebTruyen.util.JsonStreams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class ChapterContentService {
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Autowired
+    private ChapterSegmentJdbcRepository chapterSegmentJdbcRepository;
+
+    @Autowired
+    private ChapterPayloadCache chapterPayloadCache;
+
+    /**
+     * Checks that the chapter and its story are readable and, for paid chapters, that the reader
+     * unlocked it. {@code userId} is null for anonymous readers.
+     */
+    public ChapterAccessInfo checkReadable(Long chapterId, Long userId) {
+        ChapterAccessInfo chapter = chapterRepository.findAccessInfo(chapterId)
+                .filter(ChapterAccessInfo::isReadable)
+                .orElseThrow(() -> new ChapterNotFoundException("Chapter not found"));
+
+        if (!chapter.isFree()) {
+            if (userId == null || !chapterEntitlementIndex.isUnlocked(userId, chapter.getStoryId(), chapterId)) {
+                throw new ChapterLockedException("This chapter must be unlocked first", chapter.getPriceCoin());
+            }
+        }
+        return chapter;
+    }
+
+    /**
+     * Streams the chapter as NDJSON, one {"seq":..,"text":..} line per segment starting at
+     * {@code fromSeq}. Only one segment is held in memory at a time, whatever the chapter length.
+     */
+    public void writeContent(Long chapterId, int fromSeq, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        chapterSegmentJdbcRepository.streamSegments(chapterId, fromSeq, (seq, text) -> {
+            writer.write("{\"seq\":");
+            writer.write(Integer.toString(seq));
+            writer.write(",\"text\":");
+            JsonStreams.writeString(text, writer);
+            writer.write("}\n");
+            // Push each segment out as its own chunk
+            writer.flush();
+        });
+        writer.flush();
+    }
+
+    /**
+     * Returns the whole chapter as gzip-compressed NDJSON with an ETag over that payload, from
+     * the cache when the cached copy matches the chapter's last update. Returns null when the
+     * chapter compresses to more than a cache entry may hold; callers then fall back to
+     * {@link #writeContent}.
+     */
+    public ChapterPayloadCache.CachedChapter getCompressed(ChapterAccessInfo chapter) throws IOException {
+        long version = version(chapter);
+        ChapterPayloadCache.CachedChapter cached = chapterPayloadCache.get(chapter.getChapterId(), version);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generationBefore = chapterPayloadCache.generation();
+        byte[] rendered = render(chapter.getChapterId(), chapterPayloadCache.getMaxEntryBytes());
+        if (rendered == null) {
+            return null;
+        }
+        ChapterPayloadCache.CachedChapter payload =
+                new ChapterPayloadCache.CachedChapter(version, rendered, etag(chapter.getChapterId(), rendered));
+        chapterPayloadCache.put(chapter.getChapterId(), payload, generationBefore);
+        return payload;
+    }
+
+    private String etag(Long chapterId, byte[] gzipBody) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(gzipBody);
+            return "\"" + chapterId + "-" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private byte[] render(Long chapterId, int limit) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(new BoundedOutputStream(buffer, limit));
+        try {
+            writeContent(chapterId, 1, gzip);
+            gzip.close();
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof PayloadTooLargeException) {
+                return null;
+            }
+            throw e;
+        } catch (PayloadTooLargeException e) {
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+    private long version(ChapterAccessInfo chapter) {
+        LocalDateTime lastUpdateAt = chapter.getLastUpdateAt();
+        return lastUpdateAt != null ? lastUpdateAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+    }
+
+    private static class PayloadTooLargeException extends IOException {
+    }
+
+    private static class BoundedOutputStream extends FilterOutputStream {
+        private final int limit;
+        private int written;
+
+        BoundedOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            out.write(b, off, len);
+        }
+
+        private void ensureCapacity(int len) throws IOException {
+            written += len;
+            if (written > limit) {
+                throw new PayloadTooLargeException();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per (user, story) bitmap of unlocked chapters, indexed by the chapter's ordinal in the
+ * story TOC. Ordinals are dense, so a plain BitSet stays a few hundred bytes even for
+ * thousands of chapters and answers single and whole-TOC checks without a query.
+ * Bitmaps are loaded lazily from chapter_unlocks and rebuilt when the TOC they were
+ * built against is replaced.
+ */
+@Service
+public class ChapterEntitlementIndex {
+
+    @Autowired
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Autowired
+    private StoryTocService storyTocService;
+
+    @Value("${reader.entitlement-cache.max-entries:100000}")
+    private int maxEntries;
+
+    private record Key(Long userId, Long storyId) {
+    }
+
+    private static class Entitlements {
+        private final StoryTocService.StoryToc toc;
+        private final BitSet unlocked;
+
+        Entitlements(StoryTocService.StoryToc toc, BitSet unlocked) {
+            this.toc = toc;
+            this.unlocked = unlocked;
+        }
+    }
+
+    // A bitmap being loaded; an unlock of the same key while it loads keeps it out of the cache
+    private static class PendingLoad {
+        private boolean stale;
+    }
+
+    private final Map<Key, Entitlements> cache = new LinkedHashMap<>(1024, 0.75f, true);
+    // Guarded by the cache lock, like the cache itself
+    private final Map<Key, List<PendingLoad>> pendingLoads = new HashMap<>();
+
+    public boolean isUnlocked(Long userId, Long storyId, Long chapterId) {
+        Entitlements entitlements = entitlements(userId, storyId);
+        Integer ordinal = entitlements.toc.ordinals().get(chapterId);
+        if (ordinal == null) {
+            // Not in the published TOC (e.g. just published): ask the table directly.
+            return chapterUnlockRepository.existsByUser_IdAndChapter_Id(userId, chapterId);
+        }
+        synchronized (entitlements) {
+            return entitlements.unlocked.get(ordinal);
+        }
+    }
+
+    public List<Long> unlockedChapterIds(Long userId, Long storyId) {
+        Entitlements entitlements = entitlements(userId, storyId);
+        List<Long> chapterIds = entitlements.toc.chapterIds();
+        List<Long> unlocked = new ArrayList<>();
+        synchronized (entitlements) {
+            for (int i = entitlements.unlocked.nextSetBit(0); i >= 0; i = entitlements.unlocked.nextSetBit(i + 1)) {
+                unlocked.add(chapterIds.get(i));
+            }
+        }
+        return unlocked;
+    }
+
+    /**
+     * Records a committed unlock in an already loaded bitmap; unloaded ones pick it up on load.
+     */
+    public void markUnlocked(Long userId, Long storyId, Long chapterId) {
+        Key key = new Key(userId, storyId);
+        Entitlements entitlements;
+        synchronized (cache) {
+            entitlements = cache.get(key);
+            List<PendingLoad> loads = pendingLoads.get(key);
+            if (loads != null) {
+                loads.forEach(load -> load.stale = true);
+            }
+        }
+        if (entitlements == null) {
+            return;
+        }
+        Integer ordinal = entitlements.toc.ordinals().get(chapterId);
+        if (ordinal != null) {
+            synchronized (entitlements) {
+                entitlements.unlocked.set(ordinal);
+            }
+        }
+    }
+
+    private Entitlements entitlements(Long userId, Long storyId) {
+        StoryTocService.StoryToc toc = storyTocService.getStoryToc(storyId);
+        Key key = new Key(userId, storyId);
+        PendingLoad load = new PendingLoad();
+        synchronized (cache) {
+            Entitlements cached = cache.get(key);
+            if (cached != null && cached.toc == toc) {
+                return cached;
+            }
+            pendingLoads.computeIfAbsent(key, k -> new ArrayList<>(1)).add(load);
+        }
+
+        BitSet unlocked = new BitSet(toc.chapterIds().size());
+        Entitlements loaded = new Entitlements(toc, unlocked);
+        boolean complete = false;
+        try {
+            for (Long chapterId : chapterUnlockRepository.findUnlockedChapterIds(userId, storyId)) {
+                Integer ordinal = toc.ordinals().get(chapterId);
+                if (ordinal != null) {
+                    unlocked.set(ordinal);
+                }
+            }
+            complete = true;
+        } finally {
+            synchronized (cache) {
+                List<PendingLoad> loads = pendingLoads.get(key);
+                loads.remove(load);
+                if (loads.isEmpty()) {
+                    pendingLoads.remove(key);
+                }
+                // An unlock of this key committed while loading may be missing from the bitmap; don't keep it.
+                if (complete && !load.stale) {
+                    cache.put(key, loaded);
+                    if (cache.size() > maxEntries) {
+                        Key eldest = cache.keySet().iterator().next();
+                        cache.remove(eldest);
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.WebTruyen.service;
+
+public class ChapterLockedException extends RuntimeException {
+
+    private final Long priceCoin;
+
+    public ChapterLockedException(String message, Long priceCoin) {
+        super(message);
+        this.priceCoin = priceCoin;
+    }
+
+    public Long getPriceCoin() {
+        return priceCoin;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.WebTruyen.service;
+
+public class ChapterNotFoundException extends RuntimeException {
+
+    public ChapterNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.util.FrequencySketch;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte-budgeted cache of fully rendered, gzip-compressed chapter payloads.
+ * Entries are versioned by the chapter's last update time, and a render that raced with an
+ * invalidation is not stored (see {@link #generation()}), so a stale entry is never served.
+ * Eviction is LRU, but a new chapter is only admitted over the LRU victim when the frequency
+ * sketch says it is read more often (TinyLFU admission), which keeps one-off reads of long
+ * tail chapters from flushing the popular ones.
+ */
+@Component
+public class ChapterPayloadCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reader.chapter-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${reader.chapter-cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    /**
+     * A rendered chapter; {@code etag} is derived from the payload itself, so it changes with
+     * any segment edit whether or not the chapter row was touched.
+     */
+    public record CachedChapter(long version, byte[] gzipBody, String etag) {
+    }
+
+    private final LinkedHashMap<Long, CachedChapter> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private FrequencySketch sketch;
+    private long bytesHeld;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    @PostConstruct
+    void init() {
+        sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE / 2, Math.max(1024, maxBytes / 16384)));
+
+        Gauge.builder("chapter.cache.bytes", this, ChapterPayloadCache::bytesHeld)
+                .description("Compressed chapter bytes held in memory")
+                .register(meterRegistry);
+        Gauge.builder("chapter.cache.entries", this, ChapterPayloadCache::size)
+                .register(meterRegistry);
+        Gauge.builder("chapter.cache.hit.ratio", this, ChapterPayloadCache::hitRatio)
+                .register(meterRegistry);
+        FunctionCounter.builder("chapter.cache.evictions", this, ChapterPayloadCache::evictions)
+                .register(meterRegistry);
+    }
+
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public synchronized CachedChapter get(Long chapterId, long version) {
+        sketch.increment(chapterId);
+        CachedChapter cached = entries.get(chapterId);
+        if (cached == null || cached.version() != version) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached;
+    }
+
+    /**
+     * Bumped by every invalidation. Read it before rendering and pass it to {@link #put}: if
+     * anything was invalidated meanwhile, the render may predate the change and is dropped.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(Long chapterId, CachedChapter chapter, long generationBefore) {
+        byte[] gzipBody = chapter.gzipBody();
+        if (gzipBody.length > maxEntryBytes || generation != generationBefore) {
+            return;
+        }
+        removeEntry(chapterId);
+
+        int candidateFrequency = sketch.frequency(chapterId);
+        List<Long> victims = new ArrayList<>();
+        long freed = 0;
+        Iterator<Map.Entry<Long, CachedChapter>> lru = entries.entrySet().iterator();
+        while (bytesHeld - freed + gzipBody.length > maxBytes && lru.hasNext()) {
+            Map.Entry<Long, CachedChapter> victim = lru.next();
+            if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                // The victims are at least as popular as the newcomer: keep them, skip caching.
+                return;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().gzipBody().length;
+        }
+        if (bytesHeld - freed + gzipBody.length > maxBytes) {
+            return;
+        }
+
+        for (Long victim : victims) {
+            removeEntry(victim);
+            evictions++;
+        }
+        entries.put(chapterId, chapter);
+        bytesHeld += gzipBody.length;
+    }
+
+    public synchronized void invalidate(Long chapterId) {
+        generation++;
+        removeEntry(chapterId);
+    }
+
+    private void removeEntry(Long chapterId) {
+        CachedChapter removed = entries.remove(chapterId);
+        if (removed != null) {
+            bytesHeld -= removed.gzipBody().length;
+        }
+    }
+
+    private synchronized long bytesHeld() {
+        return bytesHeld;
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private synchronized long evictions() {
+        return evictions;
+    }
+}
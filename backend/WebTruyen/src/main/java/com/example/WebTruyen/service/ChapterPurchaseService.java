@@ -0,0 +1,217 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.dto.response.ChapterTocResponse;
+import com.example.WebTruyen.dto.response.UnlockChapterResponse;
+import com.example.WebTruyen.dto.response.UnlockRangeResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.ChapterUnlockJdbcRepository;
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unlocks paid chapters. Each purchase is one short transaction: insert the unlock, then debit
+ * the wallet through {@link WalletBalanceService}, which appends the SPEND_CHAPTER ledger
+ * entry. Retries are safe: the unique keys on chapter_unlocks and ledger idempotency_key turn
+ * a replay into "already owned".
+ */
+@Service
+public class ChapterPurchaseService {
+
+    static final String UNLOCK_REF_TYPE = "CHAPTER_UNLOCK";
+    private static final int MAX_RANGE_CHAPTERS = 1000;
+    // Leaves room in the 100-char idempotency_key for the user and chapter ids around it
+    static final int MAX_CLIENT_KEY_LENGTH = 40;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Autowired
+    private ChapterUnlockJdbcRepository chapterUnlockJdbcRepository;
+
+    @Autowired
+    private WalletBalanceService walletBalanceService;
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Autowired
+    private StoryTocService storyTocService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public UnlockChapterResponse unlock(Long userId, Long chapterId, CoinType coin, String idempotencyKey) {
+        CoinType paidCoin = coin != null ? coin : CoinType.A;
+        ChapterAccessInfo chapter = chapterRepository.findAccessInfo(chapterId)
+                .filter(ChapterAccessInfo::isReadable)
+                .orElseThrow(() -> new ChapterNotFoundException("Chapter not found"));
+
+        long cost = chapter.getPriceCoin() != null ? chapter.getPriceCoin() : 0L;
+        if (chapter.isFree() || cost <= 0) {
+            return new UnlockChapterResponse(chapterId, true, paidCoin, 0L, null);
+        }
+        if (chapterEntitlementIndex.isUnlocked(userId, chapter.getStoryId(), chapterId)) {
+            return new UnlockChapterResponse(chapterId, true, paidCoin, 0L, null);
+        }
+
+        validateClientKey(idempotencyKey);
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? clientKeyPrefix(userId, idempotencyKey)
+                : "unlock:" + userId + ":" + chapterId;
+        LocalDateTime now = LocalDateTime.now();
+
+        Long balanceAfter;
+        try {
+            balanceAfter = transactionTemplate.execute(status -> {
+                long unlockId = chapterUnlockJdbcRepository.insert(userId, chapterId, paidCoin, cost, now);
+                return walletBalanceService.debit(userId, paidCoin, cost, balance ->
+                        ledgerJdbcRepository.insert(new LedgerJdbcRepository.Entry(userId, paidCoin, -cost, balance,
+                                LedgerReason.SPEND_CHAPTER, UNLOCK_REF_TYPE, unlockId, key, now)));
+            });
+        } catch (DuplicateKeyException e) {
+            // Either a concurrent unlock of the same chapter or a replay of this request.
+            if (!chapterUnlockRepository.existsByUser_IdAndChapter_Id(userId, chapterId)) {
+                throw new RuntimeException("Idempotency key was already used for another purchase");
+            }
+            chapterEntitlementIndex.markUnlocked(userId, chapter.getStoryId(), chapterId);
+            return new UnlockChapterResponse(chapterId, true, paidCoin, 0L, null);
+        }
+
+        chapterEntitlementIndex.markUnlocked(userId, chapter.getStoryId(), chapterId);
+        return new UnlockChapterResponse(chapterId, false, paidCoin, cost, balanceAfter);
+    }
+
+    /**
+     * Buys a whole volume or an inclusive chapter range at once. Free and already owned
+     * chapters are skipped; the rest are priced together, the wallet is debited once and
+     * all unlock and ledger rows go out as JDBC batches in the same transaction.
+     */
+    public UnlockRangeResponse unlockRange(Long userId, Long storyId, Long volumeId, Long fromChapterId,
+                                           Long toChapterId, CoinType coin, String idempotencyKey) {
+        CoinType paidCoin = coin != null ? coin : CoinType.A;
+        validateClientKey(idempotencyKey);
+        List<ChapterTocResponse> range = resolveRange(storyTocService.getStoryToc(storyId), volumeId, fromChapterId, toChapterId);
+
+        for (int attempt = 0; ; attempt++) {
+            // On a retry the bitmap may not know about a purchase that just raced us, so ask the table.
+            Set<Long> owned = attempt == 0
+                    ? new HashSet<>(chapterEntitlementIndex.unlockedChapterIds(userId, storyId))
+                    : new HashSet<>(chapterUnlockRepository.findUnlockedChapterIds(userId, storyId));
+
+            Map<Long, Long> costByChapter = new LinkedHashMap<>();
+            for (ChapterTocResponse chapter : range) {
+                long price = chapter.getPriceCoin() != null ? chapter.getPriceCoin() : 0L;
+                if (!chapter.isFree() && price > 0 && !owned.contains(chapter.getId())) {
+                    costByChapter.put(chapter.getId(), price);
+                }
+            }
+            int skipped = range.size() - costByChapter.size();
+            if (costByChapter.isEmpty()) {
+                return new UnlockRangeResponse(storyId, List.of(), skipped, paidCoin, 0L, null);
+            }
+
+            try {
+                long total = costByChapter.values().stream().mapToLong(Long::longValue).sum();
+                Long balanceAfter = transactionTemplate.execute(status ->
+                        purchaseBatch(userId, costByChapter, paidCoin, total, idempotencyKey));
+
+                for (Long chapterId : costByChapter.keySet()) {
+                    chapterEntitlementIndex.markUnlocked(userId, storyId, chapterId);
+                }
+                return new UnlockRangeResponse(storyId, new ArrayList<>(costByChapter.keySet()), skipped,
+                        paidCoin, total, balanceAfter);
+            } catch (DuplicateKeyException e) {
+                if (attempt >= 1) {
+                    throw new RuntimeException("Some chapters were purchased concurrently, please try again");
+                }
+            }
+        }
+    }
+
+    private long purchaseBatch(Long userId, Map<Long, Long> costByChapter, CoinType coin, long total,
+                               String idempotencyKey) {
+        LocalDateTime now = LocalDateTime.now();
+        chapterUnlockJdbcRepository.batchInsert(userId, costByChapter, coin, now);
+        Map<Long, Long> unlockIds = chapterUnlockJdbcRepository.findIdsByChapter(userId, costByChapter.keySet());
+
+        return walletBalanceService.debit(userId, coin, total, balance -> {
+            // Spread the single debit over per-chapter ledger rows, ending at the real balance
+            long running = balance + total;
+            List<LedgerJdbcRepository.Entry> entries = new ArrayList<>(costByChapter.size());
+            for (Map.Entry<Long, Long> chapter : costByChapter.entrySet()) {
+                running -= chapter.getValue();
+                entries.add(new LedgerJdbcRepository.Entry(userId, coin, -chapter.getValue(), running,
+                        LedgerReason.SPEND_CHAPTER, UNLOCK_REF_TYPE, unlockIds.get(chapter.getKey()),
+                        chapterIdempotencyKey(userId, chapter.getKey(), idempotencyKey), now));
+            }
+            ledgerJdbcRepository.batchInsert(entries);
+        });
+    }
+
+    private List<ChapterTocResponse> resolveRange(StoryTocService.StoryToc toc, Long volumeId,
+                                                  Long fromChapterId, Long toChapterId) {
+        List<ChapterTocResponse> chapters = new ArrayList<>();
+        if (volumeId != null) {
+            toc.response().getVolumes().stream()
+                    .filter(volume -> volume.getId().equals(volumeId))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Volume not found in this story"))
+                    .getChapters()
+                    .forEach(chapters::add);
+        } else {
+            Integer from = fromChapterId != null ? toc.ordinals().get(fromChapterId) : null;
+            Integer to = toChapterId != null ? toc.ordinals().get(toChapterId) : null;
+            if (from == null || to == null || from > to) {
+                throw new RuntimeException("Invalid chapter range");
+            }
+            List<ChapterTocResponse> ordered = toc.response().getVolumes().stream()
+                    .flatMap(volume -> volume.getChapters().stream())
+                    .toList();
+            chapters.addAll(ordered.subList(from, to + 1));
+        }
+
+        if (chapters.size() > MAX_RANGE_CHAPTERS) {
+            throw new RuntimeException("At most " + MAX_RANGE_CHAPTERS + " chapters can be unlocked at once");
+        }
+        return chapters;
+    }
+
+    private String chapterIdempotencyKey(Long userId, Long chapterId, String requestKey) {
+        // Without a client key, single and range purchases of a chapter share one key
+        return requestKey != null && !requestKey.isBlank()
+                ? clientKeyPrefix(userId, requestKey) + ":" + chapterId
+                : "unlock:" + userId + ":" + chapterId;
+    }
+
+    // Client keys live in the user's own namespace, so nobody can claim another user's key first
+    private String clientKeyPrefix(Long userId, String clientKey) {
+        return "unlock-req:" + userId + ":" + clientKey;
+    }
+
+    private void validateClientKey(String clientKey) {
+        if (clientKey != null && clientKey.length() > MAX_CLIENT_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency key must be at most " + MAX_CLIENT_KEY_LENGTH + " characters");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.WebTruyen.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pending changes to comment counters (visible comments per chapter, visible replies per
+ * root comment) between two flushes. Chapters are spread over locked shards, so posting on
+ * different chapters never contends. Also tracks chapters with a change between its commit
+ * and its {@link #add}, which the consistency check must not recount.
+ */
+@Component
+public class CommentCounterAccumulator {
+
+    private static final int SHARDS = 32;
+
+    public record Deltas(Map<Long, Long> byChapter, Map<Long, Long> byRoot) {
+        public boolean isEmpty() {
+            return byChapter.isEmpty() && byRoot.isEmpty();
+        }
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, Long> byChapter = new HashMap<>();
+        private Map<Long, Long> byRoot = new HashMap<>();
+    }
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final ConcurrentHashMap<Long, Integer> inFlight = new ConcurrentHashMap<>();
+
+    public CommentCounterAccumulator() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * @param rootCommentId thread root of the comment, or null when the comment is itself a root
+     */
+    public void add(Long chapterId, Long rootCommentId, long delta) {
+        Shard shard = shardFor(chapterId);
+        shard.lock.lock();
+        try {
+            shard.byChapter.merge(chapterId, delta, Long::sum);
+            if (rootCommentId != null) {
+                shard.byRoot.merge(rootCommentId, delta, Long::sum);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public Deltas drain() {
+        Map<Long, Long> byChapter = new HashMap<>();
+        Map<Long, Long> byRoot = new HashMap<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.byChapter.forEach((chapterId, delta) -> byChapter.merge(chapterId, delta, Long::sum));
+                shard.byRoot.forEach((rootId, delta) -> byRoot.merge(rootId, delta, Long::sum));
+                shard.byChapter = new HashMap<>();
+                shard.byRoot = new HashMap<>();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        // Changes that cancelled out need no write
+        byChapter.values().removeIf(delta -> delta == 0);
+        byRoot.values().removeIf(delta -> delta == 0);
+        return new Deltas(byChapter, byRoot);
+    }
+
+    /**
+     * Puts back deltas whose flush failed.
+     */
+    public void restore(Deltas deltas) {
+        // A root's chapter is unknown here, so root deltas all go to one shard; drain merges them
+        Shard rootShard = shards[0];
+        deltas.byChapter().forEach((chapterId, delta) -> {
+            Shard shard = shardFor(chapterId);
+            shard.lock.lock();
+            try {
+                shard.byChapter.merge(chapterId, delta, Long::sum);
+            } finally {
+                shard.lock.unlock();
+            }
+        });
+        rootShard.lock.lock();
+        try {
+            deltas.byRoot().forEach((rootId, delta) -> rootShard.byRoot.merge(rootId, delta, Long::sum));
+        } finally {
+            rootShard.lock.unlock();
+        }
+    }
+
+    public long pendingForChapter(Long chapterId) {
+        Shard shard = shardFor(chapterId);
+        shard.lock.lock();
+        try {
+            return shard.byChapter.getOrDefault(chapterId, 0L);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public boolean hasPendingChapter(Long chapterId) {
+        return pendingForChapter(chapterId) != 0;
+    }
+
+    /**
+     * Marks a change of the chapter as about to commit; undone by {@link #end}.
+     */
+    public void begin(Long chapterId) {
+        inFlight.merge(chapterId, 1, Integer::sum);
+    }
+
+    public void end(Long chapterId) {
+        inFlight.computeIfPresent(chapterId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Chapters whose stored counters may not reflect every committed change: changes in flight
+     * or not flushed yet, including ones that cancelled out.
+     */
+    public Set<Long> busyChapters() {
+        Set<Long> busy = new HashSet<>(inFlight.keySet());
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                busy.addAll(shard.byChapter.keySet());
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return busy;
+    }
+
+    private Shard shardFor(Long chapterId) {
+        return shards[Math.floorMod(Long.hashCode(chapterId), SHARDS)];
+    }
+}
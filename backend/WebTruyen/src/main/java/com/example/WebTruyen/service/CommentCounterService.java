@@ -0,0 +1,179 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.CommentStatsJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains visible-comment counts per chapter (chapter_comment_stats) and visible-reply
+ * counts per root comment (comments.reply_count). Changes are collected in memory and
+ * written as batched increments; a periodic check recounts from the comments table and
+ * repairs any drift. Writers bracket each change with {@link #beginChange} and
+ * {@link #endChange}, so the check can tell which chapters are moving.
+ */
+@Service
+public class CommentCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentCounterService.class);
+    private static final int CHECK_ATTEMPTS = 3;
+
+    @Autowired
+    private CommentCounterAccumulator accumulator;
+
+    @Autowired
+    private CommentStatsJdbcRepository commentStatsJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${comments.counters.check-chapter-batch:1000}")
+    private int checkChapterBatch;
+
+    // Serializes flushes with the repair of a check range
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Records a comment becoming visible (+1) or hidden (-1). Call after the change committed.
+     */
+    public void record(Long chapterId, Long rootCommentId, long delta) {
+        accumulator.add(chapterId, rootCommentId, delta);
+    }
+
+    /**
+     * Visible comment counts of the given chapters, including changes not yet flushed.
+     */
+    public Map<Long, Long> getChapterCounts(Collection<Long> chapterIds) {
+        Map<Long, Long> stored = commentStatsJdbcRepository.findChapterCounts(chapterIds);
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long chapterId : chapterIds) {
+            counts.put(chapterId, stored.getOrDefault(chapterId, 0L) + accumulator.pendingForChapter(chapterId));
+        }
+        return counts;
+    }
+
+    /**
+     * Announces a change of the chapter's counters that is about to commit. Call before the
+     * transaction, then {@link #record} once it committed, then {@link #endChange} in a finally.
+     */
+    public void beginChange(Long chapterId) {
+        accumulator.begin(chapterId);
+    }
+
+    public void endChange(Long chapterId) {
+        accumulator.end(chapterId);
+    }
+
+    @Scheduled(fixedDelayString = "${comments.counters.flush-interval-ms:2000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Caller holds flushLock
+    private void flushPending() {
+        CommentCounterAccumulator.Deltas deltas = accumulator.drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                commentStatsJdbcRepository.addChapterDeltas(deltas.byChapter(), LocalDateTime.now());
+                commentStatsJdbcRepository.addReplyDeltas(deltas.byRoot());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not flush comment counters for {} chapters, will retry", deltas.byChapter().size(), e);
+            accumulator.restore(deltas);
+        }
+    }
+
+    /**
+     * Recounts every chapter's comments in id ranges and overwrites drifted counters. Flushes
+     * wait while a range is repaired. Busy chapters are skipped this round: a change in flight
+     * or not yet flushed is about to move their stored count. If a chapter of the range turns
+     * busy during the repair, its new comment may be counted by both the recount and the next
+     * flush, so the range is rolled back and tried again.
+     */
+    @Scheduled(cron = "${comments.counters.check-cron:0 15 4 * * *}")
+    public void checkConsistency() {
+        long maxChapterId = commentStatsJdbcRepository.maxCommentedChapterId();
+        int repairedChapters = 0;
+        int repairedRoots = 0;
+        int skippedRanges = 0;
+
+        for (long from = 1; from <= maxChapterId; from += checkChapterBatch) {
+            long to = from + checkChapterBatch - 1;
+            int[] repaired = null;
+            flushLock.lock();
+            try {
+                flushPending();
+                for (int attempt = 0; attempt < CHECK_ATTEMPTS && repaired == null; attempt++) {
+                    long rangeFrom = from;
+                    repaired = transactionTemplate.execute(status -> repairRange(rangeFrom, to, status));
+                }
+            } finally {
+                flushLock.unlock();
+            }
+
+            if (repaired == null) {
+                skippedRanges++;
+                continue;
+            }
+            repairedChapters += repaired[0];
+            repairedRoots += repaired[1];
+        }
+
+        if (repairedChapters > 0 || repairedRoots > 0) {
+            log.warn("Repaired comment counters: {} chapters, {} root comments", repairedChapters, repairedRoots);
+        }
+        if (skippedRanges > 0) {
+            log.info("Skipped {} busy chapter ranges in the comment counter check", skippedRanges);
+        }
+    }
+
+    private int[] repairRange(long from, long to, TransactionStatus status) {
+        Set<Long> busy = inRange(accumulator.busyChapters(), from, to);
+        int chapters = commentStatsJdbcRepository.repairChapterCounts(from, to, busy, LocalDateTime.now());
+        int roots = commentStatsJdbcRepository.repairReplyCounts(from, to, busy);
+
+        if (!busy.containsAll(inRange(accumulator.busyChapters(), from, to))) {
+            status.setRollbackOnly();
+            return null;
+        }
+        return new int[]{chapters, roots};
+    }
+
+    private static Set<Long> inRange(Set<Long> chapterIds, long from, long to) {
+        Set<Long> inRange = new HashSet<>();
+        for (Long chapterId : chapterIds) {
+            if (chapterId >= from && chapterId <= to) {
+                inRange.add(chapterId);
+            }
+        }
+        return inRange;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.WebTruyen.service;
+
+public class CommentIngestionBusyException extends RuntimeException {
+    public CommentIngestionBusyException(String message) {
+        super(message);
+    }
+}
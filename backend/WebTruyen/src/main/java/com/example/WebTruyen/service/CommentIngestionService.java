@@ -0,0 +1,290 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.dto.response.CommentCreatedResponse;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.CommentJdbcRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write path for comments. Requests are validated and rate limited on the caller's thread,
+ * their thread position (root and depth) is derived from a cached parent lookup, and they are
+ * queued for a single writer that inserts them in micro-batches. Callers get the new id from
+ * a future that completes once the batch commits.
+ */
+@Service
+public class CommentIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentIngestionService.class);
+    private static final int MAX_CONTENT_LENGTH = 5000;
+
+    @Autowired
+    private CommentJdbcRepository commentJdbcRepository;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private CommentRateLimiter rateLimiter;
+
+    @Autowired
+    private CommentCounterService commentCounterService;
+
+    @Autowired
+    private CommentThreadService commentThreadService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comments.ingest.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${comments.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${comments.ingest.linger-ms:20}")
+    private long lingerMs;
+
+    @Value("${comments.ingest.parent-cache.max-entries:50000}")
+    private int maxCachedParents;
+
+    @Value("${comments.ingest.chapter-cache.max-entries:10000}")
+    private int maxCachedChapters;
+
+    @Value("${comments.ingest.chapter-cache.ttl-ms:30000}")
+    private long chapterCacheTtlMs;
+
+    private record PendingComment(CommentJdbcRepository.NewComment comment,
+                                  CompletableFuture<CommentCreatedResponse> result) {
+    }
+
+    private BlockingQueue<PendingComment> queue;
+    private ExecutorService writer;
+    private volatile boolean running = true;
+    private DistributionSummary batchSizes;
+
+    private final Map<Long, CommentJdbcRepository.ThreadRef> parents = new LinkedHashMap<>(1024, 0.75f, true);
+    // chapterId -> System.nanoTime() until which the chapter counts as open without a re-check.
+    // Entries expire so a chapter or story taken down elsewhere stops taking comments.
+    private final Map<Long, Long> openChapters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("comments.ingest.queued", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("comments.ingest.batch-size")
+                .register(meterRegistry);
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.submit(this::writeLoop);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // The loop drains what is left in the queue before it exits
+        running = false;
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @throws CommentRateLimitedException if the user posts faster than allowed
+     * @throws CommentIngestionBusyException if the write queue is full
+     */
+    public CompletableFuture<CommentCreatedResponse> submit(Long userId, Long chapterId, Long parentCommentId,
+                                                            String content) {
+        if (content == null || content.isBlank()) {
+            throw new RuntimeException("Comment cannot be empty");
+        }
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            throw new RuntimeException("Comment is too long");
+        }
+        rateLimiter.acquire(userId);
+        checkChapter(chapterId);
+
+        Long rootCommentId = null;
+        int depth = 0;
+        if (parentCommentId != null) {
+            CommentJdbcRepository.ThreadRef parent = findParent(parentCommentId);
+            if (parent == null || parent.chapterId() != chapterId || parent.hidden()) {
+                throw new RuntimeException("Cannot reply to this comment");
+            }
+            rootCommentId = parent.rootCommentId() != null ? parent.rootCommentId() : parent.id();
+            depth = parent.depth() + 1;
+        }
+
+        CompletableFuture<CommentCreatedResponse> result = new CompletableFuture<>();
+        CommentJdbcRepository.NewComment comment = new CommentJdbcRepository.NewComment(userId, chapterId,
+                parentCommentId, rootCommentId, content.trim(), depth, LocalDateTime.now());
+        if (!queue.offer(new PendingComment(comment, result))) {
+            throw new CommentIngestionBusyException("Too many comments right now, please try again");
+        }
+        return result;
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingComment> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                // Give a burst a moment to fill the batch
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingComment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Comment writer failed", e);
+            }
+        }
+    }
+
+    private void write(List<PendingComment> batch) {
+        batchSizes.record(batch.size());
+        List<CommentJdbcRepository.NewComment> comments = batch.stream().map(PendingComment::comment).toList();
+        Set<Long> chapters = new HashSet<>();
+        comments.forEach(comment -> chapters.add(comment.chapterId()));
+        // Announced before the commit, so the counter check leaves these chapters alone until recorded
+        chapters.forEach(commentCounterService::beginChange);
+        try {
+            long[] ids;
+            try {
+                ids = transactionTemplate.execute(status -> commentJdbcRepository.batchInsert(comments));
+            } catch (RuntimeException e) {
+                log.warn("Inserting a batch of {} comments failed, retrying one by one", batch.size(), e);
+                writeOneByOne(batch);
+                return;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                completed(batch.get(i), ids[i]);
+            }
+            chapters.forEach(commentThreadService::invalidate);
+        } finally {
+            chapters.forEach(commentCounterService::endChange);
+        }
+    }
+
+    private void writeOneByOne(List<PendingComment> batch) {
+        for (PendingComment pending : batch) {
+            try {
+                long[] ids = transactionTemplate.execute(status ->
+                        commentJdbcRepository.batchInsert(List.of(pending.comment())));
+                completed(pending, ids[0]);
+                commentThreadService.invalidate(pending.comment().chapterId());
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void completed(PendingComment pending, long id) {
+        CommentJdbcRepository.NewComment comment = pending.comment();
+        commentCounterService.record(comment.chapterId(), comment.rootCommentId(), 1);
+        // Replies usually target fresh comments, so remember this one as a parent
+        rememberParent(new CommentJdbcRepository.ThreadRef(id, comment.chapterId(), comment.rootCommentId(),
+                comment.depth(), false));
+        pending.result().complete(new CommentCreatedResponse(id, comment.chapterId(), comment.parentCommentId(),
+                comment.rootCommentId(), comment.depth(), comment.createdAt()));
+    }
+
+    private CommentJdbcRepository.ThreadRef findParent(Long commentId) {
+        synchronized (parents) {
+            CommentJdbcRepository.ThreadRef cached = parents.get(commentId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CommentJdbcRepository.ThreadRef parent = commentJdbcRepository.findThreadRef(commentId).orElse(null);
+        if (parent != null) {
+            rememberParent(parent);
+        }
+        return parent;
+    }
+
+    private void rememberParent(CommentJdbcRepository.ThreadRef comment) {
+        synchronized (parents) {
+            parents.put(comment.id(), comment);
+            if (parents.size() > maxCachedParents) {
+                Long eldest = parents.keySet().iterator().next();
+                parents.remove(eldest);
+            }
+        }
+    }
+
+    /**
+     * Forgets a cached parent, e.g. after moderation hid it.
+     */
+    public void forgetParent(Long commentId) {
+        synchronized (parents) {
+            parents.remove(commentId);
+        }
+    }
+
+    private void checkChapter(Long chapterId) {
+        long now = System.nanoTime();
+        Long openUntil = openChapters.get(chapterId);
+        if (openUntil != null && openUntil - now > 0) {
+            return;
+        }
+        openChapters.remove(chapterId);
+        chapterRepository.findAccessInfo(chapterId)
+                .filter(ChapterAccessInfo::isReadable)
+                .orElseThrow(() -> new ChapterNotFoundException("Chapter not found"));
+        if (openChapters.size() >= maxCachedChapters) {
+            openChapters.values().removeIf(until -> until - now <= 0);
+            if (openChapters.size() >= maxCachedChapters) {
+                openChapters.clear();
+            }
+        }
+        openChapters.put(chapterId, now + TimeUnit.MILLISECONDS.toNanos(chapterCacheTtlMs));
+    }
+}
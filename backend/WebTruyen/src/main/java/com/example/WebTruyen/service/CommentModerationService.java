@@ -0,0 +1,71 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.CommentAndMod.ModerationActionEntity;
+import com.example.WebTruyen.repository.CommentJdbcRepository;
+import com.example.WebTruyen.repository.ModerationActionRepository;
+import com.example.WebTruyen.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+@Service
+public class CommentModerationService {
+
+    @Autowired
+    private CommentJdbcRepository commentJdbcRepository;
+
+    @Autowired
+    private ModerationActionRepository moderationActionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommentCounterService commentCounterService;
+
+    @Autowired
+    private CommentThreadService commentThreadService;
+
+    @Autowired
+    private CommentIngestionService commentIngestionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Hides or restores a comment and logs the moderation action. Repeating the same request
+     * changes nothing, so counters move exactly once per real flip.
+     */
+    public void setHidden(Long moderatorId, Long commentId, boolean hidden, String reason) {
+        CommentJdbcRepository.ThreadRef comment = commentJdbcRepository.findThreadRef(commentId)
+                .orElseThrow(() -> new RuntimeException("Comment not found"));
+
+        commentCounterService.beginChange(comment.chapterId());
+        try {
+            Boolean changed = transactionTemplate.execute(status -> {
+                if (!commentJdbcRepository.setHidden(commentId, hidden)) {
+                    return false;
+                }
+                moderationActionRepository.save(ModerationActionEntity.builder()
+                        .admin(userRepository.getReferenceById(moderatorId))
+                        .actionType(hidden ? "HIDE_COMMENT" : "UNHIDE_COMMENT")
+                        .targetKind(ModerationActionEntity.ModerationTargetKind.comment)
+                        .targetId(commentId)
+                        .reason(reason)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                return true;
+            });
+
+            if (Boolean.TRUE.equals(changed)) {
+                commentCounterService.record(comment.chapterId(), comment.rootCommentId(), hidden ? -1 : 1);
+                commentThreadService.invalidate(comment.chapterId());
+                commentIngestionService.forgetParent(commentId);
+            }
+        } finally {
+            commentCounterService.endChange(comment.chapterId());
+        }
+    }
+}
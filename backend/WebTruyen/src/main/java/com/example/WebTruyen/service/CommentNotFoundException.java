@@ -0,0 +1,8 @@
+package com.example.WebTruyen.service;
+
+public class CommentNotFoundException extends RuntimeException {
+
+    public CommentNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.WebTruyen.service;
+
+public class CommentRateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CommentRateLimitedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
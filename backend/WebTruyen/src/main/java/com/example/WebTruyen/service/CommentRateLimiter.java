@@ -0,0 +1,74 @@
+package com.example.WebTruyen.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user token bucket for posting comments: a burst of {@code capacity} posts, then one
+ * post per refill interval. Buckets that have refilled completely carry no information and
+ * are dropped periodically.
+ */
+@Component
+public class CommentRateLimiter {
+
+    @Value("${comments.rate-limit.capacity:5}")
+    private int capacity;
+
+    @Value("${comments.rate-limit.refill-ms:3000}")
+    private long refillMs;
+
+    private final ConcurrentHashMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // Guarded by its own monitor
+    private static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        private Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    /**
+     * Takes one token for the user.
+     *
+     * @throws CommentRateLimitedException when the bucket is empty
+     */
+    public void acquire(Long userId) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = buckets.computeIfAbsent(userId, id -> new Bucket(capacity, now));
+        synchronized (bucket) {
+            refill(bucket, now);
+            if (bucket.tokens < 1) {
+                long waitMs = (long) Math.ceil((1 - bucket.tokens) * refillMs);
+                throw new CommentRateLimitedException("You are commenting too fast",
+                        Math.max(1, (waitMs + 999) / 1000));
+            }
+            bucket.tokens -= 1;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${comments.rate-limit.cleanup-interval-ms:60000}")
+    public void evictFullBuckets() {
+        long now = System.currentTimeMillis();
+        buckets.entrySet().removeIf(entry -> {
+            Bucket bucket = entry.getValue();
+            synchronized (bucket) {
+                refill(bucket, now);
+                return bucket.tokens >= capacity;
+            }
+        });
+    }
+
+    private void refill(Bucket bucket, long now) {
+        long elapsed = now - bucket.updatedAt;
+        if (elapsed > 0) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (double) elapsed / refillMs);
+            bucket.updatedAt = now;
+        }
+    }
+}
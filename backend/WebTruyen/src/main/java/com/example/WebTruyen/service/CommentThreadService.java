@@ -0,0 +1,207 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.CommentPageResponse;
+import com.example.WebTruyen.dto.response.CommentResponse;
+import com.example.WebTruyen.repository.CommentJdbcRepository;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads a chapter's comment section in two queries: a keyset page of root comments, then the
+ * first replies of each at once through root_comment_id. Trees are assembled in memory instead
+ * of walking the lazy replies collection node by node; a thread with more replies carries a
+ * cursor for {@link #getReplies}, which pages through the rest. The default first page of the
+ * most read chapters is kept in a small LRU until a comment is posted or hidden there.
+ */
+@Service
+public class CommentThreadService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+    public static final int DEFAULT_REPLY_PAGE_SIZE = 50;
+    private static final int MAX_REPLY_PAGE_SIZE = 200;
+
+    @Autowired
+    private CommentJdbcRepository commentJdbcRepository;
+
+    @Value("${comments.first-page-cache.max-chapters:500}")
+    private int maxCachedChapters;
+
+    @Value("${comments.replies-per-root:10}")
+    private int repliesPerRoot;
+
+    private final Map<Long, CommentPageResponse> firstPages = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+
+    public CommentPageResponse getThreads(Long chapterId, String cursor, int limit) {
+        if ((cursor == null || cursor.isBlank()) && limit == DEFAULT_PAGE_SIZE) {
+            return getFirstPage(chapterId);
+        }
+        return load(chapterId, cursor, limit);
+    }
+
+    public void invalidate(Long chapterId) {
+        synchronized (firstPages) {
+            generation.incrementAndGet();
+            firstPages.remove(chapterId);
+        }
+    }
+
+    private CommentPageResponse getFirstPage(Long chapterId) {
+        synchronized (firstPages) {
+            CommentPageResponse cached = firstPages.get(chapterId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long generationBefore = generation.get();
+        CommentPageResponse page = load(chapterId, null, DEFAULT_PAGE_SIZE);
+        synchronized (firstPages) {
+            if (generation.get() != generationBefore) {
+                // A comment changed while loading; the page may already be stale.
+                return page;
+            }
+            firstPages.put(chapterId, page);
+            if (firstPages.size() > maxCachedChapters) {
+                Long eldest = firstPages.keySet().iterator().next();
+                firstPages.remove(eldest);
+            }
+        }
+        return page;
+    }
+
+    private CommentPageResponse load(Long chapterId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra root tells whether another page exists
+        List<CommentResponse> roots = commentJdbcRepository.findRootPage(chapterId, KeysetCursor.decode(cursor),
+                pageSize + 1);
+
+        String nextCursor = null;
+        if (roots.size() > pageSize) {
+            roots = roots.subList(0, pageSize);
+            CommentResponse last = roots.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        Map<Long, CommentResponse> byId = new HashMap<>();
+        roots.forEach(root -> byId.put(root.getId(), root));
+        // One extra reply per root tells whether the thread goes on
+        List<CommentJdbcRepository.ThreadReply> replies = commentJdbcRepository.findFirstReplies(byId.keySet(),
+                repliesPerRoot + 1);
+
+        Map<Long, Integer> counts = new HashMap<>();
+        Map<Long, CommentResponse> lastIncluded = new HashMap<>();
+        Set<Long> truncated = new HashSet<>();
+        // Replies come oldest first, so a parent is always placed before its children
+        for (CommentJdbcRepository.ThreadReply row : replies) {
+            if (counts.merge(row.rootCommentId(), 1, Integer::sum) > repliesPerRoot) {
+                truncated.add(row.rootCommentId());
+                continue;
+            }
+            CommentResponse reply = row.comment();
+            lastIncluded.put(row.rootCommentId(), reply);
+            CommentResponse parent = byId.get(reply.getParentId());
+            if (parent == null) {
+                // Parent is hidden: its subtree is hidden with it
+                continue;
+            }
+            parent.getReplies().add(reply);
+            byId.put(reply.getId(), reply);
+        }
+        for (Long rootId : truncated) {
+            CommentResponse last = lastIncluded.get(rootId);
+            byId.get(rootId).setMoreRepliesCursor(new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return new CommentPageResponse(roots, nextCursor);
+    }
+
+    /**
+     * A page of a thread's replies after the cursor, oldest first. A reply whose parent is on
+     * the same page is nested under it; the others belong under replies the client already has.
+     */
+    public CommentPageResponse getReplies(Long chapterId, Long rootCommentId, String cursor, int limit) {
+        CommentJdbcRepository.ThreadRef root = commentJdbcRepository.findThreadRef(rootCommentId)
+                .filter(ref -> ref.chapterId() == chapterId && ref.rootCommentId() == null && !ref.hidden())
+                .orElseThrow(() -> new CommentNotFoundException("Comment not found"));
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_REPLY_PAGE_SIZE));
+        List<CommentResponse> replies = commentJdbcRepository.findReplyPage(root.id(), KeysetCursor.decode(cursor),
+                pageSize + 1);
+
+        String nextCursor = null;
+        if (replies.size() > pageSize) {
+            replies = replies.subList(0, pageSize);
+            CommentResponse last = replies.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        Map<Long, CommentResponse> byId = new HashMap<>();
+        List<CommentResponse> items = new ArrayList<>();
+        for (CommentResponse reply : visibleReplies(root.id(), replies)) {
+            CommentResponse parent = byId.get(reply.getParentId());
+            if (parent != null) {
+                parent.getReplies().add(reply);
+            } else {
+                items.add(reply);
+            }
+            byId.put(reply.getId(), reply);
+        }
+        return new CommentPageResponse(items, nextCursor);
+    }
+
+    /**
+     * Drops replies below a hidden comment. Ancestors from earlier pages are looked up one
+     * level per query, so this costs as many queries as the page reaches above itself.
+     */
+    private List<CommentResponse> visibleReplies(long rootId, List<CommentResponse> replies) {
+        Map<Long, Long> parents = new HashMap<>();
+        replies.forEach(reply -> parents.put(reply.getId(), reply.getParentId()));
+        Set<Long> hidden = new HashSet<>();
+
+        Set<Long> unknown = new HashSet<>();
+        for (Long parentId : parents.values()) {
+            if (parentId != null && parentId != rootId && !parents.containsKey(parentId)) {
+                unknown.add(parentId);
+            }
+        }
+        while (!unknown.isEmpty()) {
+            Set<Long> next = new HashSet<>();
+            for (CommentJdbcRepository.ThreadNode node : commentJdbcRepository.findThreadNodes(unknown)) {
+                if (node.hidden()) {
+                    hidden.add(node.id());
+                    continue;
+                }
+                parents.put(node.id(), node.parentCommentId());
+                Long parentId = node.parentCommentId();
+                if (parentId != null && parentId != rootId && !parents.containsKey(parentId)) {
+                    next.add(parentId);
+                }
+            }
+            unknown = next;
+        }
+
+        List<CommentResponse> visible = new ArrayList<>(replies.size());
+        for (CommentResponse reply : replies) {
+            Long ancestor = reply.getParentId();
+            while (ancestor != null && ancestor != rootId && !hidden.contains(ancestor)) {
+                ancestor = parents.get(ancestor);
+            }
+            if (ancestor != null && ancestor == rootId) {
+                visible.add(reply);
+            }
+        }
+        return visible;
+    }
+}
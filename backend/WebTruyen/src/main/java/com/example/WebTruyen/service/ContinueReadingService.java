@@ -0,0 +1,79 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.ContinueReadingResponse;
+import com.example.WebTruyen.repository.LibraryJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The "continue reading" shelf: every story in the reader's library with their latest position
+ * and the chapter to read next, resolved by one query and kept per user. Progress flushes and
+ * library changes drop the user's shelf; chapter publishing only shows up once the entry
+ * expires, since invalidating every shelf that holds a story would cost more than it saves.
+ */
+@Service
+public class ContinueReadingService {
+
+    @Autowired
+    private LibraryJdbcRepository libraryJdbcRepository;
+
+    @Value("${reading.shelf-cache.max-users:5000}")
+    private int maxUsers;
+
+    @Value("${reading.shelf-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    private record CachedShelf(List<ContinueReadingResponse> items, long loadedAtMillis) {
+    }
+
+    private final Map<Long, CachedShelf> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+
+    public List<ContinueReadingResponse> getShelf(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedShelf cached = cache.get(userId);
+            if (cached != null && now - cached.loadedAtMillis() < ttlMillis) {
+                return cached.items();
+            }
+        }
+
+        long generationBefore = generation.get();
+        // Shared between requests, so hand out a read-only view
+        List<ContinueReadingResponse> items = Collections.unmodifiableList(libraryJdbcRepository.findContinueReading(userId));
+        synchronized (cache) {
+            if (generation.get() != generationBefore) {
+                // A flush or library change landed while loading; the result may already be stale.
+                return items;
+            }
+            cache.put(userId, new CachedShelf(items, now));
+            if (cache.size() > maxUsers) {
+                Long eldest = cache.keySet().iterator().next();
+                cache.remove(eldest);
+            }
+        }
+        return items;
+    }
+
+    public void invalidate(Long userId) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.remove(userId);
+        }
+    }
+
+    public void invalidate(Collection<Long> userIds) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            userIds.forEach(cache::remove);
+        }
+    }
+}
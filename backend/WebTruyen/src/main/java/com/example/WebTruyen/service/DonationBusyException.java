@@ -0,0 +1,7 @@
+package com.example.WebTruyen.service;
+
+public class DonationBusyException extends RuntimeException {
+    public DonationBusyException(String message) {
+        super(message);
+    }
+}
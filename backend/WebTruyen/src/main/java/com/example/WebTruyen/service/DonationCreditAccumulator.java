@@ -0,0 +1,115 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects committed donations per recipient and coin until the next flush. Recipients are
+ * spread over shards with their own lock, so donations to different authors never contend
+ * and a hot author only holds one shard for the few instructions of an add.
+ */
+@Component
+public class DonationCreditAccumulator {
+
+    private static final int SHARDS = 32;
+
+    public record Recipient(long userId, CoinType coin) {
+    }
+
+    public static final class PendingCredit {
+        private long amount;
+        private long maxDonationId;
+        private final List<Long> donationIds = new ArrayList<>();
+
+        public long getAmount() { return amount; }
+        public long getMaxDonationId() { return maxDonationId; }
+        public List<Long> getDonationIds() { return donationIds; }
+
+        private void add(long donationAmount, long donationId) {
+            amount += donationAmount;
+            maxDonationId = Math.max(maxDonationId, donationId);
+            donationIds.add(donationId);
+        }
+
+        private void addAll(PendingCredit other) {
+            amount += other.amount;
+            maxDonationId = Math.max(maxDonationId, other.maxDonationId);
+            donationIds.addAll(other.donationIds);
+        }
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Recipient, PendingCredit> pending = new HashMap<>();
+    }
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicLong pendingDonations = new AtomicLong();
+
+    public DonationCreditAccumulator() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public void add(long toUserId, CoinType coin, long amount, long donationId) {
+        Shard shard = shardFor(toUserId);
+        shard.lock.lock();
+        try {
+            shard.pending.computeIfAbsent(new Recipient(toUserId, coin), key -> new PendingCredit())
+                    .add(amount, donationId);
+        } finally {
+            shard.lock.unlock();
+        }
+        pendingDonations.incrementAndGet();
+    }
+
+    /**
+     * Takes everything collected so far; later donations go to fresh maps.
+     */
+    public Map<Recipient, PendingCredit> drain() {
+        Map<Recipient, PendingCredit> drained = new HashMap<>();
+        for (Shard shard : shards) {
+            Map<Recipient, PendingCredit> taken;
+            shard.lock.lock();
+            try {
+                taken = shard.pending;
+                shard.pending = new HashMap<>();
+            } finally {
+                shard.lock.unlock();
+            }
+            drained.putAll(taken);
+        }
+        drained.values().forEach(credit -> pendingDonations.addAndGet(-credit.donationIds.size()));
+        return drained;
+    }
+
+    /**
+     * Puts back a credit whose flush failed, merging with anything added since.
+     */
+    public void restore(Recipient recipient, PendingCredit credit) {
+        Shard shard = shardFor(recipient.userId());
+        shard.lock.lock();
+        try {
+            shard.pending.computeIfAbsent(recipient, key -> new PendingCredit()).addAll(credit);
+        } finally {
+            shard.lock.unlock();
+        }
+        pendingDonations.addAndGet(credit.donationIds.size());
+    }
+
+    public long pendingDonations() {
+        return pendingDonations.get();
+    }
+
+    private Shard shardFor(long userId) {
+        return shards[Math.floorMod(Long.hashCode(userId), SHARDS)];
+    }
+}
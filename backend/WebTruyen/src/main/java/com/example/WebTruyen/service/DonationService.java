@@ -0,0 +1,394 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.DonationResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.repository.DonationJdbcRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Donations debit the donor right away but credit the recipient in batches: committed
+ * donations collect in {@link DonationCreditAccumulator} and each flush writes one EARN
+ * ledger entry and one wallet change per recipient, so a popular author's wallet is touched
+ * once per interval instead of once per donation. Donation rows not yet credited carry a null
+ * credited_at and are picked up again after a restart.
+ * <p>
+ * The donor side is group-committed: requests queue for a single writer that debits each
+ * donor and inserts the donation and ledger rows of a whole burst as JDBC batches in one
+ * transaction. Callers wait for their batch to commit.
+ */
+@Service
+public class DonationService {
+
+    private static final Logger log = LoggerFactory.getLogger(DonationService.class);
+    static final String DONATION_REF_TYPE = "DONATION";
+    static final String DONATION_BATCH_REF_TYPE = "DONATION_BATCH";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private DonationJdbcRepository donationJdbcRepository;
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletBalanceService walletBalanceService;
+
+    @Autowired
+    private DonationCreditAccumulator accumulator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${donations.write.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${donations.write.batch-size:200}")
+    private int batchSize;
+
+    @Value("${donations.write.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${donations.write.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizes;
+    private BlockingQueue<QueuedDonation> queue;
+    private ExecutorService writer;
+    private volatile boolean running = true;
+
+    private record Donated(long donationId, long balanceAfter) {
+    }
+
+    private record QueuedDonation(DonationJdbcRepository.NewDonation donation, String clientKey,
+                                  CompletableFuture<Donated> result) {
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("donations.pending-credits", accumulator, DonationCreditAccumulator::pendingDonations)
+                .description("Committed donations not yet credited to the recipient")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("donations.flush.duration")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("donations.write.batch-size")
+                .register(meterRegistry);
+
+        // Runs before the web server starts, so no donation can commit concurrently
+        donationJdbcRepository.findUncredited().forEach(donation ->
+                accumulator.add(donation.toUserId(), donation.coin(), donation.amount(), donation.id()));
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("donations.write.queued", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "donation-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.submit(this::writeLoop);
+    }
+
+    /**
+     * @throws InsufficientBalanceException if the donor cannot cover the amount
+     * @throws DonationBusyException if the write queue is full or the batch did not commit in time
+     */
+    public DonationResponse donate(Long fromUserId, Long toUserId, CoinType coin, Long amount, String idempotencyKey) {
+        CoinType paidCoin = coin != null ? coin : CoinType.A;
+        if (amount == null || amount <= 0) {
+            throw new RuntimeException("Donation amount must be positive");
+        }
+        if (toUserId == null || toUserId.equals(fromUserId)) {
+            throw new RuntimeException("Invalid recipient");
+        }
+        if (!userRepository.existsById(toUserId)) {
+            throw new RuntimeException("Recipient not found");
+        }
+
+        String clientKey = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? "donate:" + fromUserId + ":" + idempotencyKey
+                : null;
+        if (clientKey != null && clientKey.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency key is too long");
+        }
+
+        CompletableFuture<Donated> result = new CompletableFuture<>();
+        DonationJdbcRepository.NewDonation donation = new DonationJdbcRepository.NewDonation(fromUserId, toUserId,
+                paidCoin, amount, LocalDateTime.now());
+        if (!queue.offer(new QueuedDonation(donation, clientKey, result))) {
+            throw new DonationBusyException("Too many donations right now, please try again");
+        }
+
+        Donated donated;
+        try {
+            donated = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // It may still commit; a retry with the same idempotency key gets that donation back
+            throw new DonationBusyException("Donation is taking too long, please try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while donating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DuplicateKeyException) {
+                return replayed(fromUserId, toUserId, paidCoin, amount, clientKey);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return new DonationResponse(donated.donationId(), toUserId, paidCoin, amount, donated.balanceAfter());
+    }
+
+    // A retry of a donation that went through: answer with the original donation
+    private DonationResponse replayed(Long fromUserId, Long toUserId, CoinType paidCoin, Long amount, String clientKey) {
+        Long originalId = clientKey != null
+                ? ledgerJdbcRepository.findRefIdByIdempotencyKey(clientKey).orElse(null)
+                : null;
+        if (originalId == null) {
+            throw new RuntimeException("This donation was already submitted");
+        }
+        long balance = paidCoin == CoinType.A
+                ? walletBalanceService.getBalances(fromUserId).getBalanceCoinA()
+                : walletBalanceService.getBalances(fromUserId).getBalanceCoinB();
+        return new DonationResponse(originalId, toUserId, paidCoin, amount, balance);
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedDonation first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<QueuedDonation> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                // Give a burst a moment to fill the batch
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    QueuedDonation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Donation writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * Debits every donor in queue order, then inserts the donation and DONATE ledger rows of
+     * the donors that could pay as two batches. A refused debit changes no row, so it only
+     * drops that donation; any other failure rolls the batch back and it is retried one by one.
+     */
+    private void write(List<QueuedDonation> batch) {
+        batchSizes.record(batch.size());
+        List<QueuedDonation> paid = new ArrayList<>(batch.size());
+        List<Long> balances = new ArrayList<>(batch.size());
+        List<QueuedDonation> refused = new ArrayList<>();
+        List<InsufficientBalanceException> refusals = new ArrayList<>();
+        long[] ids;
+        try {
+            ids = transactionTemplate.execute(status -> {
+                for (QueuedDonation queued : batch) {
+                    DonationJdbcRepository.NewDonation donation = queued.donation();
+                    long[] balance = new long[1];
+                    try {
+                        // The ledger rows follow below, in this same transaction, once the ids exist
+                        walletBalanceService.debit(donation.fromUserId(), donation.coin(), donation.amount(),
+                                balanceAfter -> balance[0] = balanceAfter);
+                    } catch (InsufficientBalanceException e) {
+                        refused.add(queued);
+                        refusals.add(e);
+                        continue;
+                    }
+                    paid.add(queued);
+                    balances.add(balance[0]);
+                }
+                if (paid.isEmpty()) {
+                    return new long[0];
+                }
+
+                long[] donationIds = donationJdbcRepository.batchInsert(
+                        paid.stream().map(QueuedDonation::donation).toList());
+                List<LedgerJdbcRepository.Entry> entries = new ArrayList<>(paid.size());
+                for (int i = 0; i < paid.size(); i++) {
+                    entries.add(donateEntry(paid.get(i), donationIds[i], balances.get(i)));
+                }
+                ledgerJdbcRepository.batchInsert(entries);
+                return donationIds;
+            });
+        } catch (RuntimeException e) {
+            // Refusals were decided against debits that just rolled back, so every donation is retried
+            log.warn("Writing a batch of {} donations failed, retrying one by one", batch.size(), e);
+            writeOneByOne(batch);
+            return;
+        }
+
+        for (int i = 0; i < paid.size(); i++) {
+            completed(paid.get(i), ids[i], balances.get(i));
+        }
+        for (int i = 0; i < refused.size(); i++) {
+            refused.get(i).result().completeExceptionally(refusals.get(i));
+        }
+    }
+
+    private void writeOneByOne(List<QueuedDonation> batch) {
+        for (QueuedDonation queued : batch) {
+            try {
+                DonationJdbcRepository.NewDonation donation = queued.donation();
+                Donated donated = transactionTemplate.execute(status -> {
+                    long donationId = donationJdbcRepository.batchInsert(List.of(donation))[0];
+                    long balanceAfter = walletBalanceService.debit(donation.fromUserId(), donation.coin(),
+                            donation.amount(), balance ->
+                                    ledgerJdbcRepository.insert(donateEntry(queued, donationId, balance)));
+                    return new Donated(donationId, balanceAfter);
+                });
+                completed(queued, donated.donationId(), donated.balanceAfter());
+            } catch (RuntimeException e) {
+                queued.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private LedgerJdbcRepository.Entry donateEntry(QueuedDonation queued, long donationId, long balance) {
+        DonationJdbcRepository.NewDonation donation = queued.donation();
+        String key = queued.clientKey() != null ? queued.clientKey() : "donate:" + donationId;
+        return new LedgerJdbcRepository.Entry(donation.fromUserId(), donation.coin(), -donation.amount(), balance,
+                LedgerReason.DONATE, DONATION_REF_TYPE, donationId, key, donation.createdAt());
+    }
+
+    private void completed(QueuedDonation queued, long donationId, long balanceAfter) {
+        DonationJdbcRepository.NewDonation donation = queued.donation();
+        accumulator.add(donation.toUserId(), donation.coin(), donation.amount(), donationId);
+        queued.result().complete(new Donated(donationId, balanceAfter));
+    }
+
+    @Scheduled(fixedDelayString = "${donations.flush-interval-ms:1000}")
+    public void flush() {
+        Map<DonationCreditAccumulator.Recipient, DonationCreditAccumulator.PendingCredit> pending = accumulator.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        flushTimer.record(() -> pending.forEach((recipient, credit) -> {
+            try {
+                // One transaction per recipient: each holds only that recipient's wallet lock
+                transactionTemplate.executeWithoutResult(status -> creditRecipient(recipient, credit));
+            } catch (DuplicateKeyException e) {
+                requeueUncredited(recipient, credit);
+            } catch (RuntimeException e) {
+                log.warn("Could not credit donations to user {}, will retry", recipient.userId(), e);
+                accumulator.restore(recipient, credit);
+            }
+        }));
+    }
+
+    /**
+     * The batch key already exists, so an earlier batch ending at the same donation was credited
+     * and marked its donations in that transaction. Whatever is still uncredited goes back into
+     * the accumulator, where it forms a batch with a different key.
+     */
+    private void requeueUncredited(DonationCreditAccumulator.Recipient recipient,
+                                   DonationCreditAccumulator.PendingCredit credit) {
+        long refId = credit.getMaxDonationId();
+        try {
+            for (DonationJdbcRepository.PendingDonation donation
+                    : donationJdbcRepository.findUncreditedAmong(credit.getDonationIds())) {
+                if (donation.id() == refId) {
+                    // Its batch entry exists, so it was paid; only the mark is missing
+                    log.error("Donation {} was credited but not marked, marking it now", refId);
+                    donationJdbcRepository.markCredited(List.of(refId), LocalDateTime.now());
+                } else {
+                    accumulator.add(donation.toUserId(), donation.coin(), donation.amount(), donation.id());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not check donations to user {}, will retry", recipient.userId(), e);
+            accumulator.restore(recipient, credit);
+        }
+    }
+
+    /**
+     * Credits only the donations this transaction could lock while still uncredited, and
+     * marks exactly those; a donation credited elsewhere in the meantime is left out.
+     */
+    private void creditRecipient(DonationCreditAccumulator.Recipient recipient,
+                                 DonationCreditAccumulator.PendingCredit credit) {
+        List<DonationJdbcRepository.PendingDonation> uncredited =
+                donationJdbcRepository.lockUncreditedAmong(credit.getDonationIds());
+        if (uncredited.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long userId = recipient.userId();
+        List<Long> ids = uncredited.stream().map(DonationJdbcRepository.PendingDonation::id).toList();
+        long amount = uncredited.stream().mapToLong(DonationJdbcRepository.PendingDonation::amount).sum();
+        // The newest donation id in the batch is unique per recipient and keys the entry
+        long refId = ids.get(ids.size() - 1);
+
+        int marked = donationJdbcRepository.markCredited(ids, now);
+        if (marked != ids.size()) {
+            throw new IllegalStateException("Marked " + marked + " of " + ids.size() + " locked donations");
+        }
+        walletBalanceService.credit(userId, recipient.coin(), amount, balance ->
+                ledgerJdbcRepository.insert(new LedgerJdbcRepository.Entry(userId, recipient.coin(),
+                        amount, balance, LedgerReason.EARN, DONATION_BATCH_REF_TYPE, refId,
+                        "donation-batch:" + refId, now)));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() throws InterruptedException {
+        // The writer drains what is queued before it exits, then those credits are flushed too
+        running = false;
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+}
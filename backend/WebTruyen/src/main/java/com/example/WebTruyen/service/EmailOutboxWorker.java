@@ -0,0 +1,231 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import com.example.WebTruyen.entity.model.Notification.EmailOutboxEntity;
+import com.example.WebTruyen.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox. Due mails are first claimed as SENDING under a lease in a short
+ * transaction, so two nodes never send the same mail; each worker then hands a whole chunk
+ * to {@link JavaMailSender#send(SimpleMailMessage...)}, which delivers it over one SMTP
+ * connection. Failed messages are retried with exponential backoff. An attempt is counted
+ * when the mail is claimed, so one reclaimed after an expired lease is not retried forever.
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.retry-base-seconds:10}")
+    private long retryBaseSeconds;
+
+    @Value("${mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private ExecutorService executor;
+    private final AtomicLong pending = new AtomicLong();
+    private Timer sendTimer;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(workers);
+        Gauge.builder("mail.outbox.pending", pending, AtomicLong::get)
+                .description("Mails waiting in the outbox")
+                .register(meterRegistry);
+        sendTimer = Timer.builder("mail.outbox.send.latency")
+                .description("Time to deliver one batch over a single SMTP connection")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("mail.outbox.failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        List<EmailOutboxEntity> due;
+        do {
+            due = claim(batchSize * workers);
+            if (due.isEmpty()) {
+                break;
+            }
+
+            List<EmailOutboxEntity> sendable = new ArrayList<>(due.size());
+            for (EmailOutboxEntity mail : due) {
+                if (mail.getAttempts() > maxAttempts) {
+                    // Its last lease ran out mid-send; the attempts were all spent
+                    giveUp(mail, "Lease expired during the final attempt");
+                } else {
+                    sendable.add(mail);
+                }
+            }
+
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < sendable.size(); from += batchSize) {
+                List<EmailOutboxEntity> chunk = sendable.subList(from, Math.min(from + batchSize, sendable.size()));
+                chunks.add(executor.submit(() -> sendChunk(chunk)));
+            }
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (Exception e) {
+                    log.error("Outbox worker failed", e);
+                }
+            }
+
+            emailOutboxRepository.saveAll(due);
+        } while (due.size() == batchSize * workers);
+
+        pending.set(emailOutboxRepository.countByStatus(EmailOutboxStatus.PENDING));
+    }
+
+    /**
+     * Claims due mails in their own transaction, so the row locks are released before any
+     * SMTP round trip; the SENDING lease keeps other workers off them until it runs out.
+     */
+    List<EmailOutboxEntity> claim(int limit) {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> locked = emailOutboxRepository.lockDue(now, limit);
+            if (!locked.isEmpty()) {
+                emailOutboxRepository.markSending(locked, now.plusSeconds(leaseSeconds));
+            }
+            return locked;
+        });
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<EmailOutboxEntity> claimed = new ArrayList<>(emailOutboxRepository.findAllById(ids));
+        claimed.sort(Comparator.comparing(EmailOutboxEntity::getId));
+        return claimed;
+    }
+
+    private void sendChunk(List<EmailOutboxEntity> chunk) {
+        Map<SimpleMailMessage, EmailOutboxEntity> byMessage = new IdentityHashMap<>();
+        for (EmailOutboxEntity mail : chunk) {
+            byMessage.put(toMessage(mail), mail);
+        }
+        SimpleMailMessage[] messages = byMessage.keySet().toArray(new SimpleMailMessage[0]);
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Object, Exception> failed = Map.of();
+        try {
+            sendTimer.record(() -> mailSender.send(messages));
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                // Connection-level failure: nothing in the chunk was delivered.
+                failed = new IdentityHashMap<>();
+                for (SimpleMailMessage message : messages) {
+                    failed.put(message, e);
+                }
+            }
+        } catch (MailException e) {
+            failed = new IdentityHashMap<>();
+            for (SimpleMailMessage message : messages) {
+                failed.put(message, e);
+            }
+        }
+
+        for (Map.Entry<SimpleMailMessage, EmailOutboxEntity> entry : byMessage.entrySet()) {
+            EmailOutboxEntity mail = entry.getValue();
+            Exception error = failed.get(entry.getKey());
+            if (error == null) {
+                mail.setStatus(EmailOutboxStatus.SENT);
+                mail.setSentAt(now);
+            } else {
+                mail.setStatus(EmailOutboxStatus.PENDING);
+                scheduleRetry(mail, error, now);
+            }
+        }
+    }
+
+    private void scheduleRetry(EmailOutboxEntity mail, Exception error, LocalDateTime now) {
+        // The claim already counted this attempt
+        int attempts = mail.getAttempts();
+        if (attempts >= maxAttempts) {
+            giveUp(mail, error.getMessage());
+        } else {
+            mail.setLastError(truncate(error.getMessage()));
+            mail.setNextAttemptAt(now.plusSeconds(retryBaseSeconds << (Math.max(attempts, 1) - 1)));
+        }
+    }
+
+    private void giveUp(EmailOutboxEntity mail, String error) {
+        mail.setStatus(EmailOutboxStatus.FAILED);
+        mail.setLastError(truncate(error));
+        failedCounter.increment();
+        log.warn("Giving up on mail {} to {} after {} attempts", mail.getId(), mail.getToEmail(), mail.getAttempts());
+    }
+
+    private SimpleMailMessage toMessage(EmailOutboxEntity mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        if (mail.getFromAddress() != null) {
+            message.setFrom(mail.getFromAddress());
+        }
+        message.setTo(mail.getToEmail());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getBody());
+        return message;
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
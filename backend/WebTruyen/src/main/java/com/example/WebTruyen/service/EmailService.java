@@ -1,47 +1,59 @@
 package com.example.WebTruyen.service;
 
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import com.example.WebTruyen.entity.model.Notification.EmailOutboxEntity;
+import com.example.WebTruyen.repository.EmailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
+/**
+ * Builds outgoing mails and stores them in the outbox; {@link EmailOutboxWorker}
+ * delivers them, so callers never wait on the SMTP relay.
+ */
 @Service
 public class EmailService {
 
+    private static final String FROM_ADDRESS = "WebTruyen <noreply@webtruyen.com>";
+
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxRepository emailOutboxRepository;
 
     public void sendVerificationEmail(String toEmail, String code) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("WebTruyen <noreply@webtruyen.com>");
-        message.setTo(toEmail);
-        message.setSubject("Mã xác thực đăng ký WebTruyen");
-        message.setText("Xin chào,\n\nMã xác thực của bạn là: " + code + "\n\nVui lòng không chia sẻ mã này cho ai.");
-
-        mailSender.send(message);
+        enqueue(FROM_ADDRESS, toEmail,
+                "Mã xác thực đăng ký WebTruyen",
+                "Xin chào,\n\nMã xác thực của bạn là: " + code + "\n\nVui lòng không chia sẻ mã này cho ai.");
     }
     
     public void sendOtpEmail(String to, String otp) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("Xác thực tài khoản WebTruyen");
-        message.setText("Mã OTP của bạn là: " + otp + "\n\nMã này có hiệu lực trong 5 phút. Vui lòng không chia sẻ mã này với người khác.");
-        
-        mailSender.send(message);
+        enqueue(null, to,
+                "Xác thực tài khoản WebTruyen",
+                "Mã OTP của bạn là: " + otp + "\n\nMã này có hiệu lực trong 5 phút. Vui lòng không chia sẻ mã này với người khác.");
     }
     
     public void sendPasswordResetEmail(String to, String resetToken) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("WebTruyen <noreply@webtruyen.com>");
-        message.setTo(to);
-        message.setSubject("Đặt lại mật khẩu WebTruyen");
         String resetLink = "http://localhost:5173/reset-password?token=" + resetToken;
-        message.setText("Xin chào,\n\nBạn đã yêu cầu đặt lại mật khẩu cho tài khoản WebTruyen.\n\n" +
+        enqueue(FROM_ADDRESS, to,
+                "Đặt lại mật khẩu WebTruyen",
+                "Xin chào,\n\nBạn đã yêu cầu đặt lại mật khẩu cho tài khoản WebTruyen.\n\n" +
                         "Vui lòng nhấp vào liên kết sau để đặt lại mật khẩu của bạn:\n" +
                         resetLink + "\n\n" +
                         "Liên kết này có hiệu lực trong 15 phút.\n\n" +
                         "Nếu bạn không yêu cầu đặt lại mật khẩu, vui lòng bỏ qua email này.");
-        
-        mailSender.send(message);
+    }
+
+    private void enqueue(String from, String to, String subject, String body) {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.save(EmailOutboxEntity.builder()
+                .fromAddress(from)
+                .toEmail(to)
+                .subject(subject)
+                .body(body)
+                .status(EmailOutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
     }
 }
@@ -0,0 +1,82 @@
+package com.example.WebTruyen.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node {@link LoginAttemptStore}. Updates go through {@link ConcurrentHashMap#compute},
+ * which locks only the bin of the user, so concurrent attempts on different accounts never contend.
+ */
+@Component
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    // Clean entries are kept a little while so a login that read the row before the flush
+    // does not re-seed the store with stale values.
+    private static final long CLEAN_RETENTION_MS = 60_000;
+
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private record Slot(LoginAttemptState state, boolean dirty, long touchedAt) {
+    }
+
+    @Override
+    public LoginAttemptState get(Long userId, LoginAttemptState persisted) {
+        Slot slot = slots.get(userId);
+        return slot != null ? slot.state() : persisted;
+    }
+
+    @Override
+    public LoginAttemptState recordFailure(Long userId, LoginAttemptState persisted, int maxAttempts,
+                                           Duration lockDuration, LocalDateTime now) {
+        Slot updated = slots.compute(userId, (id, slot) -> {
+            LoginAttemptState current = slot != null ? slot.state() : persisted;
+            if (current.isLocked(now)) {
+                // Another request locked the account while this one was verifying the password.
+                return slot != null ? slot : new Slot(current, false, System.currentTimeMillis());
+            }
+            if (current.lockUntil() != null) {
+                current = LoginAttemptState.CLEAR;
+            }
+
+            int attempts = current.failedAttempts() + 1;
+            LoginAttemptState next = attempts >= maxAttempts
+                    ? new LoginAttemptState(0, now.plus(lockDuration))
+                    : new LoginAttemptState(attempts, null);
+            return new Slot(next, true, System.currentTimeMillis());
+        });
+        return updated.state();
+    }
+
+    @Override
+    public void reset(Long userId) {
+        slots.put(userId, new Slot(LoginAttemptState.CLEAR, true, System.currentTimeMillis()));
+    }
+
+    @Override
+    public Map<Long, LoginAttemptState> drainDirty() {
+        Map<Long, LoginAttemptState> drained = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        for (Long userId : slots.keySet()) {
+            slots.computeIfPresent(userId, (id, slot) -> {
+                if (slot.dirty()) {
+                    drained.put(id, slot.state());
+                    return new Slot(slot.state(), false, slot.touchedAt());
+                }
+                return now - slot.touchedAt() > CLEAN_RETENTION_MS ? null : slot;
+            });
+        }
+        return drained;
+    }
+
+    @Override
+    public void restoreDirty(Map<Long, LoginAttemptState> states) {
+        states.forEach((userId, state) -> slots.computeIfPresent(userId, (id, slot) ->
+                !slot.dirty() && slot.state().equals(state) ? new Slot(state, true, slot.touchedAt()) : slot));
+    }
+}
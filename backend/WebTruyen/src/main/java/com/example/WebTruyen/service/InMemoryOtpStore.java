@@ -0,0 +1,127 @@
+package com.example.WebTruyen.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OTP store without a sweeper thread. Each email gets a budget window: the codes issued and
+ * the guesses made within it are counted across resends, so requesting a new code never
+ * buys more guesses. Every window is also appended to a FIFO expiry queue; since all windows
+ * share the same length the head is always the next one to expire, so each write trims
+ * expired heads in O(1) per entry. Memory is bounded by refusing new emails while the store
+ * is full of live windows; a live window is never evicted early, since that would hand its
+ * email a fresh set of guesses.
+ */
+@Component
+public class InMemoryOtpStore implements OtpStore {
+
+    @Value("${otp.store.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${otp.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${otp.max-sends:5}")
+    private int maxSends;
+
+    @Value("${otp.budget-window-ms:3600000}")
+    private long budgetWindowMs;
+
+    private final ConcurrentHashMap<String, OtpBudget> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ExpiryRef> expiryQueue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock expiryLock = new ReentrantLock();
+
+    private static class OtpBudget {
+        private final long windowEndsAt;
+        private final AtomicInteger attempts = new AtomicInteger();
+        // Only touched inside ConcurrentHashMap.compute, which serializes it per email.
+        private int sends;
+        private volatile OtpCode code;
+
+        public OtpBudget(long windowEndsAt) {
+            this.windowEndsAt = windowEndsAt;
+        }
+    }
+
+    private record OtpCode(byte[] otp, long expiresAt) {
+    }
+
+    private record ExpiryRef(String email, OtpBudget budget) {
+    }
+
+    @Override
+    public void put(String email, String otp, Duration ttl) {
+        long now = System.currentTimeMillis();
+        expireHead(now);
+        OtpCode code = new OtpCode(otp.getBytes(StandardCharsets.UTF_8), now + ttl.toMillis());
+        OtpBudget[] created = new OtpBudget[1];
+        entries.compute(email, (key, budget) -> {
+            if (budget == null || budget.windowEndsAt <= now) {
+                if (budget == null && entries.size() >= maxEntries) {
+                    throw new OtpLimitExceededException("Too many OTP requests, please try again later");
+                }
+                budget = new OtpBudget(now + Math.max(budgetWindowMs, ttl.toMillis()));
+                created[0] = budget;
+            } else if (budget.sends >= maxSends) {
+                throw new OtpLimitExceededException("Too many OTP requests, please try again later");
+            }
+            budget.sends++;
+            budget.code = code;
+            return budget;
+        });
+
+        if (created[0] != null) {
+            expiryQueue.add(new ExpiryRef(email, created[0]));
+        }
+    }
+
+    @Override
+    public boolean verify(String email, String otp) {
+        OtpBudget budget = entries.get(email);
+        if (budget == null || otp == null) {
+            return false;
+        }
+        OtpCode code = budget.code;
+        if (code == null || System.currentTimeMillis() >= code.expiresAt()) {
+            return false;
+        }
+
+        // The budget outlives the code, so the guesses used up stay used up after a resend.
+        if (budget.attempts.incrementAndGet() > maxAttempts) {
+            budget.code = null;
+            return false;
+        }
+
+        return MessageDigest.isEqual(code.otp(), otp.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void remove(String email) {
+        entries.remove(email);
+    }
+
+    private void expireHead(long now) {
+        // One writer trims at a time; the others skip instead of waiting.
+        if (!expiryLock.tryLock()) {
+            return;
+        }
+        try {
+            ExpiryRef head;
+            while ((head = expiryQueue.peek()) != null && head.budget().windowEndsAt <= now) {
+                expiryQueue.poll();
+                // Only drop the map entry if it was not replaced by a newer window.
+                entries.remove(head.email(), head.budget());
+            }
+        } finally {
+            expiryLock.unlock();
+        }
+    }
+}
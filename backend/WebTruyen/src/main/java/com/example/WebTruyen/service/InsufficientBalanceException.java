@@ -0,0 +1,15 @@
+package com.example.WebTruyen.service;
+
+public class InsufficientBalanceException extends RuntimeException {
+
+    private final long required;
+
+    public InsufficientBalanceException(String message, long required) {
+        super(message);
+        this.required = required;
+    }
+
+    public long getRequired() {
+        return required;
+    }
+}
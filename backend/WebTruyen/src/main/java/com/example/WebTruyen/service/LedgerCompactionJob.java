@@ -0,0 +1,116 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves ledger entries older than the retention window to ledger_entries_archive. Each batch
+ * first advances the per-user, per-coin checkpoint to its newest archived entry, so a
+ * balance is always one checkpoint plus the live tail. Entries without balance_after are
+ * left in place since no checkpoint can be taken from them.
+ */
+@Component
+public class LedgerCompactionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerCompactionJob.class);
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ledger.compaction.retention-days:180}")
+    private int retentionDays;
+
+    @Value("${ledger.compaction.batch-size:1000}")
+    private int batchSize;
+
+    private Timer compactionTimer;
+    private Counter archivedCounter;
+
+    @PostConstruct
+    void init() {
+        compactionTimer = Timer.builder("ledger.compaction.duration")
+                .register(meterRegistry);
+        archivedCounter = Counter.builder("ledger.compaction.archived")
+                .description("Ledger entries moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${ledger.compaction.cron:0 30 3 * * *}")
+    public void compact() {
+        compactionTimer.record(() -> {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            long cursor = 0;
+            long archived = 0;
+
+            while (true) {
+                List<LedgerJdbcRepository.CompactionRow> batch = ledgerJdbcRepository.findCompactionBatch(cursor, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // Ids grow with time, so the first entry past the cutoff ends the run
+                List<LedgerJdbcRepository.CompactionRow> expired = new ArrayList<>(batch.size());
+                boolean reachedCutoff = false;
+                for (LedgerJdbcRepository.CompactionRow row : batch) {
+                    if (!row.createdAt().isBefore(cutoff)) {
+                        reachedCutoff = true;
+                        break;
+                    }
+                    if (row.balanceAfter() != null) {
+                        expired.add(row);
+                    }
+                }
+
+                if (!expired.isEmpty()) {
+                    Integer moved = transactionTemplate.execute(status -> compactBatch(expired));
+                    archived += moved != null ? moved : 0;
+                }
+                if (reachedCutoff || batch.size() < batchSize) {
+                    break;
+                }
+                cursor = batch.get(batch.size() - 1).id();
+            }
+
+            archivedCounter.increment(archived);
+            if (archived > 0) {
+                log.info("Archived {} ledger entries older than {}", archived, cutoff);
+            }
+        });
+    }
+
+    private int compactBatch(List<LedgerJdbcRepository.CompactionRow> rows) {
+        // Rows are in id order, so the last one seen per user and coin is the newest
+        Map<String, LedgerJdbcRepository.Checkpoint> checkpoints = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (LedgerJdbcRepository.CompactionRow row : rows) {
+            checkpoints.put(row.userId() + ":" + row.coin(),
+                    new LedgerJdbcRepository.Checkpoint(row.userId(), row.coin(), row.id(), row.balanceAfter()));
+            ids.add(row.id());
+        }
+
+        ledgerJdbcRepository.upsertCheckpoints(new ArrayList<>(checkpoints.values()), LocalDateTime.now());
+        return ledgerJdbcRepository.archive(ids);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.LedgerEntryResponse;
+import com.example.WebTruyen.dto.response.LedgerPageResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.util.JsonStreams;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A user's coin history: keyset-paginated pages for the UI and a streaming export that
+ * writes each row as it comes off the cursor, so memory stays flat however long the history.
+ */
+@Service
+public class LedgerHistoryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String CSV_HEADER = "id,coin,delta,balance_after,reason,ref_type,ref_id,created_at\n";
+
+    public enum ExportFormat {CSV, NDJSON}
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    public LedgerPageResponse getPage(Long userId, CoinType coin, LedgerReason reason, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether another page exists
+        List<LedgerEntryResponse> rows = ledgerJdbcRepository.findPage(userId, coin, reason,
+                KeysetCursor.decode(cursor), pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            LedgerEntryResponse last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new LedgerPageResponse(rows, nextCursor);
+    }
+
+    public void export(Long userId, CoinType coin, LedgerReason reason, ExportFormat format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        try {
+            ledgerJdbcRepository.streamHistory(userId, coin, reason, entry -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writeCsv(entry, writer);
+                    } else {
+                        writeJson(entry, writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(LedgerEntryResponse entry, Writer writer) throws IOException {
+        // Every field is a number, an enum name, a timestamp or a ref type, so nothing needs quoting
+        writer.write(String.valueOf(entry.getId()));
+        writer.write(',');
+        writer.write(entry.getCoin().name());
+        writer.write(',');
+        writer.write(Long.toString(entry.getDelta()));
+        writer.write(',');
+        writer.write(entry.getBalanceAfter() != null ? entry.getBalanceAfter().toString() : "");
+        writer.write(',');
+        writer.write(entry.getReason().name());
+        writer.write(',');
+        writer.write(entry.getRefType());
+        writer.write(',');
+        writer.write(String.valueOf(entry.getRefId()));
+        writer.write(',');
+        writer.write(entry.getCreatedAt().toString());
+        writer.write('\n');
+    }
+
+    private void writeJson(LedgerEntryResponse entry, Writer writer) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(entry.getId()));
+        writer.write(",\"coin\":\"");
+        writer.write(entry.getCoin().name());
+        writer.write("\",\"delta\":");
+        writer.write(Long.toString(entry.getDelta()));
+        writer.write(",\"balanceAfter\":");
+        writer.write(entry.getBalanceAfter() != null ? entry.getBalanceAfter().toString() : "null");
+        writer.write(",\"reason\":\"");
+        writer.write(entry.getReason().name());
+        writer.write("\",\"refType\":");
+        JsonStreams.writeString(entry.getRefType(), writer);
+        writer.write(",\"refId\":");
+        writer.write(String.valueOf(entry.getRefId()));
+        writer.write(",\"createdAt\":\"");
+        writer.write(entry.getCreatedAt().toString());
+        writer.write("\"}\n");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.UserJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Periodically persists login bookkeeping collected by {@link LoginAttemptStore}.
+ * Many attempts on the same account between two runs collapse into a single row update.
+ */
+@Component
+public class LoginAttemptFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptFlusher.class);
+
+    @Autowired
+    private LoginAttemptStore loginAttemptStore;
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Scheduled(fixedDelayString = "${auth.login-attempts.flush-interval-ms:2000}")
+    public void flush() {
+        Map<Long, LoginAttemptState> dirty = loginAttemptStore.drainDirty();
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        try {
+            userJdbcRepository.batchUpdateLoginState(dirty);
+        } catch (RuntimeException e) {
+            log.warn("Could not flush login state for {} users, will retry", dirty.size(), e);
+            loginAttemptStore.restoreDirty(dirty);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+
+import java.time.LocalDateTime;
+
+public record LoginAttemptState(int failedAttempts, LocalDateTime lockUntil) {
+
+    public static final LoginAttemptState CLEAR = new LoginAttemptState(0, null);
+
+    public static LoginAttemptState of(UserEntity user) {
+        return new LoginAttemptState(user.getFailedLoginAttempts(), user.getLockUntil());
+    }
+
+    public boolean isLocked(LocalDateTime now) {
+        return lockUntil != null && lockUntil.isAfter(now);
+    }
+
+    public boolean isClear() {
+        return failedAttempts == 0 && lockUntil == null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.WebTruyen.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Holds failed-login counters and lock deadlines outside the users table.
+ * Implementations decide lockouts on their own and hand back dirty state for
+ * {@link LoginAttemptFlusher} to persist, so a shared backend can give every
+ * replica the same view while the in-process one serves a single node.
+ */
+public interface LoginAttemptStore {
+
+    /**
+     * Current state of the user; {@code persisted} seeds the store the first time the user is seen.
+     */
+    LoginAttemptState get(Long userId, LoginAttemptState persisted);
+
+    /**
+     * Counts one failed attempt and locks the account once {@code maxAttempts} is reached.
+     */
+    LoginAttemptState recordFailure(Long userId, LoginAttemptState persisted, int maxAttempts,
+                                    Duration lockDuration, LocalDateTime now);
+
+    void reset(Long userId);
+
+    /**
+     * Returns the states changed since the last drain and marks them clean.
+     */
+    Map<Long, LoginAttemptState> drainDirty();
+
+    /**
+     * Marks states as dirty again after a failed flush, unless they changed in the meantime.
+     */
+    void restoreDirty(Map<Long, LoginAttemptState> states);
+}
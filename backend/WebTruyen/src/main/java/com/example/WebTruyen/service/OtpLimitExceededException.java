@@ -0,0 +1,8 @@
+package com.example.WebTruyen.service;
+
+public class OtpLimitExceededException extends RuntimeException {
+
+    public OtpLimitExceededException(String message) {
+        super(message);
+    }
+}
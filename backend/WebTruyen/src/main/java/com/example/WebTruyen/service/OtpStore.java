@@ -0,0 +1,25 @@
+package com.example.WebTruyen.service;
+
+import java.time.Duration;
+
+/**
+ * Backing store for pending OTP codes. The in-process implementation serves a single
+ * node; a shared implementation lets every instance validate codes issued by the others.
+ */
+public interface OtpStore {
+
+    /**
+     * Stores the code for the email, replacing any previous one. Attempts already made against
+     * earlier codes still count; throws {@link OtpLimitExceededException} once the email has
+     * been sent too many codes.
+     */
+    void put(String email, String otp, Duration ttl);
+
+    /**
+     * Checks the code and counts the attempt. Returns false once the code is expired,
+     * missing, wrong, or the attempt limit for the email has been used up.
+     */
+    boolean verify(String email, String otp);
+
+    void remove(String email);
+}
@@ -0,0 +1,7 @@
+package com.example.WebTruyen.service;
+
+public class PaymentAmountMismatchException extends RuntimeException {
+    public PaymentAmountMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.WebTruyen.service;
+
+public class PaymentCallbackRejectedException extends RuntimeException {
+    public PaymentCallbackRejectedException(String message) {
+        super(message);
+    }
+}
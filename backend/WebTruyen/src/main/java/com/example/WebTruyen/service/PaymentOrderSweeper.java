@@ -0,0 +1,77 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.PaymentOrderJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels top-up orders left PENDING past the expiry window. Each batch claims its rows with
+ * SKIP LOCKED and commits on its own, so any number of nodes can run the sweep without
+ * electing a leader and no transaction holds more than one batch of locks.
+ */
+@Component
+public class PaymentOrderSweeper {
+
+    @Autowired
+    private PaymentOrderJdbcRepository paymentOrderJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payment.order.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${payment.sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${payment.sweeper.max-batches:100}")
+    private int maxBatches;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private Timer sweepTimer;
+    private Counter cancelledCounter;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("payment.orders.expired-backlog", backlog, AtomicLong::get)
+                .description("Expired PENDING orders left after the last sweep")
+                .register(meterRegistry);
+        sweepTimer = Timer.builder("payment.sweeper.duration")
+                .register(meterRegistry);
+        cancelledCounter = Counter.builder("payment.orders.cancelled")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.sweeper.interval-ms:60000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(expireMinutes);
+        sweepTimer.record(() -> {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                Integer claimed = transactionTemplate.execute(status -> {
+                    List<Long> ids = paymentOrderJdbcRepository.claimExpired(cutoff, batchSize);
+                    cancelledCounter.increment(paymentOrderJdbcRepository.cancel(ids));
+                    return ids.size();
+                });
+                if (claimed == null || claimed < batchSize) {
+                    break;
+                }
+            }
+        });
+        backlog.set(paymentOrderJdbcRepository.countExpired(cutoff));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.PaymentOrderResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import com.example.WebTruyen.entity.model.Payment.PaymentOrderEntity;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.PaymentCallbackJdbcRepository;
+import com.example.WebTruyen.repository.PaymentOrderJdbcRepository;
+import com.example.WebTruyen.repository.PaymentOrderRepository;
+import com.example.WebTruyen.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Top-ups. Gateway callbacks are verified and written to the payment_callbacks inbox before
+ * the gateway is acknowledged, then settled from there, one callback per transaction. Every
+ * step is idempotent: the order status moves with a compare-and-set on its order code and the
+ * TOPUP ledger row is keyed by it, so duplicate and out-of-order callbacks change nothing.
+ */
+@Service
+public class PaymentService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
+    static final String PAYMENT_REF_TYPE = "PAYMENT_ORDER";
+    static final int MAX_SETTLE_ATTEMPTS = 3;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private PaymentOrderJdbcRepository paymentOrderJdbcRepository;
+
+    @Autowired
+    private PaymentCallbackJdbcRepository paymentCallbackJdbcRepository;
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletBalanceService walletBalanceService;
+
+    @Autowired
+    private PaymentSignatureVerifier signatureVerifier;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payment.vnd-per-coin-b:100}")
+    private long vndPerCoinB;
+
+    @Value("${payment.callback.batch-size:200}")
+    private int batchSize;
+
+    private Counter settledCounter;
+    private Counter rejectedCounter;
+    private Counter mismatchCounter;
+
+    @PostConstruct
+    void init() {
+        settledCounter = Counter.builder("payment.callbacks.settled")
+                .description("Callbacks that changed an order's status")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("payment.callbacks.rejected")
+                .register(meterRegistry);
+        mismatchCounter = Counter.builder("payment.callbacks.amount-mismatch")
+                .description("PAID callbacks held for review because the amount differs from the order")
+                .register(meterRegistry);
+    }
+
+    public PaymentOrderResponse createOrder(Long userId, Long amountVnd) {
+        if (amountVnd == null || amountVnd < vndPerCoinB) {
+            throw new RuntimeException("Amount is below the smallest top-up");
+        }
+        PaymentOrderEntity order = PaymentOrderEntity.builder()
+                .user(userRepository.getReferenceById(userId))
+                .orderCode(UUID.randomUUID().toString().replace("-", ""))
+                .amountVnd(amountVnd)
+                .coinBAmount(amountVnd / vndPerCoinB)
+                .status(PaymentOrderStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+        paymentOrderRepository.save(order);
+        return new PaymentOrderResponse(order.getOrderCode(), order.getAmountVnd(), order.getCoinBAmount(),
+                order.getStatus());
+    }
+
+    /**
+     * Verifies a callback and stores it in the inbox. Only return 2xx to the gateway after
+     * this returned: from then on the callback survives a restart.
+     *
+     * @throws PaymentCallbackRejectedException if the callback is malformed or badly signed
+     */
+    public void submitCallback(String orderCode, PaymentOrderStatus status, Long amountVnd, String signature) {
+        if (orderCode == null || amountVnd == null
+                || (status != PaymentOrderStatus.PAID && status != PaymentOrderStatus.FAILED)) {
+            rejectedCounter.increment();
+            throw new PaymentCallbackRejectedException("Malformed callback");
+        }
+        if (!signatureVerifier.verify(orderCode, status, amountVnd, signature)) {
+            rejectedCounter.increment();
+            throw new PaymentCallbackRejectedException("Invalid signature");
+        }
+        paymentCallbackJdbcRepository.insert(orderCode, status, amountVnd, LocalDateTime.now());
+    }
+
+    /**
+     * Settles unprocessed inbox callbacks, each in its own transaction so a credit only holds
+     * its user's wallet lock until that one callback commits.
+     */
+    @Scheduled(fixedDelayString = "${payment.callback.poll-interval-ms:200}")
+    public void drain() {
+        List<Long> due;
+        do {
+            due = paymentCallbackJdbcRepository.findDue(MAX_SETTLE_ATTEMPTS, batchSize);
+            int settled = 0;
+            for (Long id : due) {
+                if (settleOne(id)) {
+                    settled++;
+                }
+            }
+            if (settled == 0) {
+                // Everything left is held by another node or failing; pick it up next run
+                return;
+            }
+        } while (due.size() == batchSize);
+    }
+
+    private boolean settleOne(long id) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    paymentCallbackJdbcRepository.claim(id)
+                            .map(callback -> {
+                                settle(callback);
+                                paymentCallbackJdbcRepository.markProcessed(callback.id(), LocalDateTime.now());
+                                return true;
+                            })
+                            .orElse(false)));
+        } catch (PaymentAmountMismatchException e) {
+            // Money arrived but not the amount ordered: neither credit nor drop it
+            mismatchCounter.increment();
+            log.error("Payment callback {} held for review: {}", id, e.getMessage());
+            paymentCallbackJdbcRepository.holdForReview(id, MAX_SETTLE_ATTEMPTS, e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            int attempts = paymentCallbackJdbcRepository.recordFailure(id, e.getMessage());
+            if (attempts >= MAX_SETTLE_ATTEMPTS) {
+                // The row stays in the inbox; a gateway redelivery adds a fresh one
+                rejectedCounter.increment();
+                log.error("Giving up on payment callback {} after {} attempts", id, attempts, e);
+            } else {
+                log.warn("Settling payment callback {} failed, will retry", id, e);
+            }
+            return false;
+        }
+    }
+
+    private void settle(PaymentCallbackJdbcRepository.InboxCallback callback) {
+        if (callback.status() == PaymentOrderStatus.FAILED) {
+            if (paymentOrderJdbcRepository.markFailed(callback.orderCode())) {
+                settledCounter.increment();
+            }
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!paymentOrderJdbcRepository.markPaid(callback.orderCode(), callback.amountVnd(), now)) {
+            Long orderedVnd = paymentOrderJdbcRepository.findAmountVnd(callback.orderCode()).orElse(null);
+            if (orderedVnd != null && orderedVnd != callback.amountVnd()) {
+                throw new PaymentAmountMismatchException("Order " + callback.orderCode() + " expects " + orderedVnd
+                        + " VND but the gateway reported " + callback.amountVnd());
+            }
+            // Already paid or unknown order
+            return;
+        }
+        PaymentOrderJdbcRepository.Settlement order = paymentOrderJdbcRepository.findSettlement(callback.orderCode())
+                .orElseThrow(() -> new IllegalStateException("Order vanished: " + callback.orderCode()));
+        walletBalanceService.credit(order.userId(), CoinType.B, order.coinBAmount(), balance ->
+                ledgerJdbcRepository.insert(new LedgerJdbcRepository.Entry(order.userId(), CoinType.B,
+                        order.coinBAmount(), balance, LedgerReason.TOPUP, PAYMENT_REF_TYPE, order.orderId(),
+                        "topup:" + callback.orderCode(), now)));
+        settledCounter.increment();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Signs and checks gateway callbacks: hex HMAC-SHA256 over "orderCode|status|amountVnd".
+ */
+@Component
+public class PaymentSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${payment.gateway.secret}")
+    private String secret;
+
+    public String sign(String orderCode, PaymentOrderStatus status, long amountVnd) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            byte[] digest = mac.doFinal((orderCode + "|" + status + "|" + amountVnd).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    public boolean verify(String orderCode, PaymentOrderStatus status, long amountVnd, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        byte[] expected = sign(orderCode, status, amountVnd).getBytes(StandardCharsets.US_ASCII);
+        // Constant-time comparison
+        return MessageDigest.isEqual(expected, signature.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.BookmarkJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading positions reported by clients every few seconds. Only the latest position per
+ * (user, chapter) is kept in memory; earlier reports for the same chapter are dropped, and
+ * the survivors are written to bookmarks in batches on an interval and on shutdown.
+ * Positions not yet flushed are lost if the node dies, which is acceptable for progress.
+ * Each user may only hold a few chapters in the buffer, so one client cannot fill it for all.
+ */
+@Service
+public class ReadingProgressService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingProgressService.class);
+    private static final BigDecimal MAX_PERCENT = BigDecimal.valueOf(100);
+
+    @Autowired
+    private BookmarkJdbcRepository bookmarkJdbcRepository;
+
+    @Autowired
+    private ContinueReadingService continueReadingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reading.progress.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    @Value("${reading.progress.max-pending:200000}")
+    private int maxPending;
+
+    @Value("${reading.progress.max-pending-per-user:50}")
+    private int maxPendingPerUser;
+
+    private record Key(long userId, long chapterId) {
+    }
+
+    // dirtySinceNanos is carried over when a report replaces another, so lag covers the whole wait
+    private record Pending(int segmentSeq, BigDecimal positionPercent, LocalDateTime readAt, long dirtySinceNanos) {
+    }
+
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    // Buffered chapters per user. Every insert into or removal from pending happens inside
+    // compute on the user's slot here, which keeps the two maps in step.
+    private final ConcurrentHashMap<Long, Integer> pendingPerUser = new ConcurrentHashMap<>();
+    private Counter reportedCounter;
+    private Counter writtenCounter;
+    private Timer flushLag;
+
+    @PostConstruct
+    void init() {
+        reportedCounter = Counter.builder("reading.progress.reported")
+                .description("Progress reports received")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("reading.progress.written")
+                .description("Progress rows written to bookmarks")
+                .register(meterRegistry);
+        flushLag = Timer.builder("reading.progress.flush.lag")
+                .description("Time from a position first becoming dirty to it being written")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("reading.progress.pending", pending, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("reading.progress.coalescing-ratio", this, ReadingProgressService::coalescingRatio)
+                .description("Reports received per row written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers the reader's position; a later report for the same chapter replaces it.
+     */
+    public void report(Long userId, Long chapterId, Integer segmentSeq, BigDecimal positionPercent) {
+        if (chapterId == null || segmentSeq == null || segmentSeq < 1) {
+            throw new IllegalArgumentException("chapterId and segmentSeq are required");
+        }
+        if (positionPercent == null || positionPercent.signum() < 0 || positionPercent.compareTo(MAX_PERCENT) > 0) {
+            throw new IllegalArgumentException("positionPercent must be between 0 and 100");
+        }
+
+        Key key = new Key(userId, chapterId);
+        Pending position = new Pending(segmentSeq, positionPercent.setScale(2, RoundingMode.HALF_UP),
+                LocalDateTime.now(), System.nanoTime());
+        boolean[] dropped = new boolean[1];
+        pendingPerUser.compute(userId, (id, held) -> {
+            Pending previous = pending.get(key);
+            if (previous != null) {
+                pending.put(key, new Pending(position.segmentSeq(), position.positionPercent(), position.readAt(),
+                        previous.dirtySinceNanos()));
+                return held;
+            }
+            int count = held == null ? 0 : held;
+            if (count >= maxPendingPerUser || pending.size() >= maxPending) {
+                dropped[0] = true;
+                return held;
+            }
+            pending.put(key, position);
+            return count + 1;
+        });
+        if (dropped[0]) {
+            // Either this reader has too many chapters open or the database is falling behind;
+            // a missed position is harmless
+            log.debug("Reading progress buffer full, dropping report for user {}", userId);
+            return;
+        }
+        reportedCounter.increment();
+    }
+
+    /**
+     * Writes the buffered positions in batches. An entry is only taken out of the buffer if no
+     * newer report replaced it meanwhile; a failed batch is put back unless a newer one arrived.
+     */
+    @Scheduled(fixedDelayString = "${reading.progress.flush-interval-ms:5000}")
+    public void flush() {
+        List<Map.Entry<Key, Pending>> batch = new ArrayList<>(Math.min(pending.size(), flushBatchSize));
+        for (Map.Entry<Key, Pending> entry : pending.entrySet()) {
+            Pending position = entry.getValue();
+            if (take(entry.getKey(), position)) {
+                batch.add(Map.entry(entry.getKey(), position));
+            }
+            if (batch.size() >= flushBatchSize) {
+                write(batch);
+                batch = new ArrayList<>(flushBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<Map.Entry<Key, Pending>> batch) {
+        List<BookmarkJdbcRepository.Progress> rows = new ArrayList<>(batch.size());
+        for (Map.Entry<Key, Pending> entry : batch) {
+            Pending position = entry.getValue();
+            rows.add(new BookmarkJdbcRepository.Progress(entry.getKey().userId(), entry.getKey().chapterId(),
+                    position.segmentSeq(), position.positionPercent(), position.readAt()));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookmarkJdbcRepository.batchUpsertProgress(rows));
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} reading positions, will retry", batch.size(), e);
+            batch.forEach(entry -> restore(entry.getKey(), entry.getValue()));
+            return;
+        }
+
+        long now = System.nanoTime();
+        Set<Long> userIds = new HashSet<>();
+        for (Map.Entry<Key, Pending> entry : batch) {
+            flushLag.record(now - entry.getValue().dirtySinceNanos(), TimeUnit.NANOSECONDS);
+            userIds.add(entry.getKey().userId());
+        }
+        continueReadingService.invalidate(userIds);
+        writtenCounter.increment(batch.size());
+    }
+
+    private boolean take(Key key, Pending position) {
+        boolean[] taken = new boolean[1];
+        pendingPerUser.computeIfPresent(key.userId(), (id, held) -> {
+            if (!pending.remove(key, position)) {
+                return held;
+            }
+            taken[0] = true;
+            return held > 1 ? held - 1 : null;
+        });
+        return taken[0];
+    }
+
+    private void restore(Key key, Pending position) {
+        pendingPerUser.compute(key.userId(), (id, held) -> {
+            int count = held == null ? 0 : held;
+            return pending.putIfAbsent(key, position) == null ? count + 1 : held;
+        });
+    }
+
+    private double coalescingRatio() {
+        double written = writtenCounter.count();
+        return written == 0 ? 0 : reportedCounter.count() / written;
+    }
+}
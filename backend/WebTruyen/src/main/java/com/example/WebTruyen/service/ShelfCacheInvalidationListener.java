@@ -0,0 +1,28 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.SocialLibrary.LibraryEntryEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on library entries: adding, removing or (un)favoriting a story drops the
+ * owner's cached continue-reading shelf.
+ */
+@Component
+public class ShelfCacheInvalidationListener {
+
+    @Autowired
+    private ContinueReadingService continueReadingService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(LibraryEntryEntity entry) {
+        if (entry.getUser() != null) {
+            continueReadingService.invalidate(entry.getUser().getId());
+        }
+    }
+}
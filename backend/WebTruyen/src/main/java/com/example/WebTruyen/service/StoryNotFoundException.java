@@ -0,0 +1,8 @@
+package com.example.WebTruyen.service;
+
+public class StoryNotFoundException extends RuntimeException {
+
+    public StoryNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.TocRow;
+import com.example.WebTruyen.dto.response.ChapterTocResponse;
+import com.example.WebTruyen.dto.response.StoryTocResponse;
+import com.example.WebTruyen.dto.response.VolumeTocResponse;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.StoryRepository;
+import com.example.WebTruyen.repository.VolumeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds a story's table of contents from one projection query (volumes left-joined to their
+ * published chapters, ordered by sequenceIndex) and keeps the result per story until the
+ * story or one of its volumes or chapters changes. Stories readers cannot see (missing, not
+ * published, or private) throw {@link StoryNotFoundException} and are never cached.
+ */
+@Service
+public class StoryTocService {
+
+    @Autowired
+    private VolumeRepository volumeRepository;
+
+    @Autowired
+    private StoryRepository storyRepository;
+
+    @Value("${reader.toc-cache.max-stories:2000}")
+    private int maxStories;
+
+    /**
+     * A built TOC plus the reading order of its chapters: {@code chapterIds[ordinal]} and the
+     * reverse {@code ordinals} map. A new instance is built whenever the TOC changes, so other
+     * caches can tell by identity whether ordinals they stored are still valid.
+     */
+    public record StoryToc(StoryTocResponse response, List<Long> chapterIds, Map<Long, Integer> ordinals) {
+    }
+
+    private final Map<Long, StoryToc> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+
+    public StoryTocResponse getToc(Long storyId) {
+        return getStoryToc(storyId).response();
+    }
+
+    public StoryToc getStoryToc(Long storyId) {
+        synchronized (cache) {
+            StoryToc cached = cache.get(storyId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long generationBefore = generation.get();
+        StoryToc toc = load(storyId);
+        synchronized (cache) {
+            if (generation.get() != generationBefore) {
+                // Something was invalidated while loading; the result may already be stale.
+                return toc;
+            }
+            cache.put(storyId, toc);
+            if (cache.size() > maxStories) {
+                Long eldest = cache.keySet().iterator().next();
+                cache.remove(eldest);
+            }
+        }
+        return toc;
+    }
+
+    public void invalidate(Long storyId) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.remove(storyId);
+        }
+    }
+
+    private StoryToc load(Long storyId) {
+        if (!storyRepository.existsByIdAndStatusAndVisibilityNot(storyId, StoryStatus.published,
+                StoryVisibility.private_)) {
+            throw new StoryNotFoundException("Story not found");
+        }
+        List<TocRow> rows = volumeRepository.findTocRows(storyId, ChapterStatus.published);
+
+        List<VolumeTocResponse> volumes = new ArrayList<>();
+        List<Long> chapterIds = new ArrayList<>();
+        Map<Long, Integer> ordinals = new HashMap<>();
+        List<ChapterTocResponse> currentChapters = null;
+        Long currentVolumeId = null;
+        for (TocRow row : rows) {
+            if (currentChapters == null || !currentVolumeId.equals(row.getVolumeId())) {
+                currentVolumeId = row.getVolumeId();
+                currentChapters = new ArrayList<>();
+                // Shared between readers, so hand out read-only views
+                volumes.add(new VolumeTocResponse(row.getVolumeId(), row.getVolumeTitle(),
+                        row.getVolumeSequenceIndex(), Collections.unmodifiableList(currentChapters)));
+            }
+            if (row.getChapterId() != null) {
+                currentChapters.add(new ChapterTocResponse(row.getChapterId(), row.getChapterTitle(),
+                        row.getChapterSequenceIndex(), Boolean.TRUE.equals(row.getFree()),
+                        row.getPriceCoin(), row.getStatus()));
+                ordinals.put(row.getChapterId(), chapterIds.size());
+                chapterIds.add(row.getChapterId());
+            }
+        }
+
+        StoryTocResponse response = new StoryTocResponse(storyId, Collections.unmodifiableList(volumes), null);
+        return new StoryToc(response, Collections.unmodifiableList(chapterIds), Collections.unmodifiableMap(ordinals));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.Content.ChapterEntity;
+import com.example.WebTruyen.entity.model.Content.StoryEntity;
+import com.example.WebTruyen.entity.model.Content.VolumeEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on stories, volumes and chapters: adding, reordering, retitling, publishing
+ * or hiding drops the cached TOC of the owning story. The entry is dropped again after
+ * commit, since a reader may have reloaded the old rows in between.
+ */
+@Component
+public class TocCacheInvalidationListener {
+
+    @Autowired
+    private StoryTocService storyTocService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof StoryEntity story) {
+            invalidate(story.getId());
+            return;
+        }
+
+        VolumeEntity volume = null;
+        if (entity instanceof VolumeEntity changedVolume) {
+            volume = changedVolume;
+        } else if (entity instanceof ChapterEntity chapter) {
+            volume = chapter.getVolume();
+        }
+
+        if (volume != null && volume.getStory() != null) {
+            invalidate(volume.getStory().getId());
+        }
+    }
+
+    private void invalidate(Long storyId) {
+        storyTocService.invalidate(storyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    storyTocService.invalidate(storyId);
+                }
+            });
+        }
+    }
+}
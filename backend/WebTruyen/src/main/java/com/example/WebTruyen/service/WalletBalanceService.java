@@ -0,0 +1,199 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.WalletResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.WalletJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Wallet balances, with the wallet row as the arbiter. A debit or credit changes the row with a
+ * conditional update inside the caller's transaction and then appends its ledger row (carrying
+ * balance_after). The row lock orders one user's changes on every node and is released at
+ * commit, so users never wait on each other and a rollback undoes both writes.
+ * <p>
+ * Reads are served from a short-lived, read-through copy of the row. A commit on this node drops
+ * the copy; other nodes see the change once their copy expires.
+ */
+@Service
+public class WalletBalanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletBalanceService.class);
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wallet.cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${wallet.cache.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Value("${wallet.verify.batch-size:500}")
+    private int verifyBatchSize;
+
+    private final ConcurrentHashMap<Long, CachedWallet> wallets = new ConcurrentHashMap<>();
+    private Iterator<Long> verifyCursor;
+    private Counter divergenceCounter;
+
+    /**
+     * A copy of the row read at {@code stampNanos}, or, when {@code balances} is null, a marker
+     * that a change committed at {@code stampNanos}. A load only replaces an older stamp, so a
+     * read that raced with a commit never caches the pre-commit balances.
+     */
+    private record CachedWallet(WalletResponse balances, long stampNanos) {
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("wallet.cache.size", wallets, Map::size)
+                .register(meterRegistry);
+        divergenceCounter = Counter.builder("wallet.cache.divergence")
+                .description("Wallet rows found to differ from the ledger")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The balances as of a recent committed change, from the cached copy when it is fresh.
+     */
+    public WalletResponse getBalances(Long userId) {
+        long now = System.nanoTime();
+        CachedWallet cached = wallets.get(userId);
+        if (cached != null && cached.balances() != null && !isExpired(cached, now)) {
+            return cached.balances();
+        }
+
+        WalletResponse balances = walletJdbcRepository.find(userId)
+                .map(row -> new WalletResponse(row.coinA(), row.coinB(), row.reservedCoinB()))
+                .orElseGet(() -> new WalletResponse(0L, 0L, 0L));
+        CachedWallet loaded = new CachedWallet(balances, now);
+        wallets.merge(userId, loaded,
+                (current, fresh) -> current.stampNanos() - fresh.stampNanos() > 0 ? current : fresh);
+        return balances;
+    }
+
+    /**
+     * Debits the wallet inside the current transaction. {@code ledgerWriter} receives the
+     * balance after the debit and must append the matching ledger row(s); it runs after the
+     * wallet row changed, in the same transaction, so a failing insert rolls both back.
+     *
+     * @return the balance after the debit
+     * @throws InsufficientBalanceException if the balance does not cover the amount
+     */
+    public long debit(Long userId, CoinType coin, long amount, LongConsumer ledgerWriter) {
+        return apply(userId, coin, -amount, ledgerWriter);
+    }
+
+    /**
+     * Credits the wallet inside the current transaction, see {@link #debit}.
+     */
+    public long credit(Long userId, CoinType coin, long amount, LongConsumer ledgerWriter) {
+        return apply(userId, coin, amount, ledgerWriter);
+    }
+
+    private long apply(Long userId, CoinType coin, long delta, LongConsumer ledgerWriter) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Wallet changes must run inside a transaction");
+        }
+
+        long balanceAfter = walletJdbcRepository.applyDelta(userId, coin, delta, LocalDateTime.now())
+                .orElseThrow(() -> new InsufficientBalanceException("Not enough coins", -delta));
+        ledgerWriter.accept(balanceAfter);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wallets.put(userId, new CachedWallet(null, System.nanoTime()));
+            }
+        });
+        return balanceAfter;
+    }
+
+    /**
+     * Drops expired copies, then the least recently loaded ones down to the configured size.
+     */
+    @Scheduled(fixedDelayString = "${wallet.cache.evict-interval-ms:2000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        wallets.values().removeIf(cached -> isExpired(cached, now));
+
+        int excess = wallets.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        List<Long> oldest = wallets.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().stampNanos()))
+                .sorted(Map.Entry.comparingByValue())
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList();
+        oldest.forEach(wallets::remove);
+    }
+
+    /**
+     * Compares the rows of a rotating slice of recently read wallets with the latest ledger
+     * balance_after. Each check holds the row lock, so no change of that user is in flight.
+     * A difference is reported, not repaired: the row is the balance every spend was checked
+     * against, so fixing it is a manual decision.
+     */
+    @Scheduled(fixedDelayString = "${wallet.verify-interval-ms:60000}")
+    public void verify() {
+        if (verifyCursor == null || !verifyCursor.hasNext()) {
+            verifyCursor = wallets.keySet().iterator();
+        }
+        for (int checked = 0; checked < verifyBatchSize && verifyCursor.hasNext(); checked++) {
+            Long userId = verifyCursor.next();
+            transactionTemplate.executeWithoutResult(status -> verify(userId));
+        }
+    }
+
+    private void verify(Long userId) {
+        Optional<WalletJdbcRepository.Balances> row = walletJdbcRepository.findForUpdate(userId);
+        if (row.isEmpty()) {
+            return;
+        }
+        Map<CoinType, Long> ledger = ledgerJdbcRepository.latestBalances(userId);
+        for (Map.Entry<CoinType, Long> entry : ledger.entrySet()) {
+            long stored = entry.getKey() == CoinType.A ? row.get().coinA() : row.get().coinB();
+            if (stored != entry.getValue()) {
+                divergenceCounter.increment();
+                log.error("Wallet row diverged from the ledger for user {} coin {}: row {}, ledger {}",
+                        userId, entry.getKey(), stored, entry.getValue());
+            }
+        }
+    }
+
+    private boolean isExpired(CachedWallet cached, long now) {
+        return now - cached.stampNanos() >= TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+}
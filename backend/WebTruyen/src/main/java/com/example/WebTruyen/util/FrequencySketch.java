@@ -0,0 +1,62 @@
+package com.example.WebTruyen.util;
+
+/**
+ * Approximate access counter (count-min sketch with small saturating counters) used for
+ * TinyLFU-style cache admission. Counts are halved periodically so old popularity fades.
+ * Not thread-safe; callers guard it with the cache lock.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[][] counters;
+    private final int mask;
+    private final int resetThreshold;
+    private int additions;
+
+    public FrequencySketch(int expectedItems) {
+        int width = Integer.highestOneBit(Math.max(64, expectedItems) - 1) << 1;
+        this.counters = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.resetThreshold = width * 10;
+    }
+
+    public void increment(long key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(key, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= resetThreshold) {
+            reset();
+        }
+    }
+
+    public int frequency(long key) {
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[row][index(key, row)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (int[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int index(long key, int row) {
+        long hash = (key ^ (key >>> 32)) * SEEDS[row];
+        hash ^= hash >>> 29;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.WebTruyen.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Writes JSON string literals from a Reader without building the whole String first.
+ */
+public final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    public static void writeString(Reader in, Writer out) throws IOException {
+        out.write('"');
+        if (in != null) {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                writeEscaped(buffer, read, out);
+            }
+        }
+        out.write('"');
+    }
+
+    public static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        if (value != null) {
+            writeEscaped(value.toCharArray(), value.length(), out);
+        }
+        out.write('"');
+    }
+
+    private static void writeEscaped(char[] chars, int length, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            String escape = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (escape != null) {
+                out.write(chars, start, i - start);
+                out.write(escape);
+                start = i + 1;
+            }
+        }
+        out.write(chars, start, length - start);
+    }
+}
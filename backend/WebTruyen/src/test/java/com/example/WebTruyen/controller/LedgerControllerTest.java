@@ -0,0 +1,130 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.dto.response.LedgerEntryResponse;
+import com.example.WebTruyen.dto.response.LedgerPageResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.entity.model.CoreIdentity.RoleEntity;
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.entity.model.CoreIdentity.UserRoleEntity;
+import com.example.WebTruyen.repository.UserRepository;
+import com.example.WebTruyen.security.JwtTokenProvider;
+import com.example.WebTruyen.security.SecurityConfig;
+import com.example.WebTruyen.security.VerifiedTokenCache;
+import com.example.WebTruyen.service.LedgerHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(LedgerController.class)
+@Import({SecurityConfig.class, JwtTokenProvider.class, VerifiedTokenCache.class})
+class LedgerControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private LedgerHistoryService ledgerHistoryService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        UserEntity user = UserEntity.builder()
+                .id(1L)
+                .username("reader")
+                .verified(true)
+                .build();
+        user.setUserRoles(List.of(UserRoleEntity.builder().user(user)
+                .role(RoleEntity.builder().code("READER").build()).build()));
+        when(userRepository.findWithRolesByUsername("reader")).thenReturn(Optional.of(user));
+        token = "Bearer " + tokenProvider.generateToken(1L, "reader");
+    }
+
+    @Test
+    void historyPageCarriesTheNextCursor() throws Exception {
+        LedgerEntryResponse entry = new LedgerEntryResponse(9L, CoinType.B, 100, 100L, LedgerReason.TOPUP,
+                "PAYMENT_ORDER", 3L, LocalDateTime.of(2025, 3, 1, 12, 0));
+        when(ledgerHistoryService.getPage(1L, CoinType.B, null, "abc", 1))
+                .thenReturn(new LedgerPageResponse(List.of(entry), "next"));
+
+        mockMvc.perform(get("/api/ledger")
+                        .header("Authorization", token)
+                        .param("coin", "B")
+                        .param("cursor", "abc")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(9))
+                .andExpect(jsonPath("$.items[0].reason").value("TOPUP"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void aBadCursorIsABadRequest() throws Exception {
+        when(ledgerHistoryService.getPage(1L, null, null, "forged", 20))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/ledger")
+                        .header("Authorization", token)
+                        .param("cursor", "forged"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor"));
+    }
+
+    @Test
+    void historyNeedsALogin() throws Exception {
+        // No entry point is configured, so Spring Security answers anonymous calls with 403
+        mockMvc.perform(get("/api/ledger"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void exportStreamsAnAttachment() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(ledgerHistoryService).export(eq(1L), isNull(), isNull(),
+                eq(LedgerHistoryService.ExportFormat.CSV), any());
+
+        MvcResult started = mockMvc.perform(get("/api/ledger/export")
+                        .header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"ledger.csv\""))
+                .andExpect(content().string("id\n1\n"));
+    }
+}
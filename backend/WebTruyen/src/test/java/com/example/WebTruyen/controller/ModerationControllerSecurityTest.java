@@ -0,0 +1,100 @@
+package com.example.WebTruyen.controller;
+
+import com.example.WebTruyen.entity.model.CoreIdentity.RoleEntity;
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.entity.model.CoreIdentity.UserRoleEntity;
+import com.example.WebTruyen.repository.UserRepository;
+import com.example.WebTruyen.security.JwtTokenProvider;
+import com.example.WebTruyen.security.SecurityConfig;
+import com.example.WebTruyen.security.VerifiedTokenCache;
+import com.example.WebTruyen.service.CommentModerationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs with the default jwt.principal.stateless=false, where the principal is built from the users row
+@WebMvcTest(ModerationController.class)
+@Import({SecurityConfig.class, JwtTokenProvider.class, VerifiedTokenCache.class})
+class ModerationControllerSecurityTest {
+
+    private static final String BODY = "{\"hidden\":true,\"reason\":\"spam\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private CommentModerationService commentModerationService;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findWithRolesByUsername("mod")).thenReturn(Optional.of(user(1L, "mod", "MOD")));
+        when(userRepository.findWithRolesByUsername("reader")).thenReturn(Optional.of(user(2L, "reader", "READER")));
+    }
+
+    @Test
+    void modTokenCanHideComment() throws Exception {
+        mockMvc.perform(patch("/api/moderation/comments/42/hidden")
+                        .header("Authorization", "Bearer " + tokenProvider.generateToken(1L, "mod"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isOk());
+
+        verify(commentModerationService).setHidden(eq(1L), eq(42L), eq(true), eq("spam"));
+    }
+
+    @Test
+    void readerTokenIsForbidden() throws Exception {
+        mockMvc.perform(patch("/api/moderation/comments/42/hidden")
+                        .header("Authorization", "Bearer " + tokenProvider.generateToken(2L, "reader"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isForbidden());
+
+        verify(commentModerationService, never()).setHidden(any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void corsPreflightAllowsPatch() throws Exception {
+        mockMvc.perform(options("/api/moderation/comments/42/hidden")
+                        .header("Origin", "http://localhost:5173")
+                        .header("Access-Control-Request-Method", "PATCH"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Origin", "http://localhost:5173"));
+    }
+
+    private UserEntity user(Long id, String username, String roleCode) {
+        UserEntity user = UserEntity.builder()
+                .id(id)
+                .username(username)
+                .verified(true)
+                .build();
+        RoleEntity role = RoleEntity.builder().code(roleCode).build();
+        user.setUserRoles(List.of(UserRoleEntity.builder().user(user).role(role).build()));
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.WebTruyen.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-0123456789012345678901234567890123";
+
+    private JwtTokenProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = newProvider(SECRET, 60_000L);
+    }
+
+    @Test
+    void parsesEveryClaimInOnePass() {
+        String token = provider.generateToken(42L, "reader", List.of("READER", "MOD"), true);
+
+        JwtClaims claims = provider.parseAndValidate(token).orElseThrow();
+
+        assertThat(claims.userId()).isEqualTo(42L);
+        assertThat(claims.username()).isEqualTo("reader");
+        assertThat(claims.roles()).containsExactly("READER", "MOD");
+        assertThat(claims.verified()).isTrue();
+        assertThat(claims.hasEmbeddedProfile()).isTrue();
+        assertThat(claims.isPasswordResetToken()).isFalse();
+        assertThat(claims.expiration()).isAfter(new Date());
+    }
+
+    @Test
+    void tokensWithoutEmbeddedProfileStillParse() {
+        JwtClaims claims = provider.parseAndValidate(provider.generateToken(42L, "reader")).orElseThrow();
+
+        assertThat(claims.roles()).isNull();
+        assertThat(claims.hasEmbeddedProfile()).isFalse();
+    }
+
+    @Test
+    void theSameProviderServesManyTokens() {
+        for (long userId = 1; userId <= 100; userId++) {
+            String token = provider.generateToken(userId, "user" + userId);
+            assertThat(provider.getUserIdFromToken(token)).isEqualTo(userId);
+            assertThat(provider.getUsernameFromToken(token)).isEqualTo("user" + userId);
+        }
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        String foreign = newProvider("another-secret-01234567890123456789012345678901", 60_000L)
+                .generateToken(42L, "reader");
+
+        assertThat(provider.parseAndValidate(foreign)).isEmpty();
+        assertThat(provider.validateToken(foreign)).isFalse();
+        assertThatThrownBy(() -> provider.getUserIdFromToken(foreign)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsExpiredAndMalformedTokens() {
+        String expired = Jwts.builder()
+                .subject("42")
+                .expiration(new Date(System.currentTimeMillis() - 1_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        assertThat(provider.parseAndValidate(expired)).isEmpty();
+        assertThat(provider.parseAndValidate("not-a-token")).isEmpty();
+        assertThat(provider.parseAndValidate("")).isEmpty();
+    }
+
+    @Test
+    void passwordResetTokensAreTypedApart() {
+        String reset = provider.generatePasswordResetToken(42L);
+
+        assertThat(provider.validatePasswordResetToken(reset)).isTrue();
+        assertThat(provider.validatePasswordResetToken(provider.generateToken(42L, "reader"))).isFalse();
+    }
+
+    private static JwtTokenProvider newProvider(String secret, long expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", expirationMs);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.WebTruyen.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 3);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void aVerifiedTokenIsServedFromTheCache() {
+        UserPrincipal principal = principal(1L);
+        cache.put("token-1", 1L, inMinutes(10), principal);
+
+        assertThat(cache.get("token-1")).isSameAs(principal);
+        assertThat(cache.get("token-2")).isNull();
+    }
+
+    @Test
+    void anEntryNeverOutlivesItsToken() throws InterruptedException {
+        cache.put("token-1", 1L, new Date(System.currentTimeMillis() + 20), principal(1L));
+        Thread.sleep(40);
+
+        assertThat(cache.get("token-1")).isNull();
+    }
+
+    @Test
+    void anEntryExpiresAfterTheTtlEvenIfTheTokenLivesOn() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "ttlMs", 20L);
+        cache.put("token-1", 1L, inMinutes(10), principal(1L));
+        Thread.sleep(40);
+
+        assertThat(cache.get("token-1")).isNull();
+    }
+
+    @Test
+    void anExpiredTokenIsNotCached() {
+        cache.put("token-1", 1L, new Date(System.currentTimeMillis() - 1000), principal(1L));
+
+        assertThat(cache.get("token-1")).isNull();
+    }
+
+    @Test
+    void evictUserDropsEveryTokenOfThatUserOnly() {
+        cache.put("token-1a", 1L, inMinutes(10), principal(1L));
+        cache.put("token-1b", 1L, inMinutes(10), principal(1L));
+        cache.put("token-2", 2L, inMinutes(10), principal(2L));
+
+        cache.evictUser(1L);
+
+        assertThat(cache.get("token-1a")).isNull();
+        assertThat(cache.get("token-1b")).isNull();
+        assertThat(cache.get("token-2")).isNotNull();
+    }
+
+    @Test
+    void aFullCacheSkipsNewTokensInsteadOfGrowing() {
+        for (int i = 0; i < 3; i++) {
+            cache.put("token-" + i, (long) i, inMinutes(10), principal((long) i));
+        }
+
+        cache.put("token-new", 9L, inMinutes(10), principal(9L));
+
+        assertThat(cache.get("token-new")).isNull();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(cache, "cache")).hasSize(3);
+    }
+
+    @Test
+    void aFullCacheMakesRoomByDroppingExpiredEntries() throws InterruptedException {
+        cache.put("short-lived", 1L, new Date(System.currentTimeMillis() + 20), principal(1L));
+        cache.put("token-2", 2L, inMinutes(10), principal(2L));
+        cache.put("token-3", 3L, inMinutes(10), principal(3L));
+        Thread.sleep(40);
+
+        cache.put("token-new", 9L, inMinutes(10), principal(9L));
+
+        assertThat(cache.get("token-new")).isNotNull();
+    }
+
+    @Test
+    void tokensAreKeyedByDigestNotByTheRawToken() {
+        cache.put("secret-token", 1L, inMinutes(10), principal(1L));
+
+        assertThat(((Map<?, ?>) ReflectionTestUtils.getField(cache, "cache")).keySet())
+                .noneMatch(key -> key.toString().contains("secret-token"));
+    }
+
+    private UserPrincipal principal(Long userId) {
+        return new UserPrincipal(userId, "user" + userId, List.of("READER"), true, () -> null);
+    }
+
+    private Date inMinutes(int minutes) {
+        return new Date(System.currentTimeMillis() + minutes * 60_000L);
+    }
+}
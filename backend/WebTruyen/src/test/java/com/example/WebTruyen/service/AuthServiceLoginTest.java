@@ -0,0 +1,75 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.repository.UserRepository;
+import com.example.WebTruyen.security.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceLoginTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private LoginAttemptStore loginAttemptStore;
+
+    @Mock
+    private VerifiedTokenCache tokenCache;
+
+    @InjectMocks
+    private AuthService authService;
+
+    private final UserEntity user = UserEntity.builder()
+            .id(1L)
+            .username("reader")
+            .passwordHash("old-hash")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findByUsername("reader")).thenReturn(Optional.of(user));
+        when(loginAttemptStore.get(eq(1L), any())).thenReturn(LoginAttemptState.CLEAR);
+        when(passwordHashingService.matches("secret", "old-hash")).thenReturn(true);
+    }
+
+    @Test
+    void rehashOnlyReplacesTheHashItWasComputedFrom() {
+        when(passwordHashingService.needsRehash("old-hash")).thenReturn(true);
+
+        authService.authenticate("reader", "secret");
+
+        ArgumentCaptor<Consumer<String>> onEncoded = ArgumentCaptor.captor();
+        verify(passwordHashingService).rehashAsync(eq("secret"), onEncoded.capture());
+        onEncoded.getValue().accept("new-hash");
+        verify(userRepository).updatePasswordHash(1L, "old-hash", "new-hash");
+    }
+
+    @Test
+    void currentHashIsNotRehashed() {
+        when(passwordHashingService.needsRehash("old-hash")).thenReturn(false);
+
+        authService.authenticate("reader", "secret");
+
+        verify(passwordHashingService, never()).rehashAsync(anyString(), any());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.model.CoreIdentity.UserEntity;
+import com.example.WebTruyen.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceRegistrationTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordHashingService.encode(anyString())).thenReturn("hash");
+        lenient().when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void freeBaseIsUsedAsIs() {
+        when(userRepository.existsByUsername("reader")).thenReturn(false);
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).isEqualTo("reader");
+        verify(userRepository, never()).findMaxUsernameSuffix(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void takenBaseGetsTheNextNumericSuffix() {
+        when(userRepository.existsByUsername("reader")).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix("reader0", "readera", 7)).thenReturn("41");
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).isEqualTo("reader42");
+    }
+
+    @Test
+    void takenBaseWithoutSuffixesStartsAtOne() {
+        when(userRepository.existsByUsername("reader")).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix("reader0", "readera", 7)).thenReturn(null);
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).isEqualTo("reader1");
+    }
+
+    @Test
+    void concurrentClaimOfTheNameResolvesAgain() {
+        when(userRepository.existsByUsername("reader")).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix("reader0", "readera", 7)).thenReturn("1", "2");
+        when(userRepository.save(any(UserEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLIntegrityConstraintViolationException("Duplicate entry for key 'uq_users_username'")))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).isEqualTo("reader3");
+    }
+
+    @Test
+    void suffixesLongerThanALongStillCount() {
+        when(userRepository.existsByUsername("reader")).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix("reader0", "readera", 7)).thenReturn("99999999999999999999");
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).isEqualTo("reader100000000000000000000");
+    }
+
+    @Test
+    void aSuffixThatWouldNotFitFallsBackToARandomOne() {
+        String base = "r".repeat(95);
+        when(userRepository.existsByUsername(base)).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix(base + "0", base + "a", 96)).thenReturn("999999");
+
+        UserEntity user = authService.registerUser(base, "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).hasSize(100).matches("r{91}[0-9]{9}");
+    }
+
+    @Test
+    void repeatedClashesSwitchToARandomSuffix() {
+        when(userRepository.existsByUsername("reader")).thenReturn(true);
+        when(userRepository.findMaxUsernameSuffix("reader0", "readera", 7)).thenReturn("1");
+        when(userRepository.save(any(UserEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLIntegrityConstraintViolationException("Duplicate entry for key 'uq_users_username'")))
+                .thenThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLIntegrityConstraintViolationException("Duplicate entry for key 'uq_users_username'")))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserEntity user = authService.registerUser("reader", "reader@example.com", "secret");
+
+        assertThat(user.getUsername()).matches("reader[0-9]{9}");
+        verify(userRepository, times(2)).findMaxUsernameSuffix("reader0", "readera", 7);
+    }
+}
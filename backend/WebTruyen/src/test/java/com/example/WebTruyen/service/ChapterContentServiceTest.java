@@ -0,0 +1,162 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.ChapterSegmentJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChapterContentServiceTest {
+
+    private static final Long CHAPTER = 7L;
+
+    @Mock
+    private ChapterRepository chapterRepository;
+
+    @Mock
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Mock
+    private ChapterSegmentJdbcRepository chapterSegmentJdbcRepository;
+
+    @Spy
+    private ChapterPayloadCache chapterPayloadCache = new ChapterPayloadCache();
+
+    @InjectMocks
+    private ChapterContentService chapterContentService;
+
+    private final AtomicReference<String> segmentText = new AtomicReference<>("first draft");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(chapterPayloadCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(chapterPayloadCache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(chapterPayloadCache, "maxEntryBytes", 10_000);
+        chapterPayloadCache.init();
+    }
+
+    @Test
+    void aRenderedChapterIsServedFromTheCache() throws IOException {
+        servesSegment();
+        ChapterAccessInfo chapter = chapter(true);
+
+        ChapterPayloadCache.CachedChapter first = chapterContentService.getCompressed(chapter);
+        ChapterPayloadCache.CachedChapter second = chapterContentService.getCompressed(chapter);
+
+        assertThat(second).isSameAs(first);
+        assertThat(gunzip(first.gzipBody())).isEqualTo("{\"seq\":1,\"text\":\"first draft\"}\n");
+        verify(chapterSegmentJdbcRepository, times(1)).streamSegments(eq(CHAPTER), eq(1), any());
+    }
+
+    @Test
+    void theEtagFollowsTheContentEvenWhenTheChapterRowIsUntouched() throws IOException {
+        servesSegment();
+        ChapterAccessInfo chapter = chapter(true);
+        String before = chapterContentService.getCompressed(chapter).etag();
+
+        // A segment edit commits without bumping chapters.last_update_at
+        segmentText.set("second draft");
+        chapterPayloadCache.invalidate(CHAPTER);
+
+        assertThat(chapterContentService.getCompressed(chapter).etag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void aRenderOverlappingAnEditIsNotCached() throws IOException {
+        doAnswer(invocation -> {
+            // The edit commits while this reader is still rendering the old rows
+            chapterPayloadCache.invalidate(CHAPTER);
+            invocation.<ChapterSegmentJdbcRepository.SegmentHandler>getArgument(2)
+                    .onSegment(1, new StringReader(segmentText.get()));
+            return null;
+        }).when(chapterSegmentJdbcRepository).streamSegments(eq(CHAPTER), eq(1), any());
+        ChapterAccessInfo chapter = chapter(true);
+
+        chapterContentService.getCompressed(chapter);
+        chapterContentService.getCompressed(chapter);
+
+        verify(chapterSegmentJdbcRepository, times(2)).streamSegments(eq(CHAPTER), eq(1), any());
+    }
+
+    @Test
+    void aChapterTooLargeForTheCacheIsNotRendered() throws IOException {
+        StringBuilder noise = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            noise.append((char) ('a' + random.nextInt(26)));
+        }
+        segmentText.set(noise.toString());
+        servesSegment();
+
+        assertThat(chapterContentService.getCompressed(chapter(true))).isNull();
+    }
+
+    @Test
+    void aChapterOfAPrivateStoryIsNotFound() {
+        when(chapterRepository.findAccessInfo(CHAPTER)).thenReturn(Optional.of(
+                new ChapterAccessInfo(CHAPTER, 1L, ChapterStatus.published, true, 0L, null,
+                        StoryStatus.published, StoryVisibility.private_)));
+
+        assertThatThrownBy(() -> chapterContentService.checkReadable(CHAPTER, 1L))
+                .isInstanceOf(ChapterNotFoundException.class);
+    }
+
+    @Test
+    void aPaidChapterNeedsAnUnlock() {
+        when(chapterRepository.findAccessInfo(CHAPTER)).thenReturn(Optional.of(chapter(false)));
+        when(chapterEntitlementIndex.isUnlocked(1L, 1L, CHAPTER)).thenReturn(false);
+
+        assertThatThrownBy(() -> chapterContentService.checkReadable(CHAPTER, 1L))
+                .isInstanceOf(ChapterLockedException.class);
+    }
+
+    private void servesSegment() {
+        doAnswer(invocation -> {
+            invocation.<ChapterSegmentJdbcRepository.SegmentHandler>getArgument(2)
+                    .onSegment(1, new StringReader(segmentText.get()));
+            return null;
+        }).when(chapterSegmentJdbcRepository).streamSegments(eq(CHAPTER), eq(1), any());
+    }
+
+    private ChapterAccessInfo chapter(boolean free) {
+        return new ChapterAccessInfo(CHAPTER, 1L, ChapterStatus.published, free, free ? 0L : 30L,
+                LocalDateTime.of(2025, 3, 1, 12, 0), StoryStatus.published, StoryVisibility.public_);
+    }
+
+    private String gunzip(byte[] gzipBody) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipBody))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChapterEntitlementIndexTest {
+
+    private static final Long USER = 1L;
+    private static final Long STORY = 5L;
+
+    @Mock
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Mock
+    private StoryTocService storyTocService;
+
+    @InjectMocks
+    private ChapterEntitlementIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "maxEntries", 100);
+        when(storyTocService.getStoryToc(STORY)).thenReturn(new StoryTocService.StoryToc(null,
+                List.of(11L, 12L, 13L), Map.of(11L, 0, 12L, 1, 13L, 2)));
+    }
+
+    @Test
+    void loadedBitmapAnswersWithoutAnotherQuery() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenReturn(List.of(11L, 13L));
+
+        assertThat(index.isUnlocked(USER, STORY, 11L)).isTrue();
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isFalse();
+        assertThat(index.unlockedChapterIds(USER, STORY)).containsExactly(11L, 13L);
+        verify(chapterUnlockRepository, times(1)).findUnlockedChapterIds(USER, STORY);
+    }
+
+    @Test
+    void committedUnlockIsAddedToALoadedBitmap() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenReturn(List.of());
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isFalse();
+
+        index.markUnlocked(USER, STORY, 12L);
+
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isTrue();
+        verify(chapterUnlockRepository, times(1)).findUnlockedChapterIds(USER, STORY);
+    }
+
+    @Test
+    void unlockOfTheSameKeyDuringALoadKeepsThatLoadOutOfTheCache() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY))
+                .thenAnswer(inv -> {
+                    // Commits after the query read its rows
+                    index.markUnlocked(USER, STORY, 12L);
+                    return List.of(11L);
+                })
+                .thenReturn(List.of(11L, 12L));
+
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isFalse();
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isTrue();
+        verify(chapterUnlockRepository, times(2)).findUnlockedChapterIds(USER, STORY);
+    }
+
+    @Test
+    void unlockOfAnotherKeyDuringALoadDoesNotDiscardIt() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenAnswer(inv -> {
+            index.markUnlocked(2L, STORY, 12L);
+            return List.of(11L);
+        });
+
+        assertThat(index.isUnlocked(USER, STORY, 11L)).isTrue();
+        assertThat(index.isUnlocked(USER, STORY, 11L)).isTrue();
+        verify(chapterUnlockRepository, times(1)).findUnlockedChapterIds(USER, STORY);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(List.of(12L));
+
+        assertThatThrownBy(() -> index.isUnlocked(USER, STORY, 12L)).isInstanceOf(QueryTimeoutException.class);
+        assertThat(index.isUnlocked(USER, STORY, 12L)).isTrue();
+    }
+
+    @Test
+    void chapterMissingFromTheTocIsCheckedInTheTable() {
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenReturn(List.of());
+        when(chapterUnlockRepository.existsByUser_IdAndChapter_Id(USER, 99L)).thenReturn(true);
+
+        assertThat(index.isUnlocked(USER, STORY, 99L)).isTrue();
+    }
+}
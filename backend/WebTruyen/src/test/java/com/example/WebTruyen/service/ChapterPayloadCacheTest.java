@@ -0,0 +1,100 @@
+package com.example.WebTruyen.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChapterPayloadCacheTest {
+
+    private ChapterPayloadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChapterPayloadCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxBytes", 100L);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", 60);
+        cache.init();
+    }
+
+    @Test
+    void anEntryIsServedOnlyForItsVersion() {
+        store(1L, 5L, 50);
+
+        assertThat(cache.get(1L, 5L)).isNotNull();
+        assertThat(cache.get(1L, 6L)).isNull();
+    }
+
+    @Test
+    void aRenderThatRacedWithAnInvalidationIsNotStored() {
+        long generationBefore = cache.generation();
+        cache.invalidate(1L);
+
+        cache.put(1L, chapter(5L, 50), generationBefore);
+
+        assertThat(cache.get(1L, 5L)).isNull();
+    }
+
+    @Test
+    void invalidateDropsTheEntry() {
+        store(1L, 5L, 50);
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L, 5L)).isNull();
+    }
+
+    @Test
+    void anEntryOverThePerEntryLimitIsNotStored() {
+        store(1L, 5L, 61);
+
+        assertThat(cache.get(1L, 5L)).isNull();
+    }
+
+    @Test
+    void aRarelyReadChapterDoesNotEvictPopularOnes() {
+        readTimes(1L, 3);
+        store(1L, 5L, 50);
+        readTimes(2L, 3);
+        store(2L, 5L, 50);
+
+        readTimes(3L, 1);
+        store(3L, 5L, 50);
+
+        assertThat(cache.get(3L, 5L)).isNull();
+        assertThat(cache.get(1L, 5L)).isNotNull();
+        assertThat(cache.get(2L, 5L)).isNotNull();
+    }
+
+    @Test
+    void aMorePopularChapterEvictsTheLeastRecentlyUsed() {
+        readTimes(1L, 3);
+        store(1L, 5L, 50);
+        readTimes(2L, 3);
+        store(2L, 5L, 50);
+
+        readTimes(3L, 6);
+        store(3L, 5L, 50);
+
+        assertThat(cache.get(3L, 5L)).isNotNull();
+        assertThat(cache.get(1L, 5L)).isNull();
+        assertThat(cache.get(2L, 5L)).isNotNull();
+    }
+
+    private void readTimes(Long chapterId, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.get(chapterId, -1L);
+        }
+    }
+
+    private void store(Long chapterId, long version, int bytes) {
+        cache.put(chapterId, chapter(version, bytes), cache.generation());
+    }
+
+    private ChapterPayloadCache.CachedChapter chapter(long version, int bytes) {
+        return new ChapterPayloadCache.CachedChapter(version, new byte[bytes], "\"etag\"");
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.ChapterUnlockJdbcRepository;
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many parallel unlocks against one hot wallet, with the real {@link WalletBalanceService}
+ * over wallet rows that debit with a conditional update, as the table does.
+ */
+@ExtendWith(MockitoExtension.class)
+class ChapterPurchaseConcurrencyTest {
+
+    private static final Long USER = 1L;
+    private static final Long STORY = 5L;
+    private static final long PRICE = 10L;
+
+    @Mock
+    private ChapterRepository chapterRepository;
+
+    @Mock
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Mock
+    private ChapterUnlockJdbcRepository chapterUnlockJdbcRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Mock
+    private StoryTocService storyTocService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final InMemoryWallets wallets = new InMemoryWallets();
+    private final List<LedgerJdbcRepository.Entry> ledger = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong unlockIds = new AtomicLong();
+
+    private ChapterPurchaseService chapterPurchaseService;
+    private WalletBalanceService walletBalanceService;
+
+    @BeforeEach
+    void setUp() {
+        walletBalanceService = new WalletBalanceService();
+        ReflectionTestUtils.setField(walletBalanceService, "walletJdbcRepository", wallets);
+        ReflectionTestUtils.setField(walletBalanceService, "ledgerJdbcRepository", ledgerJdbcRepository);
+        ReflectionTestUtils.setField(walletBalanceService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(walletBalanceService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(walletBalanceService, "maxEntries", 100);
+        ReflectionTestUtils.setField(walletBalanceService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(walletBalanceService, "verifyBatchSize", 10);
+        walletBalanceService.init();
+
+        chapterPurchaseService = new ChapterPurchaseService();
+        ReflectionTestUtils.setField(chapterPurchaseService, "chapterRepository", chapterRepository);
+        ReflectionTestUtils.setField(chapterPurchaseService, "chapterUnlockRepository", chapterUnlockRepository);
+        ReflectionTestUtils.setField(chapterPurchaseService, "chapterUnlockJdbcRepository", chapterUnlockJdbcRepository);
+        ReflectionTestUtils.setField(chapterPurchaseService, "walletBalanceService", walletBalanceService);
+        ReflectionTestUtils.setField(chapterPurchaseService, "ledgerJdbcRepository", ledgerJdbcRepository);
+        ReflectionTestUtils.setField(chapterPurchaseService, "chapterEntitlementIndex", chapterEntitlementIndex);
+        ReflectionTestUtils.setField(chapterPurchaseService, "storyTocService", storyTocService);
+        ReflectionTestUtils.setField(chapterPurchaseService, "transactionTemplate", transactionTemplate);
+
+        when(chapterRepository.findAccessInfo(anyLong())).thenAnswer(inv -> Optional.of(
+                new ChapterAccessInfo(inv.getArgument(0), STORY, ChapterStatus.published, false, PRICE, null,
+                        StoryStatus.published, StoryVisibility.public_)));
+        when(chapterUnlockJdbcRepository.insert(anyLong(), anyLong(), any(), anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(inv -> unlockIds.incrementAndGet());
+        doAnswer(inv -> ledger.add(inv.getArgument(0))).when(ledgerJdbcRepository).insert(any());
+        // Runs the callback with transaction synchronization active and commits it, per thread
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            TransactionSynchronizationManager.initSynchronization();
+            Object result;
+            List<TransactionSynchronization> synchronizations;
+            try {
+                result = inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } finally {
+                synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            return result;
+        });
+    }
+
+    @Test
+    void parallelUnlocksNeverOverspendOneWallet() throws Exception {
+        wallets.seed(USER, 100 * PRICE);
+        AtomicInteger bought = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> unlocks = new ArrayList<>();
+            for (long chapterId = 1; chapterId <= 150; chapterId++) {
+                long chapter = chapterId;
+                unlocks.add(pool.submit(() -> {
+                    try {
+                        chapterPurchaseService.unlock(USER, chapter, CoinType.A, null);
+                        bought.incrementAndGet();
+                    } catch (InsufficientBalanceException e) {
+                        refused.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> unlock : unlocks) {
+                unlock.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(bought).hasValue(100);
+        assertThat(refused).hasValue(50);
+        assertThat(wallets.balance(USER)).isZero();
+        assertThat(walletBalanceService.getBalances(USER).getBalanceCoinA()).isZero();
+        // Every debit saw its own balance, so the ledger replays to the wallet without gaps
+        assertThat(ledger).hasSize(100);
+        assertThat(ledger).extracting(LedgerJdbcRepository.Entry::balanceAfter)
+                .doesNotHaveDuplicates()
+                .allSatisfy(balance -> assertThat(balance).isBetween(0L, 99 * PRICE));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.dto.response.UnlockChapterResponse;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.ChapterUnlockJdbcRepository;
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChapterPurchaseServiceTest {
+
+    private static final Long STORY = 5L;
+    private static final Long CHAPTER = 10L;
+
+    @Mock
+    private ChapterRepository chapterRepository;
+
+    @Mock
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Mock
+    private ChapterUnlockJdbcRepository chapterUnlockJdbcRepository;
+
+    @Mock
+    private WalletBalanceService walletBalanceService;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Mock
+    private StoryTocService storyTocService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ChapterPurchaseService chapterPurchaseService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(chapterRepository.findAccessInfo(CHAPTER)).thenReturn(Optional.of(
+                new ChapterAccessInfo(CHAPTER, STORY, ChapterStatus.published, false, 30L, null,
+                        StoryStatus.published, StoryVisibility.public_)));
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(walletBalanceService.debit(anyLong(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(70L);
+            return 70L;
+        });
+    }
+
+    @Test
+    void clientKeyIsScopedToTheBuyer() {
+        chapterPurchaseService.unlock(1L, CHAPTER, CoinType.A, "abc");
+        chapterPurchaseService.unlock(2L, CHAPTER, CoinType.A, "abc");
+
+        ArgumentCaptor<LedgerJdbcRepository.Entry> entries = ArgumentCaptor.forClass(LedgerJdbcRepository.Entry.class);
+        verify(ledgerJdbcRepository, times(2)).insert(entries.capture());
+        assertThat(entries.getAllValues())
+                .extracting(LedgerJdbcRepository.Entry::idempotencyKey)
+                .containsExactly("unlock-req:1:abc", "unlock-req:2:abc");
+    }
+
+    @Test
+    void anotherUsersDefaultKeyCannotBeClaimed() {
+        chapterPurchaseService.unlock(2L, CHAPTER, CoinType.A, "unlock:1:" + CHAPTER);
+
+        ArgumentCaptor<LedgerJdbcRepository.Entry> entry = ArgumentCaptor.forClass(LedgerJdbcRepository.Entry.class);
+        verify(ledgerJdbcRepository).insert(entry.capture());
+        assertThat(entry.getValue().idempotencyKey()).isEqualTo("unlock-req:2:unlock:1:" + CHAPTER);
+    }
+
+    @Test
+    void overlongClientKeyIsRejectedBeforeAnyWrite() {
+        String key = "k".repeat(ChapterPurchaseService.MAX_CLIENT_KEY_LENGTH + 1);
+
+        assertThatThrownBy(() -> chapterPurchaseService.unlock(1L, CHAPTER, CoinType.A, key))
+                .hasMessageContaining("at most");
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void replayOfOwnedChapterIsNotChargedAgain() {
+        when(chapterUnlockJdbcRepository.insert(eq(1L), eq(CHAPTER), eq(CoinType.A), eq(30L), any()))
+                .thenThrow(new DuplicateKeyException("uq_chapter_unlock_user_chapter"));
+        when(chapterUnlockRepository.existsByUser_IdAndChapter_Id(1L, CHAPTER)).thenReturn(true);
+
+        UnlockChapterResponse response = chapterPurchaseService.unlock(1L, CHAPTER, CoinType.A, "abc");
+
+        assertThat(response.isAlreadyOwned()).isTrue();
+        assertThat(response.getCoinCost()).isZero();
+        verify(walletBalanceService, never()).debit(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void reusedKeyForAnotherChapterFails() {
+        when(chapterUnlockJdbcRepository.insert(eq(1L), eq(CHAPTER), eq(CoinType.A), eq(30L), any())).thenReturn(99L);
+        // doThrow, so stubbing does not run the answer registered in setUp
+        doThrow(new DuplicateKeyException("uq_ledger_idempotency"))
+                .when(walletBalanceService).debit(anyLong(), any(), anyLong(), any());
+        when(chapterUnlockRepository.existsByUser_IdAndChapter_Id(1L, CHAPTER)).thenReturn(false);
+
+        assertThatThrownBy(() -> chapterPurchaseService.unlock(1L, CHAPTER, CoinType.A, "abc"))
+                .hasMessageContaining("already used");
+        verify(chapterEntitlementIndex, never()).markUnlocked(any(), any(), any());
+    }
+
+    @Test
+    void ownedChapterShortCircuits() {
+        when(chapterEntitlementIndex.isUnlocked(1L, STORY, CHAPTER)).thenReturn(true);
+
+        assertThat(chapterPurchaseService.unlock(1L, CHAPTER, CoinType.A, null).isAlreadyOwned()).isTrue();
+        verify(transactionTemplate, never()).execute(any());
+        verify(walletBalanceService, never()).debit(anyLong(), any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.ChapterTocResponse;
+import com.example.WebTruyen.dto.response.StoryTocResponse;
+import com.example.WebTruyen.dto.response.UnlockRangeResponse;
+import com.example.WebTruyen.dto.response.VolumeTocResponse;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.ChapterUnlockJdbcRepository;
+import com.example.WebTruyen.repository.ChapterUnlockRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChapterRangePurchaseTest {
+
+    private static final Long USER = 1L;
+    private static final Long STORY = 5L;
+
+    @Mock
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Mock
+    private ChapterUnlockJdbcRepository chapterUnlockJdbcRepository;
+
+    @Mock
+    private WalletBalanceService walletBalanceService;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private ChapterEntitlementIndex chapterEntitlementIndex;
+
+    @Mock
+    private StoryTocService storyTocService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ChapterPurchaseService chapterPurchaseService;
+
+    @BeforeEach
+    void setUp() {
+        // Chapter 11 is free, 12-14 cost 10, 20 and 30
+        List<ChapterTocResponse> chapters = List.of(
+                chapter(11L, 1, true, 0L),
+                chapter(12L, 2, false, 10L),
+                chapter(13L, 3, false, 20L),
+                chapter(14L, 4, false, 30L));
+        StoryTocResponse response = new StoryTocResponse(STORY,
+                List.of(new VolumeTocResponse(100L, "Volume 1", 1, chapters)), null);
+        when(storyTocService.getStoryToc(STORY)).thenReturn(new StoryTocService.StoryToc(response,
+                List.of(11L, 12L, 13L, 14L), Map.of(11L, 0, 12L, 1, 13L, 2, 14L, 3)));
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(chapterUnlockJdbcRepository.findIdsByChapter(eq(USER), any()))
+                .thenReturn(Map.of(12L, 1012L, 13L, 1013L, 14L, 1014L));
+        lenient().when(walletBalanceService.debit(eq(USER), eq(CoinType.A), anyLong(), any())).thenAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(40L);
+            return 40L;
+        });
+    }
+
+    @Test
+    void rangeIsDebitedOnceForUnownedPaidChapters() {
+        when(chapterEntitlementIndex.unlockedChapterIds(USER, STORY)).thenReturn(List.of(13L));
+
+        UnlockRangeResponse response = chapterPurchaseService.unlockRange(USER, STORY, 100L, null, null,
+                CoinType.A, "req");
+
+        assertThat(response.getUnlockedChapterIds()).containsExactly(12L, 14L);
+        assertThat(response.getSkipped()).isEqualTo(2);
+        assertThat(response.getCoinCost()).isEqualTo(40L);
+        verify(walletBalanceService, times(1)).debit(eq(USER), eq(CoinType.A), eq(40L), any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerJdbcRepository.Entry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerJdbcRepository).batchInsert(entries.capture());
+        // Per-chapter rows walk down from the balance before the debit to the real balance after it
+        assertThat(entries.getValue())
+                .extracting(LedgerJdbcRepository.Entry::balanceAfter)
+                .containsExactly(70L, 40L);
+        assertThat(entries.getValue())
+                .extracting(LedgerJdbcRepository.Entry::idempotencyKey)
+                .containsExactly("unlock-req:1:req:12", "unlock-req:1:req:14");
+    }
+
+    @Test
+    void concurrentPurchaseIsRetriedWithoutTheChaptersItBought() {
+        when(chapterEntitlementIndex.unlockedChapterIds(USER, STORY)).thenReturn(List.of());
+        // A parallel request bought chapter 12 between our read and our insert
+        doThrow(new DuplicateKeyException("uq_chapter_unlock_user_chapter"))
+                .doNothing()
+                .when(chapterUnlockJdbcRepository).batchInsert(eq(USER), anyMap(), eq(CoinType.A), any());
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenReturn(List.of(12L));
+
+        UnlockRangeResponse response = chapterPurchaseService.unlockRange(USER, STORY, 100L, null, null,
+                CoinType.A, null);
+
+        assertThat(response.getUnlockedChapterIds()).containsExactly(13L, 14L);
+        verify(walletBalanceService, times(1)).debit(eq(USER), eq(CoinType.A), anyLong(), any());
+        verify(walletBalanceService).debit(eq(USER), eq(CoinType.A), eq(50L), any());
+    }
+
+    @Test
+    void repeatedConflictGivesUp() {
+        when(chapterEntitlementIndex.unlockedChapterIds(USER, STORY)).thenReturn(List.of());
+        when(chapterUnlockRepository.findUnlockedChapterIds(USER, STORY)).thenReturn(List.of());
+        doThrow(new DuplicateKeyException("uq_chapter_unlock_user_chapter"))
+                .when(chapterUnlockJdbcRepository).batchInsert(eq(USER), anyMap(), eq(CoinType.A), any());
+
+        assertThatThrownBy(() -> chapterPurchaseService.unlockRange(USER, STORY, 100L, null, null, CoinType.A, null))
+                .hasMessageContaining("purchased concurrently");
+        verify(walletBalanceService, times(0)).debit(eq(USER), eq(CoinType.A), anyLong(), any());
+    }
+
+    private ChapterTocResponse chapter(Long id, int sequence, boolean free, Long price) {
+        return new ChapterTocResponse(id, "Chapter " + sequence, sequence, free, price, ChapterStatus.published);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.WebTruyen.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentCounterAccumulatorTest {
+
+    private final CommentCounterAccumulator accumulator = new CommentCounterAccumulator();
+
+    @Test
+    void drainSumsChangesPerChapterAndRoot() {
+        accumulator.add(1L, null, 1);
+        accumulator.add(1L, 10L, 1);
+        accumulator.add(2L, 20L, 1);
+        accumulator.add(1L, 10L, 1);
+
+        CommentCounterAccumulator.Deltas deltas = accumulator.drain();
+
+        assertThat(deltas.byChapter()).isEqualTo(Map.of(1L, 3L, 2L, 1L));
+        assertThat(deltas.byRoot()).isEqualTo(Map.of(10L, 2L, 20L, 1L));
+        assertThat(accumulator.drain().isEmpty()).isTrue();
+    }
+
+    @Test
+    void changesThatCancelOutAreNotWritten() {
+        accumulator.add(1L, 10L, 1);
+        accumulator.add(1L, 10L, -1);
+
+        assertThat(accumulator.drain().isEmpty()).isTrue();
+    }
+
+    @Test
+    void restoredDeltasMergeWithNewOnes() {
+        accumulator.add(1L, 10L, 2);
+        CommentCounterAccumulator.Deltas failed = accumulator.drain();
+        accumulator.add(1L, 10L, 1);
+
+        accumulator.restore(failed);
+
+        assertThat(accumulator.pendingForChapter(1L)).isEqualTo(3);
+        CommentCounterAccumulator.Deltas deltas = accumulator.drain();
+        assertThat(deltas.byChapter()).isEqualTo(Map.of(1L, 3L));
+        assertThat(deltas.byRoot()).isEqualTo(Map.of(10L, 3L));
+    }
+
+    @Test
+    void chaptersAreBusyWhileInFlightOrUnflushed() {
+        accumulator.begin(1L);
+        accumulator.begin(1L);
+        accumulator.add(2L, null, 1);
+        accumulator.add(3L, null, 1);
+        accumulator.add(3L, null, -1);
+
+        assertThat(accumulator.busyChapters()).containsExactlyInAnyOrder(1L, 2L, 3L);
+
+        accumulator.end(1L);
+        assertThat(accumulator.busyChapters()).contains(1L);
+        accumulator.end(1L);
+        accumulator.drain();
+        assertThat(accumulator.busyChapters()).isEmpty();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.CommentStatsJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentCounterServiceTest {
+
+    @Mock
+    private CommentStatsJdbcRepository commentStatsJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final CommentCounterAccumulator accumulator = new CommentCounterAccumulator();
+    private final CommentCounterService service = new CommentCounterService();
+    private final List<TransactionStatus> statuses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "accumulator", accumulator);
+        ReflectionTestUtils.setField(service, "commentStatsJdbcRepository", commentStatsJdbcRepository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "checkChapterBatch", 100);
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            SimpleTransactionStatus status = new SimpleTransactionStatus();
+            statuses.add(status);
+            return inv.<TransactionCallback<?>>getArgument(0).doInTransaction(status);
+        });
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void flushWritesTheDrainedDeltas() {
+        service.record(1L, 10L, 1);
+        service.record(1L, null, 1);
+
+        service.flush();
+
+        verify(commentStatsJdbcRepository).addChapterDeltas(eq(Map.of(1L, 2L)), any());
+        verify(commentStatsJdbcRepository).addReplyDeltas(Map.of(10L, 1L));
+        assertThat(accumulator.pendingForChapter(1L)).isZero();
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltasForTheNextOne() {
+        service.record(1L, 10L, 1);
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(commentStatsJdbcRepository).addChapterDeltas(anyMap(), any());
+
+        service.flush();
+
+        assertThat(accumulator.pendingForChapter(1L)).isEqualTo(1);
+        assertThat(service.getChapterCounts(List.of(1L))).containsEntry(1L, 1L);
+    }
+
+    @Test
+    void nothingPendingMeansNoWrite() {
+        service.flush();
+
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    @Test
+    void checkFlushesFirstAndSkipsChaptersInFlight() {
+        when(commentStatsJdbcRepository.maxCommentedChapterId()).thenReturn(150L);
+        service.record(5L, null, 1);
+        accumulator.begin(7L);
+        accumulator.begin(120L);
+
+        service.checkConsistency();
+
+        verify(commentStatsJdbcRepository).addChapterDeltas(eq(Map.of(5L, 1L)), any());
+        verify(commentStatsJdbcRepository).repairChapterCounts(eq(1L), eq(100L), eq(Set.of(7L)), any());
+        verify(commentStatsJdbcRepository).repairReplyCounts(1L, 100L, Set.of(7L));
+        verify(commentStatsJdbcRepository).repairChapterCounts(eq(101L), eq(200L), eq(Set.of(120L)), any());
+        assertThat(statuses).noneMatch(TransactionStatus::isRollbackOnly);
+    }
+
+    @Test
+    void aChapterTurningBusyDuringTheRepairRollsTheRangeBack() {
+        when(commentStatsJdbcRepository.maxCommentedChapterId()).thenReturn(100L);
+        when(commentStatsJdbcRepository.repairChapterCounts(eq(1L), eq(100L), any(), any()))
+                .thenAnswer(inv -> {
+                    // A comment of chapter 3 commits while the first attempt recounts
+                    if (statuses.size() == 1) {
+                        service.beginChange(3L);
+                    }
+                    return 1;
+                });
+
+        service.checkConsistency();
+
+        assertThat(statuses).hasSize(2);
+        assertThat(statuses.get(0).isRollbackOnly()).isTrue();
+        assertThat(statuses.get(1).isRollbackOnly()).isFalse();
+        verify(commentStatsJdbcRepository).repairChapterCounts(eq(1L), eq(100L), eq(Set.of(3L)), any());
+    }
+
+    @Test
+    void aRangeThatStaysBusyIsLeftForTheNextRun() {
+        when(commentStatsJdbcRepository.maxCommentedChapterId()).thenReturn(100L);
+        when(commentStatsJdbcRepository.repairChapterCounts(anyLong(), anyLong(), any(), any()))
+                .thenAnswer(inv -> {
+                    service.record(statuses.size() + 10L, null, 1);
+                    return 0;
+                });
+
+        service.checkConsistency();
+
+        verify(commentStatsJdbcRepository, times(3)).repairChapterCounts(anyLong(), anyLong(), any(), any());
+        assertThat(statuses).allMatch(TransactionStatus::isRollbackOnly);
+    }
+}
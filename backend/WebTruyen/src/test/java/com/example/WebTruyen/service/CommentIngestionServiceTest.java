@@ -0,0 +1,225 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.ChapterAccessInfo;
+import com.example.WebTruyen.dto.response.CommentCreatedResponse;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.ChapterRepository;
+import com.example.WebTruyen.repository.CommentJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentIngestionServiceTest {
+
+    private static final Long CHAPTER = 9L;
+
+    @Mock
+    private CommentJdbcRepository commentJdbcRepository;
+
+    @Mock
+    private ChapterRepository chapterRepository;
+
+    @Mock
+    private CommentRateLimiter rateLimiter;
+
+    @Mock
+    private CommentCounterService commentCounterService;
+
+    @Mock
+    private CommentThreadService commentThreadService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private CommentIngestionService service;
+
+    private final AtomicLong nextId = new AtomicLong(1000);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "queueCapacity", 100);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        // A generous linger so every comment submitted by a test lands in the same batch
+        ReflectionTestUtils.setField(service, "lingerMs", 500L);
+        ReflectionTestUtils.setField(service, "maxCachedParents", 100);
+        ReflectionTestUtils.setField(service, "maxCachedChapters", 100);
+        ReflectionTestUtils.setField(service, "chapterCacheTtlMs", 30_000L);
+
+        lenient().when(chapterRepository.findAccessInfo(CHAPTER)).thenReturn(Optional.of(
+                new ChapterAccessInfo(CHAPTER, 1L, ChapterStatus.published, true, 0L, LocalDateTime.now(),
+                        StoryStatus.published, StoryVisibility.public_)));
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(commentJdbcRepository.batchInsert(anyList()))
+                .thenAnswer(inv -> newIds(inv.<List<?>>getArgument(0).size()));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void aBurstIsWrittenAsOneBatch() throws Exception {
+        service.init();
+
+        List<CompletableFuture<CommentCreatedResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(service.submit((long) i, CHAPTER, null, "comment " + i));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (CompletableFuture<CommentCreatedResponse> result : results) {
+            ids.add(result.get(5, TimeUnit.SECONDS).getId());
+        }
+
+        ArgumentCaptor<List<CommentJdbcRepository.NewComment>> batches = ArgumentCaptor.captor();
+        verify(commentJdbcRepository, times(1)).batchInsert(batches.capture());
+        assertThat(batches.getValue()).hasSize(10);
+        assertThat(ids).doesNotHaveDuplicates().hasSize(10);
+        verify(commentThreadService, times(1)).invalidate(CHAPTER);
+    }
+
+    @Test
+    void aFailedBatchIsRetriedOneByOne() throws Exception {
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        doThrow(new QueryTimeoutException("deadlock")).when(commentJdbcRepository)
+                .batchInsert(argThat(comments -> comments.size() > 1));
+        service.init();
+
+        CompletableFuture<CommentCreatedResponse> first = service.submit(1L, CHAPTER, null, "first");
+        CompletableFuture<CommentCreatedResponse> second = service.submit(2L, CHAPTER, null, "second");
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        verify(commentJdbcRepository, times(3)).batchInsert(anyList());
+    }
+
+    @Test
+    void rateLimitedPostsAreRejectedBeforeQueueing() {
+        service.init();
+        doThrow(new CommentRateLimitedException("You are commenting too fast", 3))
+                .when(rateLimiter).acquire(7L);
+
+        assertThatThrownBy(() -> service.submit(7L, CHAPTER, null, "spam"))
+                .isInstanceOf(CommentRateLimitedException.class);
+        verify(chapterRepository, never()).findAccessInfo(anyLong());
+    }
+
+    @Test
+    void chaptersOfPrivateStoriesAreNotCommentable() {
+        service.init();
+        when(chapterRepository.findAccessInfo(10L)).thenReturn(Optional.of(
+                new ChapterAccessInfo(10L, 2L, ChapterStatus.published, true, 0L, LocalDateTime.now(),
+                        StoryStatus.published, StoryVisibility.private_)));
+
+        assertThatThrownBy(() -> service.submit(1L, 10L, null, "hello"))
+                .isInstanceOf(ChapterNotFoundException.class);
+        verify(commentJdbcRepository, never()).batchInsert(anyList());
+    }
+
+    @Test
+    void anOpenChapterIsCheckedOncePerTtl() throws Exception {
+        service.init();
+
+        service.submit(1L, CHAPTER, null, "first").get(5, TimeUnit.SECONDS);
+        service.submit(2L, CHAPTER, null, "second").get(5, TimeUnit.SECONDS);
+
+        verify(chapterRepository, times(1)).findAccessInfo(CHAPTER);
+    }
+
+    @Test
+    void aChapterTakenDownIsRejectedOnceItsCacheEntryExpires() throws Exception {
+        ReflectionTestUtils.setField(service, "chapterCacheTtlMs", 0L);
+        service.init();
+        service.submit(1L, CHAPTER, null, "before").get(5, TimeUnit.SECONDS);
+
+        when(chapterRepository.findAccessInfo(CHAPTER)).thenReturn(Optional.of(
+                new ChapterAccessInfo(CHAPTER, 1L, ChapterStatus.published, true, 0L, LocalDateTime.now(),
+                        StoryStatus.published, StoryVisibility.private_)));
+
+        assertThatThrownBy(() -> service.submit(2L, CHAPTER, null, "after"))
+                .isInstanceOf(ChapterNotFoundException.class);
+    }
+
+    @Test
+    void aFullQueueRejectsNewPosts() {
+        ReflectionTestUtils.setField(service, "queueCapacity", 2);
+        // Hold the writer inside its first batch so nothing drains the queue
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return newIds(inv.<List<?>>getArgument(0).size());
+        }).when(commentJdbcRepository).batchInsert(anyList());
+        service.init();
+
+        try {
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 50; i++) {
+                    service.submit((long) i, CHAPTER, null, "comment " + i);
+                }
+            }).isInstanceOf(CommentIngestionBusyException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void repliesInheritRootAndDepthFromTheParent() throws Exception {
+        service.init();
+        when(commentJdbcRepository.findThreadRef(50L)).thenReturn(Optional.of(
+                new CommentJdbcRepository.ThreadRef(50L, CHAPTER, 40L, 1, false)));
+
+        CommentCreatedResponse reply = service.submit(1L, CHAPTER, 50L, "reply").get(5, TimeUnit.SECONDS);
+
+        assertThat(reply.getRootCommentId()).isEqualTo(40L);
+        assertThat(reply.getDepth()).isEqualTo(2);
+        verify(commentCounterService).record(CHAPTER, 40L, 1);
+    }
+
+    private long[] newIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId.incrementAndGet();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.WebTruyen.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommentRateLimiterTest {
+
+    private CommentRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new CommentRateLimiter();
+        ReflectionTestUtils.setField(limiter, "capacity", 3);
+        ReflectionTestUtils.setField(limiter, "refillMs", 60_000L);
+    }
+
+    @Test
+    void allowsABurstUpToCapacityThenRejects() {
+        limiter.acquire(1L);
+        limiter.acquire(1L);
+        limiter.acquire(1L);
+
+        assertThatThrownBy(() -> limiter.acquire(1L))
+                .isInstanceOfSatisfying(CommentRateLimitedException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(1L, 60L));
+    }
+
+    @Test
+    void bucketsArePerUser() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(1L);
+        }
+
+        assertThatCode(() -> limiter.acquire(2L)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void tokensRefillOverTime() throws InterruptedException {
+        ReflectionTestUtils.setField(limiter, "refillMs", 20L);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(1L);
+        }
+        assertThatThrownBy(() -> limiter.acquire(1L)).isInstanceOf(CommentRateLimitedException.class);
+
+        Thread.sleep(50);
+
+        assertThatCode(() -> limiter.acquire(1L)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void onlyFullBucketsAreEvicted() throws InterruptedException {
+        ReflectionTestUtils.setField(limiter, "refillMs", 20L);
+        limiter.acquire(1L);
+        Thread.sleep(50);
+        ReflectionTestUtils.setField(limiter, "refillMs", 60_000L);
+        limiter.acquire(2L);
+
+        limiter.evictFullBuckets();
+
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(limiter, "buckets");
+        assertThat(buckets).containsOnlyKeys(2L);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.CommentPageResponse;
+import com.example.WebTruyen.dto.response.CommentResponse;
+import com.example.WebTruyen.repository.CommentJdbcRepository;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentThreadServiceTest {
+
+    private static final long CHAPTER = 5L;
+    private static final long ROOT = 100L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Mock
+    private CommentJdbcRepository commentJdbcRepository;
+
+    @InjectMocks
+    private CommentThreadService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxCachedChapters", 10);
+        ReflectionTestUtils.setField(service, "repliesPerRoot", 2);
+    }
+
+    @Test
+    void capsRepliesPerRootAndHandsOutACursor() {
+        CommentResponse root = comment(ROOT, null, 0);
+        CommentResponse other = comment(200L, null, 0);
+        when(commentJdbcRepository.findRootPage(eq(CHAPTER), any(), anyInt())).thenReturn(List.of(root, other));
+        when(commentJdbcRepository.findFirstReplies(any(), eq(3))).thenReturn(List.of(
+                new CommentJdbcRepository.ThreadReply(ROOT, comment(101L, ROOT, 1)),
+                new CommentJdbcRepository.ThreadReply(ROOT, comment(102L, 101L, 2)),
+                new CommentJdbcRepository.ThreadReply(200L, comment(201L, 200L, 3)),
+                new CommentJdbcRepository.ThreadReply(ROOT, comment(103L, ROOT, 4))));
+
+        CommentPageResponse page = service.getThreads(CHAPTER, null, CommentThreadService.DEFAULT_PAGE_SIZE);
+
+        CommentResponse first = page.getItems().get(0);
+        assertThat(first.getReplies()).extracting(CommentResponse::getId).containsExactly(101L);
+        assertThat(first.getReplies().get(0).getReplies()).extracting(CommentResponse::getId).containsExactly(102L);
+        assertThat(KeysetCursor.decode(first.getMoreRepliesCursor())).isEqualTo(new KeysetCursor(T0.plusMinutes(2), 102L));
+
+        CommentResponse second = page.getItems().get(1);
+        assertThat(second.getReplies()).extracting(CommentResponse::getId).containsExactly(201L);
+        assertThat(second.getMoreRepliesCursor()).isNull();
+    }
+
+    @Test
+    void replyPageNestsRepliesWhoseParentIsOnThePage() {
+        when(commentJdbcRepository.findThreadRef(ROOT)).thenReturn(Optional.of(rootRef(false)));
+        when(commentJdbcRepository.findReplyPage(eq(ROOT), any(), eq(51))).thenReturn(List.of(
+                comment(103L, ROOT, 4), comment(104L, 103L, 5), comment(105L, 102L, 6)));
+        when(commentJdbcRepository.findThreadNodes(Set.of(102L)))
+                .thenReturn(List.of(new CommentJdbcRepository.ThreadNode(102L, ROOT, false)));
+
+        CommentPageResponse page = service.getReplies(CHAPTER, ROOT, null, CommentThreadService.DEFAULT_REPLY_PAGE_SIZE);
+
+        assertThat(page.getItems()).extracting(CommentResponse::getId).containsExactly(103L, 105L);
+        assertThat(page.getItems().get(0).getReplies()).extracting(CommentResponse::getId).containsExactly(104L);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void replyPageDropsRepliesUnderAHiddenAncestor() {
+        when(commentJdbcRepository.findThreadRef(ROOT)).thenReturn(Optional.of(rootRef(false)));
+        when(commentJdbcRepository.findReplyPage(eq(ROOT), any(), anyInt())).thenReturn(List.of(
+                comment(110L, 109L, 10), comment(111L, 108L, 11)));
+        // 109 sits under 107, which was hidden; 108 hangs straight off the root
+        when(commentJdbcRepository.findThreadNodes(any())).thenAnswer(invocation -> {
+            List<CommentJdbcRepository.ThreadNode> nodes = new ArrayList<>();
+            for (Object id : (Collection<?>) invocation.getArgument(0)) {
+                if (id.equals(109L)) {
+                    nodes.add(new CommentJdbcRepository.ThreadNode(109L, 107L, false));
+                } else if (id.equals(108L)) {
+                    nodes.add(new CommentJdbcRepository.ThreadNode(108L, ROOT, false));
+                } else if (id.equals(107L)) {
+                    nodes.add(new CommentJdbcRepository.ThreadNode(107L, ROOT, true));
+                }
+            }
+            return nodes;
+        });
+
+        CommentPageResponse page = service.getReplies(CHAPTER, ROOT, null, 10);
+
+        assertThat(page.getItems()).extracting(CommentResponse::getId).containsExactly(111L);
+    }
+
+    @Test
+    void replyPageHasANextCursorWhenTheThreadGoesOn() {
+        when(commentJdbcRepository.findThreadRef(ROOT)).thenReturn(Optional.of(rootRef(false)));
+        when(commentJdbcRepository.findReplyPage(eq(ROOT), any(), eq(3))).thenReturn(List.of(
+                comment(101L, ROOT, 1), comment(102L, ROOT, 2), comment(103L, ROOT, 3)));
+
+        CommentPageResponse page = service.getReplies(CHAPTER, ROOT, null, 2);
+
+        assertThat(page.getItems()).extracting(CommentResponse::getId).containsExactly(101L, 102L);
+        assertThat(KeysetCursor.decode(page.getNextCursor())).isEqualTo(new KeysetCursor(T0.plusMinutes(2), 102L));
+    }
+
+    @Test
+    void repliesOfAHiddenOrForeignRootAreNotFound() {
+        when(commentJdbcRepository.findThreadRef(ROOT)).thenReturn(Optional.of(rootRef(true)));
+        assertThatThrownBy(() -> service.getReplies(CHAPTER, ROOT, null, 10))
+                .isInstanceOf(CommentNotFoundException.class);
+
+        when(commentJdbcRepository.findThreadRef(ROOT)).thenReturn(Optional.of(rootRef(false)));
+        assertThatThrownBy(() -> service.getReplies(CHAPTER + 1, ROOT, null, 10))
+                .isInstanceOf(CommentNotFoundException.class);
+    }
+
+    private static CommentJdbcRepository.ThreadRef rootRef(boolean hidden) {
+        return new CommentJdbcRepository.ThreadRef(ROOT, CHAPTER, null, 0, hidden);
+    }
+
+    private static CommentResponse comment(long id, Long parentId, int minute) {
+        CommentResponse comment = new CommentResponse();
+        comment.setId(id);
+        comment.setParentId(parentId);
+        comment.setContent("comment " + id);
+        comment.setCreatedAt(T0.plusMinutes(minute));
+        return comment;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.ContinueReadingResponse;
+import com.example.WebTruyen.repository.LibraryJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ContinueReadingServiceTest {
+
+    private static final Long USER = 7L;
+    private static final int LIBRARY_SIZE = 500;
+
+    @Mock
+    private LibraryJdbcRepository libraryJdbcRepository;
+
+    @InjectMocks
+    private ContinueReadingService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxUsers", 2);
+        ReflectionTestUtils.setField(service, "ttlMillis", 60_000L);
+    }
+
+    @Test
+    void loadsAFullLibraryWithOneQueryAndServesItFromCache() {
+        List<ContinueReadingResponse> library = library(LIBRARY_SIZE);
+        when(libraryJdbcRepository.findContinueReading(USER)).thenReturn(library);
+
+        List<ContinueReadingResponse> first = service.getShelf(USER);
+        List<ContinueReadingResponse> second = service.getShelf(USER);
+
+        assertThat(first).hasSize(LIBRARY_SIZE).containsExactlyElementsOf(library);
+        assertThat(second).isSameAs(first);
+        verify(libraryJdbcRepository, times(1)).findContinueReading(USER);
+    }
+
+    @Test
+    void cachedShelfIsReadOnly() {
+        when(libraryJdbcRepository.findContinueReading(USER)).thenReturn(library(3));
+
+        List<ContinueReadingResponse> shelf = service.getShelf(USER);
+
+        assertThatThrownBy(shelf::clear).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void invalidationReloadsTheShelf() {
+        when(libraryJdbcRepository.findContinueReading(USER)).thenReturn(library(LIBRARY_SIZE));
+
+        service.getShelf(USER);
+        service.invalidate(List.of(USER));
+        service.getShelf(USER);
+
+        verify(libraryJdbcRepository, times(2)).findContinueReading(USER);
+    }
+
+    @Test
+    void expiredShelfIsReloaded() {
+        ReflectionTestUtils.setField(service, "ttlMillis", 0L);
+        when(libraryJdbcRepository.findContinueReading(USER)).thenReturn(library(1));
+
+        service.getShelf(USER);
+        service.getShelf(USER);
+
+        verify(libraryJdbcRepository, times(2)).findContinueReading(USER);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedShelf() {
+        when(libraryJdbcRepository.findContinueReading(1L)).thenReturn(library(1));
+        when(libraryJdbcRepository.findContinueReading(2L)).thenReturn(library(1));
+        when(libraryJdbcRepository.findContinueReading(3L)).thenReturn(library(1));
+
+        service.getShelf(1L);
+        service.getShelf(2L);
+        service.getShelf(1L);
+        service.getShelf(3L);
+        service.getShelf(1L);
+        service.getShelf(2L);
+
+        verify(libraryJdbcRepository, times(1)).findContinueReading(1L);
+        verify(libraryJdbcRepository, times(2)).findContinueReading(2L);
+    }
+
+    private static List<ContinueReadingResponse> library(int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ContinueReadingResponse> items = new ArrayList<>(size);
+        for (long storyId = 1; storyId <= size; storyId++) {
+            boolean started = storyId % 2 == 0;
+            items.add(new ContinueReadingResponse(
+                    storyId, "Story " + storyId, null, false, now.minusDays(storyId),
+                    started ? storyId * 100 : null,
+                    started ? "Chapter 1" : null,
+                    started ? 3 : null,
+                    started ? new BigDecimal("42.50") : null,
+                    started ? now.minusMinutes(storyId) : null,
+                    storyId * 100 + 1, "Chapter 2"));
+        }
+        return items;
+    }
+}
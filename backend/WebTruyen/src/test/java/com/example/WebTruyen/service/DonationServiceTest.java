@@ -0,0 +1,264 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.DonationResponse;
+import com.example.WebTruyen.dto.response.WalletResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.DonationJdbcRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DonationServiceTest {
+
+    private static final long AUTHOR = 9L;
+
+    @Mock
+    private DonationJdbcRepository donationJdbcRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WalletBalanceService walletBalanceService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private DonationCreditAccumulator accumulator = new DonationCreditAccumulator();
+
+    @InjectMocks
+    private DonationService donationService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(donationService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(donationService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(donationService, "batchSize", 50);
+        // A generous linger so every donation submitted by a test lands in the same batch
+        ReflectionTestUtils.setField(donationService, "lingerMs", 300L);
+        ReflectionTestUtils.setField(donationService, "timeoutMs", 5000L);
+        donationService.init();
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(userRepository.existsById(AUTHOR)).thenReturn(true);
+        lenient().when(donationJdbcRepository.batchInsert(anyList())).thenAnswer(invocation -> {
+            long[] ids = new long[invocation.<List<?>>getArgument(0).size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = 100 + i;
+            }
+            return ids;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        donationService.flushOnShutdown();
+    }
+
+    @Test
+    void flushCreditsEachRecipientOnceAndMarksDonations() {
+        accumulator.add(AUTHOR, CoinType.A, 10, 1);
+        accumulator.add(AUTHOR, CoinType.A, 15, 2);
+        lockedUncredited(pending(1L, 10L), pending(2L, 15L));
+        creditAnswersWithBalance(125L);
+
+        donationService.flush();
+
+        verify(walletBalanceService).credit(eq(AUTHOR), eq(CoinType.A), eq(25L), any());
+        ArgumentCaptor<LedgerJdbcRepository.Entry> entry = ArgumentCaptor.forClass(LedgerJdbcRepository.Entry.class);
+        verify(ledgerJdbcRepository).insert(entry.capture());
+        assertThat(entry.getValue().idempotencyKey()).isEqualTo("donation-batch:2");
+        verify(donationJdbcRepository).markCredited(eq(List.of(1L, 2L)), any());
+        assertThat(accumulator.pendingDonations()).isZero();
+    }
+
+    @Test
+    void clashingBatchKeyRequeuesUncreditedDonations() {
+        accumulator.add(AUTHOR, CoinType.A, 10, 1);
+        accumulator.add(AUTHOR, CoinType.A, 15, 2);
+        lockedUncredited(pending(1L, 10L), pending(2L, 15L));
+        doThrow(new DuplicateKeyException("uq_ledger_idempotency"))
+                .when(walletBalanceService).credit(eq(AUTHOR), eq(CoinType.A), anyLong(), any());
+        // Donation 2 was credited by the earlier batch, donation 1 was not
+        when(donationJdbcRepository.findUncreditedAmong(List.of(1L, 2L)))
+                .thenReturn(List.of(pending(1L, 10L)));
+
+        donationService.flush();
+
+        Map<DonationCreditAccumulator.Recipient, DonationCreditAccumulator.PendingCredit> left = accumulator.drain();
+        DonationCreditAccumulator.PendingCredit requeued = left.get(new DonationCreditAccumulator.Recipient(AUTHOR, CoinType.A));
+        assertThat(requeued.getDonationIds()).containsExactly(1L);
+        assertThat(requeued.getAmount()).isEqualTo(10L);
+    }
+
+    @Test
+    void failedCreditIsKeptForTheNextFlush() {
+        accumulator.add(AUTHOR, CoinType.A, 10, 1);
+        lockedUncredited(pending(1L, 10L));
+        doThrow(new IllegalStateException("database down"))
+                .when(walletBalanceService).credit(eq(AUTHOR), eq(CoinType.A), anyLong(), any());
+
+        donationService.flush();
+
+        assertThat(accumulator.pendingDonations()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyDonationsStillUncreditedAreCredited() {
+        accumulator.add(AUTHOR, CoinType.A, 10, 1);
+        accumulator.add(AUTHOR, CoinType.A, 15, 2);
+        // Donation 1 was credited by another flush in the meantime
+        lockedUncredited(pending(2L, 15L));
+        creditAnswersWithBalance(115L);
+
+        donationService.flush();
+
+        verify(walletBalanceService).credit(eq(AUTHOR), eq(CoinType.A), eq(15L), any());
+        verify(donationJdbcRepository).markCredited(eq(List.of(2L)), any());
+    }
+
+    @Test
+    void nothingIsCreditedWhenFewerRowsWereMarkedThanLocked() {
+        accumulator.add(AUTHOR, CoinType.A, 10, 1);
+        when(donationJdbcRepository.lockUncreditedAmong(List.of(1L))).thenReturn(List.of(pending(1L, 10L)));
+        when(donationJdbcRepository.markCredited(eq(List.of(1L)), any())).thenReturn(0);
+
+        donationService.flush();
+
+        verify(walletBalanceService, never()).credit(anyLong(), any(), anyLong(), any());
+        assertThat(accumulator.pendingDonations()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentDonationsAreInsertedAsOneBatch() throws Exception {
+        debitAnswersWithBalance(50L);
+
+        ExecutorService donors = Executors.newFixedThreadPool(5);
+        List<DonationResponse> responses = new ArrayList<>();
+        try {
+            List<Future<DonationResponse>> results = new ArrayList<>();
+            for (long donor = 1; donor <= 5; donor++) {
+                long from = donor;
+                results.add(donors.submit(() -> donationService.donate(from, AUTHOR, CoinType.A, 10L, null)));
+            }
+            for (Future<DonationResponse> result : results) {
+                responses.add(result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            donors.shutdownNow();
+        }
+
+        ArgumentCaptor<List<DonationJdbcRepository.NewDonation>> donations = ArgumentCaptor.captor();
+        verify(donationJdbcRepository, times(1)).batchInsert(donations.capture());
+        assertThat(donations.getValue()).hasSize(5);
+        ArgumentCaptor<List<LedgerJdbcRepository.Entry>> entries = ArgumentCaptor.captor();
+        verify(ledgerJdbcRepository).batchInsert(entries.capture());
+        assertThat(entries.getValue()).extracting(LedgerJdbcRepository.Entry::idempotencyKey)
+                .containsExactlyInAnyOrder("donate:100", "donate:101", "donate:102", "donate:103", "donate:104");
+        assertThat(responses).extracting(DonationResponse::getDonationId).doesNotHaveDuplicates();
+        assertThat(accumulator.pendingDonations()).isEqualTo(5);
+    }
+
+    @Test
+    void aDonorWhoCannotPayIsRefusedWithoutFailingTheBatch() {
+        debitAnswersWithBalance(50L);
+        doThrow(new InsufficientBalanceException("Not enough coins", 10L))
+                .when(walletBalanceService).debit(eq(2L), eq(CoinType.A), eq(10L), any());
+
+        assertThatThrownBy(() -> donationService.donate(2L, AUTHOR, CoinType.A, 10L, null))
+                .isInstanceOf(InsufficientBalanceException.class);
+        DonationResponse paid = donationService.donate(1L, AUTHOR, CoinType.A, 10L, null);
+
+        assertThat(paid.getBalanceAfter()).isEqualTo(50L);
+        assertThat(accumulator.pendingDonations()).isEqualTo(1);
+    }
+
+    @Test
+    void replayedClientKeyReturnsTheOriginalDonation() {
+        debitAnswersWithBalance(90L);
+        // The key clashes in the batch and again when the donation is retried on its own
+        doThrow(new DuplicateKeyException("uq_ledger_idempotency")).when(ledgerJdbcRepository).batchInsert(anyList());
+        doThrow(new DuplicateKeyException("uq_ledger_idempotency")).when(ledgerJdbcRepository).insert(any());
+        when(ledgerJdbcRepository.findRefIdByIdempotencyKey("donate:1:tip-1")).thenReturn(Optional.of(77L));
+        when(walletBalanceService.getBalances(1L)).thenReturn(new WalletResponse(90, 0, 0));
+
+        DonationResponse response = donationService.donate(1L, AUTHOR, CoinType.A, 10L, "tip-1");
+
+        assertThat(response.getDonationId()).isEqualTo(77L);
+        assertThat(response.getBalanceAfter()).isEqualTo(90L);
+        verify(accumulator, never()).add(anyLong(), any(), anyLong(), anyLong());
+    }
+
+    private DonationJdbcRepository.PendingDonation pending(long id, long amount) {
+        return new DonationJdbcRepository.PendingDonation(id, AUTHOR, CoinType.A, amount);
+    }
+
+    private void lockedUncredited(DonationJdbcRepository.PendingDonation... donations) {
+        List<DonationJdbcRepository.PendingDonation> locked = List.of(donations);
+        List<Long> ids = locked.stream().map(DonationJdbcRepository.PendingDonation::id).toList();
+        when(donationJdbcRepository.lockUncreditedAmong(anyList())).thenReturn(locked);
+        lenient().when(donationJdbcRepository.markCredited(eq(ids), any())).thenReturn(ids.size());
+    }
+
+    private void debitAnswersWithBalance(long balance) {
+        lenient().doAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(balance);
+            return balance;
+        }).when(walletBalanceService).debit(anyLong(), any(), anyLong(), any());
+    }
+
+    private void creditAnswersWithBalance(long balance) {
+        doAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(balance);
+            return balance;
+        }).when(walletBalanceService).credit(anyLong(), any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import com.example.WebTruyen.entity.model.Notification.EmailOutboxEntity;
+import com.example.WebTruyen.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the worker against a real {@link JavaMailSenderImpl} talking to a minimal SMTP server
+ * on a loopback socket, so batching over one connection and per-recipient failures are
+ * exercised through the actual mail stack.
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxWorkerSmtpTest {
+
+    private static final String REJECTED = "bounce@example.com";
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private EmailOutboxWorker worker;
+    private FakeSmtpServer smtp;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.port());
+        mailSender.setDefaultEncoding("UTF-8");
+        mailSender.getJavaMailProperties().put("mail.smtp.from", "noreply@example.com");
+
+        worker = new EmailOutboxWorker();
+        ReflectionTestUtils.setField(worker, "emailOutboxRepository", emailOutboxRepository);
+        ReflectionTestUtils.setField(worker, "mailSender", mailSender);
+        ReflectionTestUtils.setField(worker, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(worker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(worker, "workers", 1);
+        ReflectionTestUtils.setField(worker, "batchSize", 20);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 6);
+        ReflectionTestUtils.setField(worker, "retryBaseSeconds", 10L);
+        ReflectionTestUtils.setField(worker, "leaseSeconds", 300L);
+        worker.init();
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        worker.shutdown();
+        smtp.close();
+    }
+
+    @Test
+    void aChunkIsDeliveredOverOneConnection() {
+        List<EmailOutboxEntity> mails = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            mails.add(mail(id, "reader" + id + "@example.com"));
+            ids.add(id);
+        }
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(ids);
+        when(emailOutboxRepository.findAllById(ids)).thenReturn(mails);
+
+        worker.drain();
+
+        assertThat(smtp.connections()).isEqualTo(1);
+        assertThat(smtp.recipients()).hasSize(5);
+        assertThat(mails).extracting(EmailOutboxEntity::getStatus).containsOnly(EmailOutboxStatus.SENT);
+    }
+
+    @Test
+    void aRejectedRecipientIsRetriedWithoutFailingTheChunk() {
+        EmailOutboxEntity good = mail(1L, "reader@example.com");
+        EmailOutboxEntity bad = mail(2L, REJECTED);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L, 2L));
+        when(emailOutboxRepository.findAllById(anyList())).thenReturn(List.of(good, bad));
+
+        worker.drain();
+
+        assertThat(good.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(bad.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(bad.getLastError()).isNotBlank();
+        assertThat(smtp.connections()).isEqualTo(1);
+    }
+
+    private EmailOutboxEntity mail(long id, String to) {
+        return EmailOutboxEntity.builder()
+                .id(id)
+                .toEmail(to)
+                .subject("Subject " + id)
+                .body("Body " + id)
+                .status(EmailOutboxStatus.SENDING)
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now().plusSeconds(300))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Accepts connections one at a time and answers just enough SMTP for JavaMail to send:
+     * every command succeeds except RCPT TO for {@link #REJECTED}, which gets a 550.
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final Thread acceptor;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final List<String> recipients = new CopyOnWriteArrayList<>();
+
+        FakeSmtpServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        List<String> recipients() {
+            return recipients;
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    connections.incrementAndGet();
+                    converse(client);
+                } catch (IOException e) {
+                    // Closed by the test
+                }
+            }
+        }
+
+        private void converse(Socket client) throws IOException {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.US_ASCII);
+            reply(out, "220 localhost fake SMTP");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("RCPT TO:")) {
+                    if (line.contains(REJECTED)) {
+                        reply(out, "550 5.1.1 No such user");
+                    } else {
+                        recipients.add(line.substring("RCPT TO:".length()).trim());
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    String data;
+                    while ((data = in.readLine()) != null && !data.equals(".")) {
+                        // Discard the message body
+                    }
+                    reply(out, "250 OK queued");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    // MAIL FROM, RSET, NOOP
+                    reply(out, "250 OK");
+                }
+            }
+        }
+
+        private void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            try {
+                acceptor.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
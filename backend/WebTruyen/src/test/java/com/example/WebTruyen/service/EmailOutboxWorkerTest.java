@@ -0,0 +1,163 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.EmailOutboxStatus;
+import com.example.WebTruyen.entity.model.Notification.EmailOutboxEntity;
+import com.example.WebTruyen.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxWorkerTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private EmailOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(worker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(worker, "workers", 1);
+        ReflectionTestUtils.setField(worker, "batchSize", 20);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 6);
+        ReflectionTestUtils.setField(worker, "retryBaseSeconds", 10L);
+        ReflectionTestUtils.setField(worker, "leaseSeconds", 300L);
+        worker.init();
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void claimsRowsBeforeLoadingThem() {
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), eq(20))).thenReturn(List.of(2L, 1L));
+        when(emailOutboxRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(mail(2L), mail(1L)));
+
+        List<EmailOutboxEntity> claimed = worker.claim(20);
+
+        verify(emailOutboxRepository).markSending(eq(List.of(2L, 1L)), any(LocalDateTime.class));
+        assertThat(claimed).extracting(EmailOutboxEntity::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void nothingDueMeansNothingMarked() {
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+        assertThat(worker.claim(20)).isEmpty();
+
+        verify(emailOutboxRepository, never()).markSending(any(), any());
+        verify(emailOutboxRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void sentMailsAreMarkedSent() {
+        EmailOutboxEntity mail = mail(1L);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L));
+        when(emailOutboxRepository.findAllById(List.of(1L))).thenReturn(List.of(mail));
+
+        worker.drain();
+
+        verify(mailSender).send(any(SimpleMailMessage[].class));
+        verify(emailOutboxRepository).saveAll(List.of(mail));
+        assertThat(mail.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(mail.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void failedMailsGoBackToPendingWithBackoff() {
+        EmailOutboxEntity mail = mail(1L);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L));
+        when(emailOutboxRepository.findAllById(List.of(1L))).thenReturn(List.of(mail));
+        doThrow(new MailSendException("connection refused"))
+                .when(mailSender).send(any(SimpleMailMessage[].class));
+
+        LocalDateTime before = LocalDateTime.now();
+        worker.drain();
+
+        assertThat(mail.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(10));
+        verify(emailOutboxRepository).saveAll(List.of(mail));
+    }
+
+    @Test
+    void theLastFailedAttemptGivesUp() {
+        EmailOutboxEntity mail = mail(1L);
+        mail.setAttempts(6);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L));
+        when(emailOutboxRepository.findAllById(List.of(1L))).thenReturn(List.of(mail));
+        doThrow(new MailSendException("connection refused"))
+                .when(mailSender).send(any(SimpleMailMessage[].class));
+
+        worker.drain();
+
+        assertThat(mail.getStatus()).isEqualTo(EmailOutboxStatus.FAILED);
+        assertThat(mail.getLastError()).isEqualTo("connection refused");
+    }
+
+    @Test
+    void aMailReclaimedAfterItsLastLeaseIsNotSentAgain() {
+        // Claimed for the sixth time, the sender died, and the expired lease was claimed once more
+        EmailOutboxEntity mail = mail(1L);
+        mail.setAttempts(7);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(1L));
+        when(emailOutboxRepository.findAllById(List.of(1L))).thenReturn(List.of(mail));
+
+        worker.drain();
+
+        verify(mailSender, never()).send(any(SimpleMailMessage[].class));
+        verify(emailOutboxRepository).saveAll(List.of(mail));
+        assertThat(mail.getStatus()).isEqualTo(EmailOutboxStatus.FAILED);
+    }
+
+    private EmailOutboxEntity mail(long id) {
+        return EmailOutboxEntity.builder()
+                .id(id)
+                .toEmail("reader" + id + "@example.com")
+                .subject("Subject")
+                .body("Body")
+                .status(EmailOutboxStatus.SENDING)
+                // Claiming counts the attempt
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now().plusSeconds(300))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
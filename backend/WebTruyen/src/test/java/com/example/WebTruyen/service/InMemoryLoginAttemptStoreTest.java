@@ -0,0 +1,107 @@
+package com.example.WebTruyen.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryLoginAttemptStoreTest {
+
+    private static final Long USER = 1L;
+    private static final Duration LOCK = Duration.ofMinutes(15);
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    private final InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore();
+
+    @Test
+    void anUnknownUserIsSeededFromThePersistedState() {
+        LoginAttemptState persisted = new LoginAttemptState(2, null);
+
+        assertThat(store.get(USER, persisted)).isEqualTo(persisted);
+        assertThat(store.recordFailure(USER, persisted, 5, LOCK, NOW).failedAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    void theLastAllowedFailureLocksTheAccount() {
+        for (int i = 0; i < 4; i++) {
+            store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        }
+
+        LoginAttemptState locked = store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+
+        assertThat(locked).isEqualTo(new LoginAttemptState(0, NOW.plus(LOCK)));
+        assertThat(store.get(USER, LoginAttemptState.CLEAR).isLocked(NOW)).isTrue();
+    }
+
+    @Test
+    void failuresOnALockedAccountDoNotExtendTheLock() {
+        LoginAttemptState locked = new LoginAttemptState(0, NOW.plus(LOCK));
+
+        assertThat(store.recordFailure(USER, locked, 5, LOCK, NOW.plusMinutes(1))).isEqualTo(locked);
+        assertThat(store.drainDirty()).isEmpty();
+    }
+
+    @Test
+    void anExpiredLockStartsCountingAfresh() {
+        LoginAttemptState expired = new LoginAttemptState(0, NOW.minusMinutes(1));
+
+        assertThat(store.recordFailure(USER, expired, 5, LOCK, NOW)).isEqualTo(new LoginAttemptState(1, null));
+    }
+
+    @Test
+    void manyFailuresBetweenTwoDrainsCollapseIntoOneState() {
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        store.recordFailure(2L, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+
+        Map<Long, LoginAttemptState> dirty = store.drainDirty();
+
+        assertThat(dirty).containsOnly(
+                Map.entry(USER, new LoginAttemptState(2, null)),
+                Map.entry(2L, new LoginAttemptState(1, null)));
+        assertThat(store.drainDirty()).isEmpty();
+    }
+
+    @Test
+    void aResetIsFlushedToo() {
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        store.drainDirty();
+
+        store.reset(USER);
+
+        assertThat(store.drainDirty()).containsOnly(Map.entry(USER, LoginAttemptState.CLEAR));
+    }
+
+    @Test
+    void aDrainedStateKeepsServingReads() {
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        store.drainDirty();
+
+        // A stale persisted row read before the flush must not win over the store
+        assertThat(store.get(USER, LoginAttemptState.CLEAR)).isEqualTo(new LoginAttemptState(1, null));
+    }
+
+    @Test
+    void restoreDirtyRequeuesAFailedFlush() {
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        Map<Long, LoginAttemptState> failed = store.drainDirty();
+
+        store.restoreDirty(failed);
+
+        assertThat(store.drainDirty()).isEqualTo(failed);
+    }
+
+    @Test
+    void restoreDirtyKeepsAStateThatChangedInTheMeantime() {
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+        Map<Long, LoginAttemptState> failed = store.drainDirty();
+        store.recordFailure(USER, LoginAttemptState.CLEAR, 5, LOCK, NOW);
+
+        store.restoreDirty(failed);
+
+        assertThat(store.drainDirty()).containsOnly(Map.entry(USER, new LoginAttemptState(2, null)));
+    }
+}
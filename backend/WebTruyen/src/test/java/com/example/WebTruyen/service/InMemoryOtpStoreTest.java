@@ -0,0 +1,158 @@
+package com.example.WebTruyen.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryOtpStoreTest {
+
+    private static final String EMAIL = "reader@example.com";
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private InMemoryOtpStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryOtpStore();
+        ReflectionTestUtils.setField(store, "maxEntries", 1000);
+        ReflectionTestUtils.setField(store, "maxAttempts", 3);
+        ReflectionTestUtils.setField(store, "maxSends", 3);
+        ReflectionTestUtils.setField(store, "budgetWindowMs", 3_600_000L);
+    }
+
+    @Test
+    void acceptsTheCurrentCodeWithinTheAttemptLimit() {
+        store.put(EMAIL, "111111", TTL);
+
+        assertThat(store.verify(EMAIL, "000000")).isFalse();
+        assertThat(store.verify(EMAIL, "111111")).isTrue();
+    }
+
+    @Test
+    void resendDoesNotResetTheAttemptCounter() {
+        store.put(EMAIL, "111111", TTL);
+        assertThat(store.verify(EMAIL, "000000")).isFalse();
+        assertThat(store.verify(EMAIL, "000001")).isFalse();
+        assertThat(store.verify(EMAIL, "000002")).isFalse();
+
+        store.put(EMAIL, "222222", TTL);
+
+        assertThat(store.verify(EMAIL, "222222")).isFalse();
+    }
+
+    @Test
+    void guessesAreSharedAcrossResends() {
+        store.put(EMAIL, "111111", TTL);
+        assertThat(store.verify(EMAIL, "000000")).isFalse();
+        assertThat(store.verify(EMAIL, "000001")).isFalse();
+
+        store.put(EMAIL, "222222", TTL);
+        assertThat(store.verify(EMAIL, "000002")).isFalse();
+
+        // Third guess overall was spent above; the new code gets no fresh allowance.
+        assertThat(store.verify(EMAIL, "222222")).isFalse();
+    }
+
+    @Test
+    void replacedCodeNoLongerVerifies() {
+        store.put(EMAIL, "111111", TTL);
+        store.put(EMAIL, "222222", TTL);
+
+        assertThat(store.verify(EMAIL, "111111")).isFalse();
+        assertThat(store.verify(EMAIL, "222222")).isTrue();
+    }
+
+    @Test
+    void capsTheNumberOfCodesPerWindow() {
+        store.put(EMAIL, "111111", TTL);
+        store.put(EMAIL, "222222", TTL);
+        store.put(EMAIL, "333333", TTL);
+
+        assertThatThrownBy(() -> store.put(EMAIL, "444444", TTL))
+                .isInstanceOf(OtpLimitExceededException.class);
+        assertThat(store.verify(EMAIL, "333333")).isTrue();
+    }
+
+    @Test
+    void successfulVerificationClearsTheBudget() {
+        store.put(EMAIL, "111111", TTL);
+        store.verify(EMAIL, "000000");
+        store.verify(EMAIL, "000001");
+        assertThat(store.verify(EMAIL, "111111")).isTrue();
+        store.remove(EMAIL);
+
+        store.put(EMAIL, "222222", TTL);
+        assertThat(store.verify(EMAIL, "000000")).isFalse();
+        assertThat(store.verify(EMAIL, "000001")).isFalse();
+        assertThat(store.verify(EMAIL, "222222")).isTrue();
+    }
+
+    @Test
+    void budgetsAreKeptPerEmail() {
+        store.put(EMAIL, "111111", TTL);
+        store.verify(EMAIL, "000000");
+        store.verify(EMAIL, "000001");
+        store.verify(EMAIL, "000002");
+
+        store.put("other@example.com", "222222", TTL);
+
+        assertThat(store.verify("other@example.com", "222222")).isTrue();
+    }
+
+    @Test
+    void aFullStoreRefusesNewEmailsInsteadOfEvictingLiveBudgets() {
+        ReflectionTestUtils.setField(store, "maxEntries", 2);
+        store.put(EMAIL, "111111", TTL);
+        store.verify(EMAIL, "000000");
+        store.verify(EMAIL, "000001");
+        store.verify(EMAIL, "000002");
+        store.put("other@example.com", "222222", TTL);
+
+        assertThatThrownBy(() -> store.put("third@example.com", "333333", TTL))
+                .isInstanceOf(OtpLimitExceededException.class);
+
+        // The exhausted budget survived, so a resend still gets no fresh guesses
+        store.put(EMAIL, "444444", TTL);
+        assertThat(store.verify(EMAIL, "444444")).isFalse();
+    }
+
+    @Test
+    void expiredWindowsFreeCapacity() throws InterruptedException {
+        ReflectionTestUtils.setField(store, "maxEntries", 1);
+        ReflectionTestUtils.setField(store, "budgetWindowMs", 1L);
+        store.put(EMAIL, "111111", Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        store.put("other@example.com", "222222", TTL);
+
+        assertThat(store.verify("other@example.com", "222222")).isTrue();
+        assertThat(store.verify(EMAIL, "111111")).isFalse();
+    }
+
+    @Test
+    void manyEmailsKeepTheStoreBounded() throws InterruptedException {
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "budgetWindowMs", 1L);
+        Duration ttl = Duration.ofMillis(1);
+
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 50; i++) {
+                store.put("reader" + round + "-" + i + "@example.com", "111111", ttl);
+            }
+            // Let this round's windows run out before the next one
+            Thread.sleep(2);
+        }
+
+        Map<?, ?> entries = (Map<?, ?>) ReflectionTestUtils.getField(store, "entries");
+        Queue<?> expiryQueue = (Queue<?>) ReflectionTestUtils.getField(store, "expiryQueue");
+        assertThat(entries).hasSizeLessThanOrEqualTo(100);
+        assertThat(expiryQueue).hasSizeLessThanOrEqualTo(100);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.WalletJdbcRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Wallet rows with the conditional-update semantics of the real table, each change atomic.
+ */
+final class InMemoryWallets extends WalletJdbcRepository {
+    private final Map<Long, long[]> balances = new HashMap<>();
+
+    synchronized void seed(Long userId, long coinA) {
+        balances.put(userId, new long[]{coinA, 0});
+    }
+
+    synchronized long balance(Long userId) {
+        return balances.get(userId)[0];
+    }
+
+    @Override
+    public synchronized Optional<Balances> find(Long userId) {
+        long[] row = balances.get(userId);
+        return row == null ? Optional.empty() : Optional.of(new Balances(row[0], row[1], 0));
+    }
+
+    @Override
+    public Optional<Balances> findForUpdate(Long userId) {
+        return find(userId);
+    }
+
+    @Override
+    public synchronized OptionalLong applyDelta(Long userId, CoinType coin, long delta, LocalDateTime now) {
+        int index = coin == CoinType.A ? 0 : 1;
+        long[] row = balances.get(userId);
+        if (delta < 0 && (row == null || row[index] < -delta)) {
+            return OptionalLong.empty();
+        }
+        if (row == null) {
+            row = new long[2];
+            balances.put(userId, row);
+        }
+        row[index] += delta;
+        return OptionalLong.of(row[index]);
+    }
+}
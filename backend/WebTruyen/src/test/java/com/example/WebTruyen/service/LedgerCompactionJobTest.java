@@ -0,0 +1,124 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.LedgerJdbcRepository.Checkpoint;
+import com.example.WebTruyen.repository.LedgerJdbcRepository.CompactionRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerCompactionJobTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.now().minusDays(400);
+    private static final LocalDateTime RECENT = LocalDateTime.now().minusDays(1);
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private LedgerCompactionJob job;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(job, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "retentionDays", 180);
+        ReflectionTestUtils.setField(job, "batchSize", 3);
+        job.init();
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(ledgerJdbcRepository.archive(anyList()))
+                .thenAnswer(inv -> inv.<List<Long>>getArgument(0).size());
+    }
+
+    @Test
+    void checkpointIsTheNewestArchivedBalancePerUserAndCoin() {
+        when(ledgerJdbcRepository.findCompactionBatch(0L, 3)).thenReturn(List.of(
+                new CompactionRow(1, 7, CoinType.A, 100L, OLD),
+                new CompactionRow(2, 7, CoinType.B, 50L, OLD),
+                new CompactionRow(3, 7, CoinType.A, 80L, OLD)));
+        when(ledgerJdbcRepository.findCompactionBatch(3L, 3)).thenReturn(List.of(
+                new CompactionRow(4, 8, CoinType.A, 10L, OLD)));
+
+        job.compact();
+
+        ArgumentCaptor<List<Checkpoint>> checkpoints = ArgumentCaptor.captor();
+        verify(ledgerJdbcRepository, times(2)).upsertCheckpoints(checkpoints.capture(), any());
+        assertThat(checkpoints.getAllValues().get(0)).containsExactlyInAnyOrder(
+                new Checkpoint(7, CoinType.A, 3, 80),
+                new Checkpoint(7, CoinType.B, 2, 50));
+        assertThat(checkpoints.getAllValues().get(1)).containsExactly(new Checkpoint(8, CoinType.A, 4, 10));
+        verify(ledgerJdbcRepository).archive(List.of(1L, 2L, 3L));
+        verify(ledgerJdbcRepository).archive(List.of(4L));
+    }
+
+    @Test
+    void stopsAtTheFirstEntryInsideTheRetentionWindow() {
+        when(ledgerJdbcRepository.findCompactionBatch(0L, 3)).thenReturn(List.of(
+                new CompactionRow(1, 7, CoinType.A, 100L, OLD),
+                new CompactionRow(2, 7, CoinType.A, 120L, RECENT),
+                new CompactionRow(3, 7, CoinType.A, 130L, OLD)));
+
+        job.compact();
+
+        ArgumentCaptor<List<Checkpoint>> checkpoints = ArgumentCaptor.captor();
+        verify(ledgerJdbcRepository).upsertCheckpoints(checkpoints.capture(), any());
+        // The checkpoint must not move past an entry that stays live
+        assertThat(checkpoints.getValue()).containsExactly(new Checkpoint(7, CoinType.A, 1, 100));
+        verify(ledgerJdbcRepository).archive(List.of(1L));
+        verify(ledgerJdbcRepository, times(1)).findCompactionBatch(anyLong(), anyInt());
+    }
+
+    @Test
+    void entriesWithoutBalanceAfterStayLive() {
+        when(ledgerJdbcRepository.findCompactionBatch(0L, 3)).thenReturn(List.of(
+                new CompactionRow(1, 7, CoinType.A, null, OLD),
+                new CompactionRow(2, 7, CoinType.A, 40L, OLD)));
+
+        job.compact();
+
+        ArgumentCaptor<List<Checkpoint>> checkpoints = ArgumentCaptor.captor();
+        verify(ledgerJdbcRepository).upsertCheckpoints(checkpoints.capture(), any());
+        assertThat(checkpoints.getValue()).containsExactly(new Checkpoint(7, CoinType.A, 2, 40));
+        verify(ledgerJdbcRepository).archive(List.of(2L));
+    }
+
+    @Test
+    void nothingExpiredMeansNoTransaction() {
+        when(ledgerJdbcRepository.findCompactionBatch(0L, 3)).thenReturn(List.of(
+                new CompactionRow(1, 7, CoinType.A, 100L, RECENT)));
+
+        job.compact();
+
+        verify(transactionTemplate, never()).execute(any());
+        verify(ledgerJdbcRepository, never()).archive(anyList());
+        verify(ledgerJdbcRepository, never()).upsertCheckpoints(anyList(), any());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.response.LedgerEntryResponse;
+import com.example.WebTruyen.dto.response.LedgerPageResponse;
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.LedgerReason;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.util.KeysetCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerHistoryServiceTest {
+
+    private static final Long USER = 1L;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @InjectMocks
+    private LedgerHistoryService ledgerHistoryService;
+
+    @Test
+    void aFullPagePointsTheCursorAtItsLastRow() {
+        // Three rows asked for a page of two: the extra row only says another page exists
+        when(ledgerJdbcRepository.findPage(eq(USER), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(entries(30, 29, 28));
+
+        LedgerPageResponse page = ledgerHistoryService.getPage(USER, null, null, null, 2);
+
+        assertThat(page.getItems()).extracting(LedgerEntryResponse::getId).containsExactly(30L, 29L);
+        assertThat(KeysetCursor.decode(page.getNextCursor())).isEqualTo(new KeysetCursor(START.plusMinutes(29), 29L));
+    }
+
+    @Test
+    void theLastPageHasNoCursor() {
+        when(ledgerJdbcRepository.findPage(eq(USER), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(entries(2, 1));
+
+        LedgerPageResponse page = ledgerHistoryService.getPage(USER, null, null, null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void aPageExactlyFilledByTheRemainingRowsIsTheLast() {
+        when(ledgerJdbcRepository.findPage(eq(USER), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(entries(1));
+
+        assertThat(ledgerHistoryService.getPage(USER, null, null, null, 2).getNextCursor()).isNull();
+    }
+
+    @Test
+    void theCursorIsPassedBackAsAKeysetPosition() {
+        KeysetCursor after = new KeysetCursor(START.plusMinutes(29), 29L);
+
+        ledgerHistoryService.getPage(USER, CoinType.A, LedgerReason.TOPUP, after.encode(), 20);
+
+        verify(ledgerJdbcRepository).findPage(USER, CoinType.A, LedgerReason.TOPUP, after, 21);
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        ledgerHistoryService.getPage(USER, null, null, null, 0);
+        ledgerHistoryService.getPage(USER, null, null, null, 10_000);
+
+        verify(ledgerJdbcRepository).findPage(USER, null, null, null, 2);
+        verify(ledgerJdbcRepository).findPage(USER, null, null, null, 101);
+    }
+
+    @Test
+    void aForgedCursorIsRejected() {
+        assertThatThrownBy(() -> ledgerHistoryService.getPage(USER, null, null, "garbage!", 20))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void csvExportWritesAHeaderAndOneLinePerRow() throws Exception {
+        streams(entries(2, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ledgerHistoryService.export(USER, null, null, LedgerHistoryService.ExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "id,coin,delta,balance_after,reason,ref_type,ref_id,created_at",
+                "2,A,-10,90,SPEND_CHAPTER,CHAPTER_UNLOCK,2,2025-03-01T12:02",
+                "1,A,-10,90,SPEND_CHAPTER,CHAPTER_UNLOCK,1,2025-03-01T12:01");
+    }
+
+    @Test
+    void ndjsonExportWritesOneObjectPerLine() throws Exception {
+        streams(entries(1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ledgerHistoryService.export(USER, null, null, LedgerHistoryService.ExportFormat.NDJSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"coin\":\"A\",\"delta\":-10,\"balanceAfter\":90,\"reason\":\"SPEND_CHAPTER\"," +
+                        "\"refType\":\"CHAPTER_UNLOCK\",\"refId\":1,\"createdAt\":\"2025-03-01T12:01\"}\n");
+    }
+
+    private void streams(List<LedgerEntryResponse> rows) {
+        doAnswer(invocation -> {
+            rows.forEach(invocation.<Consumer<LedgerEntryResponse>>getArgument(3));
+            return null;
+        }).when(ledgerJdbcRepository).streamHistory(eq(USER), isNull(), isNull(), any());
+    }
+
+    private List<LedgerEntryResponse> entries(long... ids) {
+        List<LedgerEntryResponse> rows = new ArrayList<>();
+        for (long id : ids) {
+            rows.add(new LedgerEntryResponse(id, CoinType.A, -10, 90L, LedgerReason.SPEND_CHAPTER, "CHAPTER_UNLOCK",
+                    id, START.plusMinutes(id)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.UserJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LoginAttemptFlusherTest {
+
+    @Mock
+    private LoginAttemptStore loginAttemptStore;
+
+    @Mock
+    private UserJdbcRepository userJdbcRepository;
+
+    @InjectMocks
+    private LoginAttemptFlusher flusher;
+
+    private final Map<Long, LoginAttemptState> dirty = Map.of(
+            1L, new LoginAttemptState(3, null),
+            2L, LoginAttemptState.CLEAR);
+
+    @Test
+    void dirtyStatesAreWrittenInOneBatch() {
+        when(loginAttemptStore.drainDirty()).thenReturn(dirty);
+
+        flusher.flush();
+
+        verify(userJdbcRepository).batchUpdateLoginState(dirty);
+        verify(loginAttemptStore, never()).restoreDirty(any());
+    }
+
+    @Test
+    void nothingIsWrittenWhenNothingChanged() {
+        when(loginAttemptStore.drainDirty()).thenReturn(Map.of());
+
+        flusher.flush();
+
+        verify(userJdbcRepository, never()).batchUpdateLoginState(any());
+    }
+
+    @Test
+    void aFailedWriteIsHandedBackToTheStore() {
+        when(loginAttemptStore.drainDirty()).thenReturn(dirty);
+        doThrow(new IllegalStateException("database down")).when(userJdbcRepository).batchUpdateLoginState(dirty);
+
+        flusher.flush();
+
+        verify(loginAttemptStore).restoreDirty(dirty);
+    }
+}
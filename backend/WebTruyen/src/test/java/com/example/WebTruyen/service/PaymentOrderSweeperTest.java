@@ -0,0 +1,109 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.PaymentOrderJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentOrderSweeperTest {
+
+    @Mock
+    private PaymentOrderJdbcRepository paymentOrderJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private PaymentOrderSweeper sweeper;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweeper, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(sweeper, "expireMinutes", 30L);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 3);
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 5);
+        sweeper.init();
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(paymentOrderJdbcRepository.cancel(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+    }
+
+    @Test
+    void sweepsBatchByBatchUntilAShortOne() {
+        when(paymentOrderJdbcRepository.claimExpired(any(), eq(3)))
+                .thenReturn(ids(1, 3), ids(4, 6), ids(7, 7));
+
+        sweeper.sweep();
+
+        // Each batch is claimed and cancelled in a transaction of its own
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(paymentOrderJdbcRepository, times(3)).cancel(anyList());
+        assertThat(meterRegistry.get("payment.orders.cancelled").counter().count()).isEqualTo(7);
+        assertThat(meterRegistry.get("payment.sweeper.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void oneRunStopsAtMaxBatchesAndReportsTheBacklog() {
+        when(paymentOrderJdbcRepository.claimExpired(any(), eq(3))).thenReturn(ids(1, 3));
+        when(paymentOrderJdbcRepository.countExpired(any())).thenReturn(42L);
+
+        sweeper.sweep();
+
+        verify(paymentOrderJdbcRepository, times(5)).claimExpired(any(), eq(3));
+        assertThat(meterRegistry.get("payment.orders.expired-backlog").gauge().value()).isEqualTo(42);
+    }
+
+    @Test
+    void onlyOrdersPastTheExpiryWindowAreClaimed() {
+        when(paymentOrderJdbcRepository.claimExpired(any(), eq(3))).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now().minusMinutes(30);
+
+        sweeper.sweep();
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(paymentOrderJdbcRepository).claimExpired(cutoff.capture(), eq(3));
+        assertThat(cutoff.getValue()).isBetween(before, LocalDateTime.now().minusMinutes(30));
+        verify(paymentOrderJdbcRepository).countExpired(cutoff.getValue());
+    }
+
+    @Test
+    void ordersAlreadySettledElsewhereAreNotCounted() {
+        // A PAID callback settled the claimed rows before the update, so nothing was cancelled
+        when(paymentOrderJdbcRepository.claimExpired(any(), eq(3))).thenReturn(ids(1, 2));
+        when(paymentOrderJdbcRepository.cancel(ids(1, 2))).thenReturn(0);
+
+        sweeper.sweep();
+
+        assertThat(meterRegistry.get("payment.orders.cancelled").counter().count()).isZero();
+    }
+
+    private List<Long> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().toList();
+    }
+}
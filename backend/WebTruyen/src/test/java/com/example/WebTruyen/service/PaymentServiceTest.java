@@ -0,0 +1,154 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.entity.enums.PaymentOrderStatus;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import com.example.WebTruyen.repository.PaymentCallbackJdbcRepository;
+import com.example.WebTruyen.repository.PaymentOrderJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    private static final String ORDER = "order-1";
+
+    @Mock
+    private PaymentOrderJdbcRepository paymentOrderJdbcRepository;
+
+    @Mock
+    private PaymentCallbackJdbcRepository paymentCallbackJdbcRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private WalletBalanceService walletBalanceService;
+
+    @Mock
+    private PaymentSignatureVerifier signatureVerifier;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(paymentService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(paymentService, "batchSize", 10);
+        paymentService.init();
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void callbackIsStoredBeforeItIsAcknowledged() {
+        when(signatureVerifier.verify(ORDER, PaymentOrderStatus.PAID, 10_000L, "sig")).thenReturn(true);
+
+        paymentService.submitCallback(ORDER, PaymentOrderStatus.PAID, 10_000L, "sig");
+
+        verify(paymentCallbackJdbcRepository).insert(eq(ORDER), eq(PaymentOrderStatus.PAID), eq(10_000L), any());
+    }
+
+    @Test
+    void badlySignedCallbackIsNotStored() {
+        when(signatureVerifier.verify(ORDER, PaymentOrderStatus.PAID, 10_000L, "forged")).thenReturn(false);
+
+        assertThatThrownBy(() -> paymentService.submitCallback(ORDER, PaymentOrderStatus.PAID, 10_000L, "forged"))
+                .isInstanceOf(PaymentCallbackRejectedException.class);
+        verify(paymentCallbackJdbcRepository, never()).insert(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void replayedPaidCallbackCreditsOnce() {
+        when(paymentCallbackJdbcRepository.findDue(anyInt(), anyInt())).thenReturn(List.of(1L, 2L), List.of());
+        when(paymentCallbackJdbcRepository.claim(1L)).thenReturn(Optional.of(paid(1L)));
+        when(paymentCallbackJdbcRepository.claim(2L)).thenReturn(Optional.of(paid(2L)));
+        // The compare-and-set on the order only succeeds for the first delivery
+        when(paymentOrderJdbcRepository.markPaid(eq(ORDER), eq(10_000L), any())).thenReturn(true, false);
+        when(paymentOrderJdbcRepository.findAmountVnd(ORDER)).thenReturn(Optional.of(10_000L));
+        when(paymentOrderJdbcRepository.findSettlement(ORDER))
+                .thenReturn(Optional.of(new PaymentOrderJdbcRepository.Settlement(7L, 42L, 100L)));
+        doAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(100L);
+            return 100L;
+        }).when(walletBalanceService).credit(eq(42L), eq(CoinType.B), eq(100L), any());
+
+        paymentService.drain();
+
+        verify(walletBalanceService, times(1)).credit(eq(42L), eq(CoinType.B), eq(100L), any());
+        ArgumentCaptor<LedgerJdbcRepository.Entry> entry = ArgumentCaptor.forClass(LedgerJdbcRepository.Entry.class);
+        verify(ledgerJdbcRepository).insert(entry.capture());
+        assertThat(entry.getValue().idempotencyKey()).isEqualTo("topup:" + ORDER);
+        verify(paymentCallbackJdbcRepository).markProcessed(eq(1L), any());
+        verify(paymentCallbackJdbcRepository).markProcessed(eq(2L), any());
+    }
+
+    @Test
+    void failedSettlementStaysInTheInbox() {
+        when(paymentCallbackJdbcRepository.findDue(anyInt(), anyInt())).thenReturn(List.of(1L));
+        when(paymentCallbackJdbcRepository.claim(1L)).thenReturn(Optional.of(paid(1L)));
+        when(paymentOrderJdbcRepository.markPaid(eq(ORDER), eq(10_000L), any()))
+                .thenThrow(new IllegalStateException("database down"));
+        when(paymentCallbackJdbcRepository.recordFailure(eq(1L), anyString())).thenReturn(1);
+
+        paymentService.drain();
+
+        verify(paymentCallbackJdbcRepository).recordFailure(1L, "database down");
+        verify(paymentCallbackJdbcRepository, never()).markProcessed(anyLong(), any());
+        verify(walletBalanceService, never()).credit(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void amountMismatchIsHeldForReview() {
+        when(paymentCallbackJdbcRepository.findDue(anyInt(), anyInt())).thenReturn(List.of(1L));
+        when(paymentCallbackJdbcRepository.claim(1L)).thenReturn(Optional.of(paid(1L)));
+        when(paymentOrderJdbcRepository.markPaid(eq(ORDER), eq(10_000L), any())).thenReturn(false);
+        when(paymentOrderJdbcRepository.findAmountVnd(ORDER)).thenReturn(Optional.of(50_000L));
+
+        paymentService.drain();
+
+        verify(paymentCallbackJdbcRepository).holdForReview(eq(1L), eq(PaymentService.MAX_SETTLE_ATTEMPTS),
+                contains("expects 50000"));
+        verify(paymentCallbackJdbcRepository, never()).markProcessed(anyLong(), any());
+        verify(paymentCallbackJdbcRepository, never()).recordFailure(anyLong(), any());
+        verify(walletBalanceService, never()).credit(any(), any(), anyLong(), any());
+        assertThat(meterRegistry.counter("payment.callbacks.amount-mismatch").count()).isEqualTo(1.0);
+    }
+
+    private PaymentCallbackJdbcRepository.InboxCallback paid(long id) {
+        return new PaymentCallbackJdbcRepository.InboxCallback(id, ORDER, PaymentOrderStatus.PAID, 10_000L);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.repository.BookmarkJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingProgressServiceTest {
+
+    private static final Long USER = 1L;
+
+    @Mock
+    private BookmarkJdbcRepository bookmarkJdbcRepository;
+
+    @Mock
+    private ContinueReadingService continueReadingService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ReadingProgressService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "flushBatchSize", 100);
+        ReflectionTestUtils.setField(service, "maxPending", 1000);
+        ReflectionTestUtils.setField(service, "maxPendingPerUser", 3);
+        service.init();
+
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void keepsOnlyTheLatestPositionPerChapter() {
+        service.report(USER, 10L, 1, new BigDecimal("10"));
+        service.report(USER, 10L, 2, new BigDecimal("55.555"));
+
+        service.flush();
+
+        List<BookmarkJdbcRepository.Progress> rows = written();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).segmentSeq()).isEqualTo(2);
+        assertThat(rows.get(0).positionPercent()).isEqualByComparingTo("55.56");
+        verify(continueReadingService).invalidate(Set.of(USER));
+    }
+
+    @Test
+    void capsTheChaptersOneUserCanBuffer() {
+        for (long chapterId = 1; chapterId <= 10; chapterId++) {
+            service.report(USER, chapterId, 1, BigDecimal.ONE);
+        }
+        service.report(2L, 99L, 1, BigDecimal.ONE);
+
+        service.flush();
+
+        assertThat(written())
+                .extracting(BookmarkJdbcRepository.Progress::chapterId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L, 99L);
+    }
+
+    @Test
+    void updatesToBufferedChaptersAreAcceptedAtTheCap() {
+        service.report(USER, 1L, 1, BigDecimal.ONE);
+        service.report(USER, 2L, 1, BigDecimal.ONE);
+        service.report(USER, 3L, 1, BigDecimal.ONE);
+
+        service.report(USER, 3L, 4, BigDecimal.TEN);
+        service.flush();
+
+        assertThat(written())
+                .filteredOn(row -> row.chapterId() == 3L)
+                .singleElement()
+                .extracting(BookmarkJdbcRepository.Progress::segmentSeq)
+                .isEqualTo(4);
+    }
+
+    @Test
+    void flushingFreesTheUsersSlots() {
+        for (long chapterId = 1; chapterId <= 3; chapterId++) {
+            service.report(USER, chapterId, 1, BigDecimal.ONE);
+        }
+        service.flush();
+
+        service.report(USER, 4L, 1, BigDecimal.ONE);
+        service.flush();
+
+        ArgumentCaptor<List<BookmarkJdbcRepository.Progress>> rows = ArgumentCaptor.captor();
+        verify(bookmarkJdbcRepository, times(2)).batchUpsertProgress(rows.capture());
+        assertThat(rows.getAllValues().get(1))
+                .extracting(BookmarkJdbcRepository.Progress::chapterId)
+                .containsExactly(4L);
+    }
+
+    @Test
+    void failedBatchIsRetriedOnTheNextFlush() {
+        service.report(USER, 1L, 1, BigDecimal.ONE);
+        doThrow(new QueryTimeoutException("timeout"))
+                .doNothing()
+                .when(bookmarkJdbcRepository).batchUpsertProgress(anyList());
+
+        service.flush();
+        service.flush();
+
+        verify(bookmarkJdbcRepository, times(2)).batchUpsertProgress(anyList());
+        verify(continueReadingService, times(1)).invalidate(any(Collection.class));
+    }
+
+    @Test
+    void rejectsPositionsOutOfRange() {
+        assertThatThrownBy(() -> service.report(USER, 1L, 1, new BigDecimal("100.01")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.report(USER, 1L, 0, BigDecimal.ONE))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        service.flush();
+        verify(bookmarkJdbcRepository, never()).batchUpsertProgress(anyList());
+    }
+
+    private List<BookmarkJdbcRepository.Progress> written() {
+        ArgumentCaptor<List<BookmarkJdbcRepository.Progress>> rows = ArgumentCaptor.captor();
+        verify(bookmarkJdbcRepository).batchUpsertProgress(rows.capture());
+        return rows.getValue();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.dto.projection.TocRow;
+import com.example.WebTruyen.entity.enums.ChapterStatus;
+import com.example.WebTruyen.entity.enums.StoryStatus;
+import com.example.WebTruyen.entity.enums.StoryVisibility;
+import com.example.WebTruyen.repository.StoryRepository;
+import com.example.WebTruyen.repository.VolumeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StoryTocServiceTest {
+
+    private static final Long STORY = 3L;
+
+    @Mock
+    private VolumeRepository volumeRepository;
+
+    @Mock
+    private StoryRepository storyRepository;
+
+    @InjectMocks
+    private StoryTocService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxStories", 10);
+    }
+
+    @Test
+    void hiddenOrMissingStoryIsNotFoundAndNotCached() {
+        when(storyRepository.existsByIdAndStatusAndVisibilityNot(STORY, StoryStatus.published,
+                StoryVisibility.private_)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.getToc(STORY)).isInstanceOf(StoryNotFoundException.class);
+        assertThatThrownBy(() -> service.getToc(STORY)).isInstanceOf(StoryNotFoundException.class);
+
+        verify(storyRepository, times(2)).existsByIdAndStatusAndVisibilityNot(STORY, StoryStatus.published,
+                StoryVisibility.private_);
+        verify(volumeRepository, never()).findTocRows(any(), any());
+    }
+
+    @Test
+    void visibleStoryIsBuiltOnceAndCached() {
+        when(storyRepository.existsByIdAndStatusAndVisibilityNot(STORY, StoryStatus.published,
+                StoryVisibility.private_)).thenReturn(true);
+        when(volumeRepository.findTocRows(STORY, ChapterStatus.published)).thenReturn(List.of(
+                new TocRow(1L, "Volume 1", 1, 10L, "Chapter 1", 1, true, 0L, ChapterStatus.published),
+                new TocRow(1L, "Volume 1", 1, 11L, "Chapter 2", 2, false, 5L, ChapterStatus.published),
+                new TocRow(2L, "Volume 2", 2, null, null, null, null, null, null)));
+
+        StoryTocService.StoryToc toc = service.getStoryToc(STORY);
+
+        assertThat(toc.chapterIds()).containsExactly(10L, 11L);
+        assertThat(toc.response().getVolumes()).hasSize(2);
+        assertThat(service.getStoryToc(STORY)).isSameAs(toc);
+        verify(volumeRepository, times(1)).findTocRows(STORY, ChapterStatus.published);
+    }
+
+    @Test
+    void storyBecomingHiddenStopsServingItsToc() {
+        when(storyRepository.existsByIdAndStatusAndVisibilityNot(STORY, StoryStatus.published,
+                StoryVisibility.private_)).thenReturn(true, false);
+        when(volumeRepository.findTocRows(STORY, ChapterStatus.published)).thenReturn(List.of());
+
+        service.getToc(STORY);
+        service.invalidate(STORY);
+
+        assertThatThrownBy(() -> service.getToc(STORY)).isInstanceOf(StoryNotFoundException.class);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.WebTruyen.service;
+
+import com.example.WebTruyen.entity.enums.CoinType;
+import com.example.WebTruyen.repository.LedgerJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletBalanceServiceTest {
+
+    private static final Long USER = 1L;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private WalletBalanceService walletBalanceService;
+
+    private final InMemoryWallets rows = new InMemoryWallets();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(walletBalanceService, "walletJdbcRepository", rows);
+        ReflectionTestUtils.setField(walletBalanceService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(walletBalanceService, "maxEntries", 100);
+        ReflectionTestUtils.setField(walletBalanceService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(walletBalanceService, "verifyBatchSize", 10);
+        walletBalanceService.init();
+        rows.seed(USER, 100);
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void secondSpendOfTheSameCoinsIsRefused() {
+        inTransaction(() -> walletBalanceService.debit(USER, CoinType.A, 80, balance -> { }));
+
+        AtomicInteger ledgerWrites = new AtomicInteger();
+        assertThatThrownBy(() -> inTransaction(
+                () -> walletBalanceService.debit(USER, CoinType.A, 80, balance -> ledgerWrites.incrementAndGet())))
+                .isInstanceOf(InsufficientBalanceException.class);
+        assertThat(ledgerWrites).hasValue(0);
+        assertThat(walletBalanceService.getBalances(USER).getBalanceCoinA()).isEqualTo(20);
+    }
+
+    @Test
+    void ledgerWriterGetsBalanceAfterDebit() {
+        long[] written = new long[1];
+        inTransaction(() -> walletBalanceService.debit(USER, CoinType.A, 30, balance -> written[0] = balance));
+
+        assertThat(written[0]).isEqualTo(70);
+    }
+
+    @Test
+    void commitDropsTheCachedCopy() {
+        assertThat(walletBalanceService.getBalances(USER).getBalanceCoinA()).isEqualTo(100);
+
+        inTransaction(() -> walletBalanceService.credit(USER, CoinType.A, 5, balance -> { }));
+
+        assertThat(walletBalanceService.getBalances(USER).getBalanceCoinA()).isEqualTo(105);
+    }
+
+    @Test
+    void creditCreatesTheWallet() {
+        inTransaction(() -> walletBalanceService.credit(2L, CoinType.B, 40, balance -> { }));
+
+        assertThat(walletBalanceService.getBalances(2L).getBalanceCoinB()).isEqualTo(40);
+    }
+
+    @Test
+    void debitOutsideTransactionIsRejected() {
+        assertThatThrownBy(() -> walletBalanceService.debit(USER, CoinType.A, 1, balance -> { }))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void concurrentDebitsAndCreditsAgreeWithTheLedger() throws Exception {
+        List<long[]> ledger = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < 8; worker++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        boolean spend = ThreadLocalRandom.current().nextBoolean();
+                        long amount = spend ? 7 : 5;
+                        try {
+                            inTransaction(() -> {
+                                if (spend) {
+                                    walletBalanceService.debit(USER, CoinType.A, amount,
+                                            balance -> ledger.add(new long[]{-amount, balance}));
+                                } else {
+                                    walletBalanceService.credit(USER, CoinType.A, amount,
+                                            balance -> ledger.add(new long[]{amount, balance}));
+                                }
+                            });
+                        } catch (InsufficientBalanceException ignored) {
+                            // Refused spends write no ledger row
+                        }
+                        walletBalanceService.getBalances(USER);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long expected = 100 + ledger.stream().mapToLong(entry -> entry[0]).sum();
+        assertThat(ledger).allSatisfy(entry -> assertThat(entry[1]).isNotNegative());
+        assertThat(rows.balance(USER)).isEqualTo(expected);
+        assertThat(walletBalanceService.getBalances(USER).getBalanceCoinA()).isEqualTo(expected);
+    }
+
+    @Test
+    void verifyReportsARowThatDisagreesWithTheLedger() {
+        walletBalanceService.getBalances(USER);
+        when(ledgerJdbcRepository.latestBalances(USER)).thenReturn(Map.of(CoinType.A, 90L));
+
+        walletBalanceService.verify();
+
+        assertThat(meterRegistry.counter("wallet.cache.divergence").count()).isEqualTo(1.0);
+        assertThat(rows.balance(USER)).isEqualTo(100);
+    }
+
+    private void inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            work.run();
+        } finally {
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.WebTruyen.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void encodedCursorDecodesToTheSamePosition() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 12, 30, 5, 123_000_000), 42L);
+
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void wholeSecondTimestampsSurviveTheRoundTrip() {
+        // LocalDateTime.toString drops zero seconds, which parse must still accept
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 12, 30), Long.MAX_VALUE);
+
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 12, 30, 5), 7L).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorMeansTheFirstPage() {
+        assertThat(KeysetCursor.decode(null)).isNull();
+        assertThat(KeysetCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("2025-03-01T12:30".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().encodeToString("2025-03-01T12:30|x".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> KeysetCursor.decode("not base64!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(noSeparator)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(badId)).isInstanceOf(IllegalArgumentException.class);
+    }
+}